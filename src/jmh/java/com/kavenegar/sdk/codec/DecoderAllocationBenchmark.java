@@ -0,0 +1,98 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.models.StatusResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a 3000-row {@code latestoutbox} style response three ways:
+ * the old whole-body tree parse, a per-entry tree, and the dedicated streaming decoders.
+ * <p>
+ * Scores are per decoded entry. Run with {@code -prof gc} and read {@code gc.alloc.rate.norm}
+ * for the bytes allocated per entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(DecoderAllocationBenchmark.ENTRIES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderAllocationBenchmark {
+
+    static final int ENTRIES = 3000;
+
+    private byte[] sendBody;
+    private byte[] statusBody;
+
+    @Setup
+    public void setUp() {
+        StringBuilder send = new StringBuilder("{\"return\":{\"status\":200,\"message\":\"\u062A\u0627\u06CC\u06CC\u062F \u0634\u062F\"},\"entries\":[");
+        StringBuilder status = new StringBuilder("{\"return\":{\"status\":200,\"message\":\"\u062A\u0627\u06CC\u06CC\u062F \u0634\u062F\"},\"entries\":[");
+        for (int i = 0; i < ENTRIES; i++) {
+            if (i > 0) {
+                send.append(',');
+                status.append(',');
+            }
+            send.append("{\"messageid\":").append(8792343L + i)
+                    .append(",\"message\":\"\u062E\u062F\u0645\u0627\u062A \u067E\u06CC\u0627\u0645 \u06A9\u0648\u062A\u0627\u0647 \u06A9\u0627\u0648\u0647 \u0646\u06AF\u0627\u0631\",\"status\":10,\"statustext\":\"\u0631\u0633\u06CC\u062F\u0647 \u0628\u0647 \u06AF\u06CC\u0631\u0646\u062F\u0647\"")
+                    .append(",\"sender\":\"10004346\",\"receptor\":\"0912").append(1000000 + i)
+                    .append("\",\"date\":1356619709,\"cost\":120}");
+            status.append("{\"messageid\":").append(8792343 + i)
+                    .append(",\"status\":10,\"statustext\":\"\u0631\u0633\u06CC\u062F\u0647 \u0628\u0647 \u06AF\u06CC\u0631\u0646\u062F\u0647\"}");
+        }
+        sendBody = send.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        statusBody = status.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<SendResult> sendWholeTree() {
+        JsonObject json = new JsonParser().parse(new String(sendBody, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray array = json.get("entries").getAsJsonArray();
+        List<SendResult> list = new ArrayList<>();
+        for (int i = 0; i < array.size(); i++) {
+            list.add(new SendResult(array.get(i).getAsJsonObject()));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<SendResult> sendPerEntryTree() throws IOException {
+        return ResponseReader.read(new ByteArrayInputStream(sendBody), Decoders.of(SendResult::new));
+    }
+
+    @Benchmark
+    public List<SendResult> sendStreaming() throws IOException {
+        return ResponseReader.read(new ByteArrayInputStream(sendBody), Decoders.SEND_RESULT);
+    }
+
+    @Benchmark
+    public List<StatusResult> statusPerEntryTree() throws IOException {
+        return ResponseReader.read(new ByteArrayInputStream(statusBody), Decoders.of(StatusResult::new));
+    }
+
+    @Benchmark
+    public List<StatusResult> statusStreaming() throws IOException {
+        return ResponseReader.read(new ByteArrayInputStream(statusBody), Decoders.STATUS_RESULT);
+    }
+}
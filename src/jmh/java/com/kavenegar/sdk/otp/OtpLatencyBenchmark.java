@@ -0,0 +1,128 @@
+package com.kavenegar.sdk.otp;
+
+import com.kavenegar.sdk.EndpointRegistry;
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.transport.ApacheHttpTransport;
+import com.kavenegar.sdk.transport.ConnectionPoolConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@code verifyLookup} against a local stand-in server, with and without OTP mode.
+ * <p>
+ * The stand-in answers every request at once, so the scores are the client's own overhead plus
+ * connection setup when it happens. {@code idleMillis} pauses before each call; the standard pool is
+ * set to drop connections idle for more than 100ms, as it would once the server's keep-alive
+ * timeout closed them, while OTP mode's warm interval of 50ms keeps its connections open. Locally
+ * setup is a TCP handshake only; against the API it adds DNS and TLS as well.
+ * <p>
+ * Sample-time mode reports p50, p99 and p99.9 directly, e.g.
+ * {@code gradle jmh -PjmhArgs="OtpLatencyBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OtpLatencyBenchmark {
+
+    private static final byte[] ANSWER = ("{\"return\":{\"status\":200,\"message\":\"ok\"},"
+            + "\"entries\":[{\"messageid\":8792343,\"message\":\"code 482913\",\"status\":5,\"statustext\":\"sent\","
+            + "\"sender\":\"10004346\",\"receptor\":\"09121234567\",\"date\":1356619709,\"cost\":120}]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // without it the stand-in's separate header and body writes meet delayed ACKs, adding 40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @Param({"standard", "otp"})
+    public String path;
+
+    @Param({"0", "200"})
+    public long idleMillis;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private KavenegarApi api;
+    private OtpTemplate template;
+
+    @Setup
+    public void setUp() throws IOException {
+        serverThreads = Executors.newFixedThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", OtpLatencyBenchmark::answer);
+        server.setExecutor(serverThreads);
+        server.start();
+        EndpointRegistry endpoints = new EndpointRegistry(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/", "BENCHMARK-KEY");
+        ConnectionPoolConfig pool = new ConnectionPoolConfig();
+        pool.setMaxIdleMillis(100);
+        api = new KavenegarApi(endpoints, new ApacheHttpTransport(pool));
+        if ("otp".equals(path)) {
+            OtpConfig config = new OtpConfig();
+            config.setWarmIntervalMillis(50);
+            config.setDeadlineMillis(1000);
+            api.setOtpMode(config);
+            api.getOtpSender().warm();
+        }
+        template = OtpTemplate.of("login");
+    }
+
+    private static void answer(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            while (body.read() >= 0) {
+                // drain the form
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, ANSWER.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(ANSWER);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void idle() throws InterruptedException {
+        if (idleMillis > 0) {
+            Thread.sleep(idleMillis);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        api.close();
+        server.stop(0);
+        serverThreads.shutdown();
+    }
+
+    @Benchmark
+    public SendResult verifyLookup() {
+        return api.verifyLookup(template, "09121234567", "482913");
+    }
+}
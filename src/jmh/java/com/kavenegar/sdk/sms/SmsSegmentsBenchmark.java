@@ -0,0 +1,89 @@
+package com.kavenegar.sdk.sms;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzes typical payloads with {@link SmsSegments} and, for comparison, with the usual
+ * encode-and-measure approach: trying the text against a GSM-like charset and taking the byte
+ * length of its UTF-16 form.
+ * <p>
+ * Scores are per message. Run with {@code -prof gc}; {@code gc.alloc.rate.norm} should be zero
+ * for {@code analyze} and {@code cost}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmsSegmentsBenchmark {
+
+    @Param({"latinOtp", "latinLong", "persianOtp", "persianLong", "mixed"})
+    public String payload;
+
+    private String message;
+    private final SmsTariff tariff = new SmsTariff(112, 250);
+
+    @Setup
+    public void setUp() {
+        switch (payload) {
+            case "latinOtp":
+                message = "Your verification code is 482913. It expires in 2 minutes.";
+                break;
+            case "latinLong":
+                message = repeat("Dear customer, your order #10045 has shipped and will arrive on Monday. ", 4);
+                break;
+            case "persianOtp":
+                message = "\u06A9\u062F \u062A\u0627\u06CC\u06CC\u062F \u0634\u0645\u0627: 482913 \n\u0627\u06CC\u0646 \u06A9\u062F \u062A\u0627 \u06F2 \u062F\u0642\u06CC\u0642\u0647 \u0645\u0639\u062A\u0628\u0631 \u0627\u0633\u062A.";
+                break;
+            case "persianLong":
+                message = repeat("\u0645\u0634\u062A\u0631\u06CC \u06AF\u0631\u0627\u0645\u06CC\u060C \u0633\u0641\u0627\u0631\u0634 \u0634\u0645\u0627 \u0627\u0631\u0633\u0627\u0644 \u0634\u062F \u0648 \u0631\u0648\u0632 \u062F\u0648\u0634\u0646\u0628\u0647 \u062A\u062D\u0648\u06CC\u0644 \u062F\u0627\u062F\u0647 \u0645\u06CC\u200C\u0634\u0648\u062F. ", 4);
+                break;
+            default:
+                // Latin text that turns out to need UCS-2 near its end
+                message = repeat("Order 10045 shipped. ", 8) + "\u0628\u0627 \u062A\u0634\u06A9\u0631";
+                break;
+        }
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public long analyze() {
+        return SmsSegments.analyze(message);
+    }
+
+    @Benchmark
+    public long cost() {
+        return SmsSegments.cost(message, tariff);
+    }
+
+    @Benchmark
+    public int encodeAndMeasure() {
+        boolean gsm = StandardCharsets.ISO_8859_1.newEncoder().canEncode(message);
+        int units = gsm ? message.getBytes(StandardCharsets.ISO_8859_1).length
+                : message.getBytes(StandardCharsets.UTF_16BE).length / 2;
+        int single = gsm ? SmsSegments.GSM7_SINGLE_PART : SmsSegments.UCS2_SINGLE_PART;
+        int multi = gsm ? SmsSegments.GSM7_MULTI_PART : SmsSegments.UCS2_MULTI_PART;
+        return units <= single ? 1 : (units + multi - 1) / multi;
+    }
+}
@@ -0,0 +1,53 @@
+package com.kavenegar.sdk;
+
+import com.kavenegar.sdk.enums.Endpoint;
+
+import java.net.URI;
+
+/**
+ * The request {@link URI} of every {@link Endpoint} for one API key, built once up front.
+ * <p>
+ * Clients resolve each call with an array lookup instead of formatting and re-parsing the URL,
+ * and the base URL can point at a local stand-in server for tests and benchmarks.
+ */
+public final class EndpointRegistry {
+
+    public static final String DEFAULT_BASE_URL = "https://api.kavenegar.com/v1/";
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final URI[] uris;
+
+    public EndpointRegistry(String apiKey) {
+        this(DEFAULT_BASE_URL, apiKey);
+    }
+
+    /**
+     * @param baseUrl URL the API key and method path are appended to, e.g. {@code http://localhost:8080/v1/}
+     * @throws IllegalArgumentException if the resulting URLs are not valid URIs
+     */
+    public EndpointRegistry(String baseUrl, String apiKey) {
+        if (baseUrl == null || apiKey == null) {
+            throw new IllegalArgumentException("baseUrl and apiKey must not be null");
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.apiKey = apiKey;
+        Endpoint[] endpoints = Endpoint.values();
+        this.uris = new URI[endpoints.length];
+        for (Endpoint endpoint : endpoints) {
+            uris[endpoint.ordinal()] = URI.create(this.baseUrl + apiKey + "/" + endpoint.getPath() + ".json");
+        }
+    }
+
+    public URI uri(Endpoint endpoint) {
+        return uris[endpoint.ordinal()];
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+}
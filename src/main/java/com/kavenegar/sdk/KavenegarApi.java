@@ -4,116 +4,688 @@
  */
 package com.kavenegar.sdk;
 
-import com.google.gson.*;
+import com.kavenegar.sdk.batch.CoalescerConfig;
+import com.kavenegar.sdk.breaker.CircuitBreaker;
+import com.kavenegar.sdk.breaker.CircuitBreakers;
+import com.kavenegar.sdk.batch.SendArrayBatch;
+import com.kavenegar.sdk.batch.SendCoalescer;
+import com.kavenegar.sdk.codec.Decoders;
+import com.kavenegar.sdk.codec.EntryDecoder;
+import com.kavenegar.sdk.codec.FormWriter;
+import com.kavenegar.sdk.codec.ResponseReader;
+import com.kavenegar.sdk.concurrent.ParallelExecutor;
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.enums.MessageStatus;
 import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.enums.MetaData;
 import com.kavenegar.sdk.excepctions.ApiException;
 import com.kavenegar.sdk.excepctions.BaseException;
 import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.excepctions.PartialSendException;
+import com.kavenegar.sdk.journal.OutboxJournal;
+import com.kavenegar.sdk.journal.PendingEntry;
+import com.kavenegar.sdk.lanes.ExecutionLanes;
+import com.kavenegar.sdk.lanes.Lane;
+import com.kavenegar.sdk.lanes.LanesConfig;
 import com.kavenegar.sdk.models.*;
+import com.kavenegar.sdk.otp.OtpConfig;
+import com.kavenegar.sdk.otp.OtpSender;
+import com.kavenegar.sdk.otp.OtpTemplate;
+import com.kavenegar.sdk.ratelimit.AdaptiveConcurrencyLimiter;
+import com.kavenegar.sdk.ratelimit.RateLimiter;
+import com.kavenegar.sdk.receptors.ReceptorBatch;
+import com.kavenegar.sdk.retry.FailureClass;
+import com.kavenegar.sdk.retry.RetryConfig;
+import com.kavenegar.sdk.retry.RetryEngine;
+import com.kavenegar.sdk.template.MessageTemplate;
+import com.kavenegar.sdk.template.RecipientBinder;
+import com.kavenegar.sdk.transport.ApacheHttpTransport;
+import com.kavenegar.sdk.transport.ConnectionPoolConfig;
+import com.kavenegar.sdk.transport.Transport;
+import com.kavenegar.sdk.transport.TransportResponse;
 import com.kavenegar.sdk.utils.PairValue;
-import com.kavenegar.sdk.utils.StringUtils;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 /**
+ * Client for the Kavenegar REST API.
+ * <p>
+ * All I/O goes through a {@link Transport}; by default a pooled Apache HTTP client.
+ * An instance is thread-safe and should be shared and reused; call {@link #close()}
+ * when it is no longer needed to release its connections.
+ *
  * @author Kavenegar
  */
-public class KavenegarApi {
+public class KavenegarApi implements AutoCloseable {
+
+    static final int DEFAULT_ID_BATCH_SIZE = 500;
+
+    static final int DEFAULT_RECEPTOR_CHUNK_SIZE = 200;
+
+    private final EndpointRegistry endpoints;
+    private final Transport transport;
+    private volatile ParallelExecutor parallelExecutor = ParallelExecutor.sameThread();
+    private volatile int idBatchSize = DEFAULT_ID_BATCH_SIZE;
+    private volatile int receptorChunkSize = DEFAULT_RECEPTOR_CHUNK_SIZE;
+    private volatile SendCoalescer sendCoalescer;
+    private volatile OutboxJournal outboxJournal;
+    private volatile RateLimiter rateLimiter;
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private volatile RetryEngine retryEngine;
+    private volatile CircuitBreakers circuitBreakers;
+    private volatile ExecutionLanes lanes;
+    private volatile OtpSender otpSender;
 
-    static final String API_PATH = "https://api.kavenegar.com/v1/%s/%s.json";
+    public KavenegarApi(String apiKey) {
+        this(apiKey, new ConnectionPoolConfig());
+    }
 
-    private String apiKey;
+    public KavenegarApi(String apiKey, ConnectionPoolConfig poolConfig) {
+        this(apiKey, new ApacheHttpTransport(poolConfig));
+    }
 
-    public KavenegarApi(String apiKey) {
-        this.apiKey = apiKey;
+    /**
+     * Creates a client that sends every request through {@code transport}.
+     * The client takes ownership of the transport and closes it in {@link #close()}.
+     */
+    public KavenegarApi(String apiKey, Transport transport) {
+        this(new EndpointRegistry(apiKey), transport);
+    }
+
+    /**
+     * Creates a client whose requests go to the URIs of {@code endpoints}, for example a local
+     * stand-in server built with {@code new EndpointRegistry("http://localhost:8080/v1/", apiKey)}.
+     */
+    public KavenegarApi(EndpointRegistry endpoints, Transport transport) {
+        this.endpoints = endpoints;
+        this.transport = transport;
+    }
+
+    public EndpointRegistry getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Sets the executor used to fan out internal work, such as status queries for more ids
+     * than fit in one request. By default that work runs sequentially on the calling thread.
+     * <p>
+     * On Java 21 {@code ParallelExecutor.virtualThreads(n)} runs each request on its own virtual
+     * thread with at most {@code n} in flight. The executor is closed together with this client.
+     */
+    public void setParallelExecutor(ParallelExecutor parallelExecutor) {
+        this.parallelExecutor = parallelExecutor == null ? ParallelExecutor.sameThread() : parallelExecutor;
+    }
+
+    public ParallelExecutor getParallelExecutor() {
+        return parallelExecutor;
+    }
+
+    /**
+     * Maximum number of message or local ids sent in one {@code status}, {@code statuslocalmessageid},
+     * {@code select} or {@code cancel} request. Longer lists are split and queried through the
+     * {@link #setParallelExecutor parallel executor}.
+     */
+    public void setIdBatchSize(int idBatchSize) {
+        if (idBatchSize < 1) {
+            throw new IllegalArgumentException("idBatchSize must be positive: " + idBatchSize);
+        }
+        this.idBatchSize = idBatchSize;
+    }
+
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    /**
+     * Maximum number of receptors sent in one {@code send} or {@code CallMakeTTS} request.
+     * Longer lists, with their local ids, are split and sent through the
+     * {@link #setParallelExecutor parallel executor}; results come back in receptor order.
+     * If some chunks fail, a {@link PartialSendException} reports them along with the
+     * results of the chunks that were sent.
+     */
+    public void setReceptorChunkSize(int receptorChunkSize) {
+        if (receptorChunkSize < 1) {
+            throw new IllegalArgumentException("receptorChunkSize must be positive: " + receptorChunkSize);
+        }
+        this.receptorChunkSize = receptorChunkSize;
+    }
+
+    public int getReceptorChunkSize() {
+        return receptorChunkSize;
+    }
+
+    /**
+     * Routes single-receptor, immediate {@code send} calls through a {@link SendCoalescer}, which
+     * packs concurrent calls into {@code sendArray} requests. Each caller still blocks for, and
+     * gets, its own {@link SendResult}. Pass {@code null} to turn coalescing off again.
+     */
+    public void setSendCoalescing(CoalescerConfig config) {
+        SendCoalescer previous = sendCoalescer;
+        sendCoalescer = config == null ? null : new SendCoalescer(this, config);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public SendCoalescer getSendCoalescer() {
+        return sendCoalescer;
+    }
+
+    /**
+     * Records every {@code send} and {@code sendArray} request in {@code journal} before it is posted,
+     * and its message ids once the API answers. Messages without a local id get a fresh numeric one
+     * from the journal, so that after a crash {@link #replayOutbox()} can ask the API which of them
+     * were received. The journal is not closed by this client; pass {@code null} to stop journaling.
+     */
+    public void setOutboxJournal(OutboxJournal journal) {
+        this.outboxJournal = journal;
+    }
+
+    public OutboxJournal getOutboxJournal() {
+        return outboxJournal;
+    }
+
+    /**
+     * Holds every request back until it fits the limiter's budgets for this client's API key,
+     * the endpoint family and, for sends, the sender lines. The same limiter may be set on
+     * several clients. Pass {@code null} to send without client-side limits.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Bounds the requests this client has in flight by a limit that adapts to the API's latency
+     * and {@code SERVER_IS_BUSY} answers. The limiter's metrics show the current limit and RTT
+     * estimates. Pass {@code null} to remove the bound.
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Retries requests that fail transiently, such as {@code SERVER_IS_BUSY} answers, 5xx statuses and
+     * broken connections, and optionally hedges slow reads; see {@link RetryEngine}. Sends are retried
+     * only when every message carries a local id, so the API can drop the duplicate. Every attempt
+     * goes through the rate and concurrency limiters. Pass {@code null} to try each request once.
+     */
+    public void setRetryPolicy(RetryConfig config) {
+        RetryEngine previous = retryEngine;
+        retryEngine = config == null ? null : new RetryEngine(config);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public RetryEngine getRetryEngine() {
+        return retryEngine;
+    }
+
+    /**
+     * Fails requests fast, with a {@link com.kavenegar.sdk.excepctions.CircuitOpenException}, while the
+     * breaker of their endpoint family is open. The breakers may be shared by several clients and
+     * their states read for health checks. Pass {@code null} to post every request.
+     */
+    public void setCircuitBreakers(CircuitBreakers circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    public CircuitBreakers getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * Runs requests in {@link ExecutionLanes}, each with its own queue, concurrency limit and,
+     * optionally, connection pool, so that {@code verifyLookup} OTPs do not wait behind bulk
+     * {@code sendArray} and {@code sendByPostalCode} campaigns. Requests enter their lane once past
+     * the rate limiter; a concurrency limiter, if also set, still bounds all lanes together, so its
+     * maximum should stay above the lanes' total. The lanes' per-lane latencies are read from
+     * {@link #getLanes()}. Pass {@code null} to run every request in one queue again.
+     * <p>
+     * The previous lanes are closed at once, connection pools included, so requests still running
+     * in them may fail. Changing the lanes while requests are in flight is not supported; set them
+     * before the client is used.
+     */
+    public void setLanes(LanesConfig config) {
+        ExecutionLanes previous = lanes;
+        lanes = config == null ? null : new ExecutionLanes(config);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public ExecutionLanes getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Sends {@code verifyLookup} requests through an {@link OtpSender}: a small pool of connections
+     * kept warm and checked in the background, a deadline on every call and, optionally, a hedged
+     * duplicate close to the deadline. OTPs then skip the retry engine, but still pass the circuit
+     * breaker, rate limiter and lanes. Pass {@code null} to send them like any other request.
+     * <p>
+     * The previous sender and its connections are closed at once, so OTPs still being sent through
+     * it may fail. Changing the mode while requests are in flight is not supported; set it before
+     * the client is used.
+     */
+    public void setOtpMode(OtpConfig config) {
+        OtpSender previous = otpSender;
+        otpSender = config == null ? null : new OtpSender(config, endpoints.uri(Endpoint.AccountInfo));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public OtpSender getOtpSender() {
+        return otpSender;
     }
 
-    private String getApiPath(String method) {
-    	return String.format(API_PATH, apiKey, method);
+    /**
+     * Closes the underlying transport, parallel executor, retry engine, lane connection pools and
+     * OTP connections. The instance must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        SendCoalescer coalescer = sendCoalescer;
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        RetryEngine retry = retryEngine;
+        if (retry != null) {
+            retry.close();
+        }
+        ExecutionLanes executionLanes = lanes;
+        if (executionLanes != null) {
+            executionLanes.close();
+        }
+        OtpSender otp = otpSender;
+        if (otp != null) {
+            otp.close();
+        }
+        parallelExecutor.close();
+        try {
+            transport.close();
+        } catch (IOException e) {
+            throw new HttpException("Failed to close http transport", 0, e);
+        }
     }
 
+    /**
+     * @deprecated request bodies are now written by {@link FormWriter}; kept for callers that build
+     * their own Apache requests.
+     */
+    @Deprecated
     public UrlEncodedFormEntity createParams(Object... params) {
+        List<NameValuePair> formparams = new ArrayList<>();
+        for (int i = 0; i < params.length; i += 2) {
+            Object value = params[i + 1];
+            if (value == null) {
+                continue;
+            }
+            formparams.add(new BasicNameValuePair(params[i].toString(), value.toString()));
+        }
+        return new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks the HTTP status of {@code response} and decodes its entries.
+     */
+    static <T> List<T> readEntries(TransportResponse response, EntryDecoder<T> decoder) throws IOException {
+        int httpCode = response.getStatusCode();
+        if (httpCode != 200) {
+            throw new HttpException("Http request exception , code : " + httpCode, httpCode);
+        }
+        return ResponseReader.read(response.getBody(), decoder);
+    }
+
+    /**
+     * Posts the body held by {@code form} and returns the writer to its pool once the call is done.
+     * Failures are retried only if the endpoint is read-only.
+     */
+    private <T> List<T> execute(Endpoint endpoint, EntryDecoder<T> decoder, FormWriter form) throws BaseException {
+        return execute(endpoint, decoder, null, endpoint.isIdempotent(), form);
+    }
+
+    /**
+     * Posts the body held by {@code form} through the retry engine, if one is set, and returns the
+     * writer to its pool once every attempt is done.
+     *
+     * @param senders   sender lines the request uses, for their per-line budgets; may be {@code null}
+     * @param retrySafe whether the request may be posted more than once
+     */
+    private <T> List<T> execute(final Endpoint endpoint, final EntryDecoder<T> decoder, final Iterable<String> senders,
+                                boolean retrySafe, FormWriter form) throws BaseException {
+        RetryEngine retry = retryEngine;
         try {
-            List<NameValuePair> formparams = new ArrayList<>();
-            for (int i = 0; i < params.length; i += 2) {
-                String key = params[i].toString();
-                Object value = params[i + 1];
-                if (value == null) {
-                    continue;
-                }
-                formparams.add(new BasicNameValuePair(key, value.toString()));
+            if (retry == null) {
+                return post(endpoint, decoder, senders, form.buffer(), form.length());
             }
-            return new UrlEncodedFormEntity(formparams, "UTF-8");
-        } catch (Exception ex) {
-            return null;
+            // hedged attempts may still be running after this call returns, so they get their own copy
+            final byte[] body = retry.hedges(endpoint) ? Arrays.copyOf(form.buffer(), form.length()) : form.buffer();
+            final int length = form.length();
+            return retry.execute(endpoint, retrySafe, () -> post(endpoint, decoder, senders, body, length));
+        } finally {
+            form.release();
         }
     }
 
-    private JsonElement execute(String path, Object... params) throws BaseException {
-        UrlEncodedFormEntity parameters;
-        parameters = createParams(params);
-        CloseableHttpClient client = HttpClients.createDefault();
-        HttpPost post = new HttpPost(path);
-        post.setEntity(parameters);
+    /**
+     * Passes the endpoint family's circuit breaker, then waits for the rate limiter, a slot in the
+     * endpoint's lane and the concurrency limiter, if set, then posts {@code body} once and reports
+     * the outcome to the breaker and the concurrency limiter.
+     */
+    private <T> List<T> post(Endpoint endpoint, EntryDecoder<T> decoder, Iterable<String> senders, byte[] body, int length) throws BaseException {
+        return post(endpoint, decoder, senders, body, length, null);
+    }
 
-        try (CloseableHttpResponse response = client.execute(post)) {
+    /**
+     * Like {@link #post(Endpoint, EntryDecoder, Iterable, byte[], int)}, but through {@code via}
+     * instead of the client's or lane's transport, unless it is {@code null}.
+     */
+    private <T> List<T> post(Endpoint endpoint, EntryDecoder<T> decoder, Iterable<String> senders, byte[] body, int length,
+                             Transport via) throws BaseException {
+        CircuitBreakers breakers = circuitBreakers;
+        CircuitBreaker breaker = breakers == null ? null : breakers.get(endpoint.getFamily());
+        RateLimiter limiter = rateLimiter;
+        AdaptiveConcurrencyLimiter concurrency = concurrencyLimiter;
+        ExecutionLanes executionLanes = lanes;
+        Lane lane = executionLanes == null ? null : executionLanes.laneOf(endpoint);
+        long ticket = breaker == null ? 0 : breaker.acquire();
+        long entered = 0;
+        long started;
+        try {
+            if (limiter != null) {
+                limiter.acquire(endpoints.getApiKey(), endpoint.getFamily(), senders);
+            }
+            if (lane != null) {
+                entered = executionLanes.acquire(lane);
+            }
+            try {
+                started = concurrency == null ? 0 : concurrency.acquire();
+            } catch (RuntimeException e) {
+                if (lane != null) {
+                    executionLanes.release(lane, entered);
+                }
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            if (breaker != null) {
+                breaker.onIgnore(ticket);
+            }
+            throw e;
+        }
+        Transport target = via != null ? via : lane == null ? transport : executionLanes.transport(lane, transport);
+        long sent = System.nanoTime();
+        boolean succeeded = false;
+        BaseException failure = null;
+        try (TransportResponse response = target.post(endpoints.uri(endpoint), body, 0, length)) {
+            List<T> entries = readEntries(response, decoder);
+            succeeded = true;
+            return entries;
+        } catch (BaseException e) {
+            failure = e;
+            throw e;
+        } catch (IOException e1) {
+            throw failure = new HttpException("Http Request Exception", 0, e1);
+        } finally {
+            if (breaker != null) {
+                long duration = System.nanoTime() - sent;
+                if (succeeded || failure != null && RetryEngine.classify(failure) == FailureClass.Permanent) {
+                    breaker.onSuccess(ticket, duration);
+                } else {
+                    breaker.onFailure(ticket, duration);
+                }
+            }
+            if (concurrency != null) {
+                if (succeeded) {
+                    concurrency.onSuccess(started);
+                } else if (failure instanceof ApiException && ((ApiException) failure).getCode() == MetaData.SERVER_IS_BUSY) {
+                    concurrency.onOverload(started);
+                } else {
+                    concurrency.onIgnore(started);
+                }
+            }
+            if (lane != null) {
+                executionLanes.release(lane, entered);
+            }
+        }
+    }
 
-            int httpCode = response.getStatusLine().getStatusCode();
-            if (httpCode != 200) {
-                throw new HttpException("Http request exception , code : " + httpCode, httpCode);
+    /**
+     * Like {@code execute}, but with the request recorded in the outbox journal, if one is set,
+     * before it is posted. An {@link ApiException} is a definite rejection and closes the entry;
+     * transport failures leave it pending for {@link #replayOutbox()}. The request is retried only
+     * if every message carries a local id.
+     */
+    private List<SendResult> executeJournaled(Endpoint endpoint, Iterable<String> senders, List<String> localIds, FormWriter form) throws BaseException {
+        OutboxJournal journal = outboxJournal;
+        boolean retrySafe = hasLocalIds(localIds);
+        if (journal == null) {
+            return execute(endpoint, Decoders.SEND_RESULT, senders, retrySafe, form);
+        }
+        long entry;
+        try {
+            entry = journal.recordPending(endpoint, localIds, form.buffer(), 0, form.length());
+        } catch (RuntimeException e) {
+            form.release();
+            throw e;
+        }
+        List<SendResult> results;
+        try {
+            results = execute(endpoint, Decoders.SEND_RESULT, senders, retrySafe, form);
+        } catch (ApiException e) {
+            journal.recordAck(entry, new long[0]);
+            throw e;
+        }
+        journal.recordAck(entry, messageIds(results));
+        return results;
+    }
+
+    /**
+     * True if every message has a local id, so the API drops a repeated post instead of sending twice.
+     */
+    static boolean hasLocalIds(List<String> localIds) {
+        if (localIds == null || localIds.isEmpty()) {
+            return false;
+        }
+        for (String localId : localIds) {
+            if (localId == null || localId.isEmpty()) {
+                return false;
             }
+        }
+        return true;
+    }
+
+    /**
+     * With a journal set, gives every message without a local id a generated one, so that
+     * {@link #replayOutbox()} can ask the API about it instead of posting it blindly again.
+     */
+    private List<String> journalLocalIds(List<String> receptors, List<String> localIds) {
+        OutboxJournal journal = outboxJournal;
+        if (journal == null || receptors == null || hasLocalIds(localIds)) {
+            return localIds;
+        }
+        int count = localIds == null ? receptors.size() : localIds.size();
+        List<String> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String localId = localIds == null ? null : localIds.get(i);
+            generated.add(localId == null || localId.isEmpty() ? Long.toString(journal.nextLocalId()) : localId);
+        }
+        return generated;
+    }
 
-            String entity = EntityUtils.toString(response.getEntity());
-            JsonObject json = new JsonParser().parse(entity).getAsJsonObject();
+    private static long[] messageIds(List<SendResult> results) {
+        long[] ids = new long[results.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Long id = results.get(i).getMessageId();
+            ids[i] = id == null ? 0 : id;
+        }
+        return ids;
+    }
 
-            JsonObject returnJson = json.get("return").getAsJsonObject();
-            if (returnJson.get("status").getAsInt() != 200) {
-                throw new ApiException(returnJson.get("message").getAsString(), returnJson.get("status").getAsInt());
+    /**
+     * Settles the requests a previous run left pending in the outbox journal.
+     * <p>
+     * For each entry the API is asked, by local id, whether the messages arrived. Entries the API
+     * knows are closed with the message ids it reports; the others are posted again with their
+     * original body. Entries the API then rejects are closed as well.
+     *
+     * @return the results of the requests that were sent again
+     * @throws IllegalStateException if no journal is set
+     */
+    public List<SendResult> replayOutbox() throws BaseException {
+        OutboxJournal journal = outboxJournal;
+        if (journal == null) {
+            throw new IllegalStateException("no outbox journal is set");
+        }
+        List<SendResult> resent = new ArrayList<>();
+        for (PendingEntry entry : journal.pendingEntries()) {
+            List<Long> ids = numericLocalIds(entry.getLocalIds());
+            if (ids != null) {
+                List<Long> known = new ArrayList<>();
+                for (StatusLocalMessageIdResult status : statusLocalMessageId(ids)) {
+                    if (status.getStatus() != null && status.getStatus() != MessageStatus.Incorrect) {
+                        known.add((long) status.getMessageId());
+                    }
+                }
+                if (!known.isEmpty()) {
+                    long[] messageIds = new long[known.size()];
+                    for (int i = 0; i < messageIds.length; i++) {
+                        messageIds[i] = known.get(i);
+                    }
+                    journal.recordAck(entry.getSequence(), messageIds);
+                    continue;
+                }
+            }
+            byte[] body = entry.getBody();
+            List<SendResult> results;
+            try {
+                results = execute(entry.getEndpoint(), Decoders.SEND_RESULT, null, hasLocalIds(entry.getLocalIds()),
+                        FormWriter.acquire().raw(body, 0, body.length));
+            } catch (ApiException e) {
+                journal.recordAck(entry.getSequence(), new long[0]);
+                continue;
             }
-            return json.get("entries");
+            journal.recordAck(entry.getSequence(), messageIds(results));
+            resent.addAll(results);
+        }
+        return resent;
+    }
 
-        } catch (IOException e1) {
-            throw new HttpException("Http Request Exception", 0);
-        } catch (ApiException e2) {
-            throw e2;
+    /**
+     * Parses local ids for {@code statusLocalMessageId}, or returns null if there are none or any is not a number.
+     */
+    private static List<Long> numericLocalIds(List<String> localIds) {
+        if (localIds.isEmpty()) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(localIds.size());
+        for (String localId : localIds) {
+            if (localId == null) {
+                return null;
+            }
+            try {
+                ids.add(Long.parseLong(localId.trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the single entry of an endpoint that answers with one object.
+     */
+    static <T> T first(List<T> entries) {
+        if (entries.isEmpty()) {
+            throw new HttpException("Empty response entries", 200);
+        }
+        return entries.get(0);
+    }
+
+    /**
+     * Applies {@code call} to consecutive batches of at most {@link #getIdBatchSize()} ids,
+     * concurrently through the parallel executor, and concatenates the results in input order.
+     */
+    private <T> List<T> inBatches(List<Long> ids, final Function<List<Long>, List<T>> call) {
+        int batchSize = idBatchSize;
+        if (ids.size() <= batchSize) {
+            return call.apply(ids);
+        }
+        List<Callable<List<T>>> tasks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            final List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            tasks.add(() -> call.apply(batch));
         }
+        List<T> merged = new ArrayList<>(ids.size());
+        for (List<T> part : parallelExecutor.invokeAll(tasks)) {
+            merged.addAll(part);
+        }
+        return merged;
+    }
+
+    /**
+     * Applies {@code call} to chunks of at most {@link #getReceptorChunkSize()} receptors and their
+     * local ids, concurrently through the parallel executor. Failed chunks don't stop the others;
+     * they are collected into a {@link PartialSendException}.
+     */
+    private List<SendResult> inReceptorChunks(List<String> receptors, List<String> localIds,
+                                              final BiFunction<List<String>, List<String>, List<SendResult>> call) {
+        if (receptors == null || receptors.size() <= receptorChunkSize) {
+            return call.apply(receptors, localIds);
+        }
+        final ReceptorChunks chunks = new ReceptorChunks(receptors, localIds, receptorChunkSize);
+        final BaseException[] failures = new BaseException[chunks.count()];
+        List<Callable<List<SendResult>>> tasks = new ArrayList<>(chunks.count());
+        for (int i = 0; i < chunks.count(); i++) {
+            final int chunk = i;
+            tasks.add(() -> {
+                try {
+                    return call.apply(chunks.receptors(chunk), chunks.localIds(chunk));
+                } catch (BaseException e) {
+                    failures[chunk] = e;
+                    return null;
+                }
+            });
+        }
+        return chunks.merge(parallelExecutor.invokeAll(tasks), failures);
     }
 
     /*
        Send
     */
 
-    public List<SendResult> send(String sender, List<String> receptors, String message, MessageType type, long date, List<String> localIds) throws BaseException {
-
-        JsonArray entry = execute(getApiPath("sms/send"),
-                "sender", sender,
-                "receptor", StringUtils.join(",", receptors),
-                "message", message,
-                "type", type.getValue(),
-                "date", date,
-                "localid", localIds == null ? "" : StringUtils.join(",", localIds)
-        ).getAsJsonArray();
-
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < entry.size(); i++) {
-            JsonObject json = entry.get(i).getAsJsonObject();
-            SendResult result = new SendResult(json);
-            list.add(result);
-        }
-        return list;
+    public List<SendResult> send(final String sender, List<String> receptors, final String message, final MessageType type, final long date, List<String> localIds) throws BaseException {
+        localIds = journalLocalIds(receptors, localIds);
+        return inReceptorChunks(receptors, localIds, (chunk, chunkLocalIds) -> executeJournaled(Endpoint.SmsSend, Collections.singletonList(sender), chunkLocalIds, FormWriter.acquire()
+                .param("sender", sender)
+                .param("receptor", chunk)
+                .param("message", message)
+                .param("type", type.getValue())
+                .param("date", date)
+                .param("localid", chunkLocalIds)));
     }
 
     public SendResult send(String sender, String receptor, String message) throws BaseException {
@@ -121,6 +693,10 @@ public class KavenegarApi {
     }
 
     public SendResult send(String sender, String receptor, String message, MessageType type, long date) throws BaseException {
+        SendCoalescer coalescer = sendCoalescer;
+        if (coalescer != null && date == 0) {
+            return ParallelExecutor.await(coalescer.submit(sender, receptor, message, type, null));
+        }
         return send(sender, Arrays.asList(receptor), message, type, date).get(0);
     }
 
@@ -133,9 +709,13 @@ public class KavenegarApi {
     }
 
     public SendResult send(String sender, String receptor, String message, MessageType type, long date, String localId) throws BaseException {
+        SendCoalescer coalescer = sendCoalescer;
+        if (coalescer != null && date == 0) {
+            return ParallelExecutor.await(coalescer.submit(sender, receptor, message, type, localId));
+        }
         List<String> receptors = Arrays.asList(receptor);
         List<String> localIds = Arrays.asList(localId);
-        return send(sender, receptors, message, MessageType.MobileMemory, 0, localIds).get(0);
+        return send(sender, receptors, message, type, date, localIds).get(0);
     }
 
     public SendResult send(String sender, String receptor, String message, String localId) throws BaseException {
@@ -148,25 +728,74 @@ public class KavenegarApi {
     */
 
     public List<SendResult> sendArray(List<String> senders, List<String> receptors, List<String> messages, List<MessageType> types, long date, List<String> localIds) throws BaseException {
-        String path = getApiPath("sms/sendarray");
-        JsonArray jsonReceptors = new JsonArray();
-        JsonArray jsonSenders = new JsonArray();
-        JsonArray jsonMessages = new JsonArray();
-        JsonArray jsonTypes = new JsonArray();
-        for (int i = 0; i < messages.size(); i++) {
-            jsonReceptors.add(new JsonPrimitive(receptors.get(i)));
-            jsonSenders.add(new JsonPrimitive(senders.get(i)));
-            jsonMessages.add(new JsonPrimitive(messages.get(i)));
-            jsonTypes.add(new JsonPrimitive(types.get(i).getValue()));
-        }
-        JsonArray entry = execute(path, "sender", jsonSenders.toString(), "receptor", jsonReceptors.toString(), "message", jsonMessages.toString(), "date", date, "type", jsonTypes.toString(), "localids", localIds).getAsJsonArray();
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < entry.size(); i++) {
-            JsonObject json = entry.get(i).getAsJsonObject();
-            SendResult result = new SendResult(json);
-            list.add(result);
-        }
-        return list;
+        localIds = journalLocalIds(receptors, localIds);
+        return executeJournaled(Endpoint.SmsSendArray, senders, localIds, sendArrayForm(senders, receptors, messages, types, date, localIds));
+    }
+
+    /**
+     * Writes the {@code sendarray} body in one pass: each array goes into the buffer as
+     * form-encoded JSON, byte for byte as Gson would serialize it, with no intermediate strings.
+     */
+    static FormWriter sendArrayForm(List<String> senders, List<String> receptors, List<String> messages, List<MessageType> types, long date, List<String> localIds) {
+        int count = messages.size();
+        FormWriter form = FormWriter.acquire()
+                .jsonArrayParam("sender", senders, 0, count)
+                .jsonArrayParam("receptor", receptors, 0, count)
+                .jsonArrayParam("message", messages, 0, count)
+                .param("date", date);
+        form.beginParam("type").append("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                form.append(",");
+            }
+            form.append(types.get(i).getValue());
+        }
+        return form.append("]")
+                .listParam("localids", localIds);
+    }
+
+    /**
+     * Sends the rows of {@code batch} in requests of at most {@link #getReceptorChunkSize()} rows,
+     * through the {@link #setParallelExecutor parallel executor}; results come back in row order.
+     * If some chunks fail, a {@link PartialSendException} reports them along with the results of
+     * the chunks that were sent. The batch is not closed.
+     */
+    public List<SendResult> sendArray(final SendArrayBatch batch) throws BaseException {
+        List<String> receptors = batch.getReceptors();
+        List<String> localIds = journalLocalIds(receptors, batch.getLocalIds());
+        ReceptorChunks chunks = new ReceptorChunks(receptors, localIds, receptorChunkSize);
+        if (chunks.count() == 1) {
+            return sendArrayChunk(batch, 0, batch.size(), localIds);
+        }
+        final BaseException[] failures = new BaseException[chunks.count()];
+        List<Callable<List<SendResult>>> tasks = new ArrayList<>(chunks.count());
+        for (int i = 0; i < chunks.count(); i++) {
+            final int chunk = i;
+            final int from = chunks.from(i);
+            final int to = chunks.to(i);
+            final List<String> chunkLocalIds = chunks.localIds(i);
+            tasks.add(() -> {
+                try {
+                    return sendArrayChunk(batch, from, to, chunkLocalIds);
+                } catch (BaseException e) {
+                    failures[chunk] = e;
+                    return null;
+                }
+            });
+        }
+        return chunks.merge(parallelExecutor.invokeAll(tasks), failures);
+    }
+
+    private List<SendResult> sendArrayChunk(SendArrayBatch batch, int from, int to, List<String> localIds) throws BaseException {
+        FormWriter form = FormWriter.acquire();
+        try {
+            batch.writeTo(form, from, to);
+        } catch (RuntimeException e) {
+            form.release();
+            throw e;
+        }
+        form.listParam("localids", localIds);
+        return executeJournaled(Endpoint.SmsSendArray, batch.senders(from, to), localIds, form);
     }
 
     public List<SendResult> sendArray(List<String> senders, List<String> receptors, List<String> messages) throws BaseException {
@@ -198,11 +827,9 @@ public class KavenegarApi {
 
     public List<SendResult> sendArray(String sender, List<String> receptors, List<String> messages, String localId) throws BaseException {
         List<MessageType> types = new ArrayList<>();
-        for (int i = 0; i < types.size(); i++) {
-            types.add(MessageType.MobileMemory);
-        }
         List<String> senders = new ArrayList<>();
         for (int i = 0; i < receptors.size(); i++) {
+            types.add(MessageType.MobileMemory);
             senders.add(sender);
         }
         return sendArray(senders, receptors, messages, types, 0, localId);
@@ -219,6 +846,83 @@ public class KavenegarApi {
         return sendArray(senders, receptors, messages, types, date, localIds);
     }
 
+    /**
+     * Sends {@code template}, personalised for each recipient, in {@code sendarray} requests of at
+     * most {@link #getReceptorChunkSize()} messages. Each message is rendered straight into its
+     * request body, so no per-recipient string is built and only one chunk's receptors and local
+     * ids are held at a time. Chunks are sent one after another and each chunk's results are passed
+     * to {@code results} as it completes; if a chunk fails the exception is thrown and the
+     * remaining recipients are not sent.
+     *
+     * @return number of messages sent
+     */
+    public <T> int sendArray(String sender, MessageTemplate template, Iterable<? extends T> recipients, RecipientBinder<? super T> binder,
+                             MessageType type, long date, Consumer<List<SendResult>> results) throws BaseException {
+        int chunkSize = receptorChunkSize;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        int sent = 0;
+        Iterator<? extends T> iterator = recipients.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                List<SendResult> chunkResults = sendTemplateChunk(sender, template, chunk, binder, type, date);
+                sent += chunk.size();
+                chunk.clear();
+                if (results != null) {
+                    results.accept(chunkResults);
+                }
+            }
+        }
+        return sent;
+    }
+
+    public <T> int sendArray(String sender, MessageTemplate template, Iterable<? extends T> recipients, RecipientBinder<? super T> binder,
+                             Consumer<List<SendResult>> results) throws BaseException {
+        return sendArray(sender, template, recipients, binder, MessageType.MobileMemory, 0, results);
+    }
+
+    /**
+     * Writes the same parameters as {@link #sendArrayForm}, byte for byte.
+     */
+    private <T> List<SendResult> sendTemplateChunk(String sender, MessageTemplate template, List<T> chunk, RecipientBinder<? super T> binder,
+                                                   MessageType type, long date) throws BaseException {
+        List<String> receptors = new ArrayList<>(chunk.size());
+        List<String> localIds = new ArrayList<>(chunk.size());
+        boolean anyLocalId = false;
+        for (T recipient : chunk) {
+            receptors.add(binder.receptor(recipient));
+            String localId = binder.localId(recipient);
+            anyLocalId |= localId != null;
+            localIds.add(localId);
+        }
+        localIds = journalLocalIds(receptors, anyLocalId ? localIds : null);
+
+        FormWriter form = FormWriter.acquire();
+        form.beginParam("sender").append("[");
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                form.append(",");
+            }
+            form.appendJsonString(sender);
+        }
+        form.append("]").jsonArrayParam("receptor", receptors, 0, receptors.size());
+        form.beginParam("message").append("[");
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                form.append(",");
+            }
+            template.render(form, chunk.get(i), binder);
+        }
+        form.append("]").param("date", date).beginParam("type").append("[");
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                form.append(",");
+            }
+            form.append(type.getValue());
+        }
+        form.append("]").listParam("localids", localIds);
+        return executeJournaled(Endpoint.SmsSendArray, Collections.singletonList(sender), localIds, form);
+    }
 
 
     /*
@@ -226,16 +930,9 @@ public class KavenegarApi {
     */
 
     public List<StatusResult> status(List<Long> messageId) throws BaseException {
-        String path = getApiPath("sms/status");
-        String id = StringUtils.join(",", messageId);
-        JsonArray array = execute(path, "messageid", id).getAsJsonArray();
-        List<StatusResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            StatusResult result = new StatusResult(json);
-            list.add(result);
-        }
-        return list;
+        final Endpoint endpoint = Endpoint.SmsStatus;
+        return inBatches(messageId, batch -> execute(endpoint, Decoders.STATUS_RESULT, FormWriter.acquire()
+                .param("messageid", batch)));
     }
 
     public StatusResult status(Long messageId) throws BaseException {
@@ -248,15 +945,9 @@ public class KavenegarApi {
     */
 
     public List<StatusLocalMessageIdResult> statusLocalMessageId(List<Long> localIds) throws BaseException {
-        String path = getApiPath("sms/statuslocalmessageid");
-        String id = StringUtils.join(",", localIds);
-        JsonArray array = execute(path, "localid", id).getAsJsonArray();
-        List<StatusLocalMessageIdResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            list.add(new StatusLocalMessageIdResult(json));
-        }
-        return list;
+        final Endpoint endpoint = Endpoint.SmsStatusLocalMessageId;
+        return inBatches(localIds, batch -> execute(endpoint, Decoders.STATUS_LOCAL_MESSAGE_ID_RESULT, FormWriter.acquire()
+                .param("localid", batch)));
     }
 
     public StatusLocalMessageIdResult statusLocalMessageId(Long localId) throws BaseException {
@@ -267,16 +958,9 @@ public class KavenegarApi {
       Select
     */
     public List<SendResult> select(List<Long> ids) throws BaseException {
-        String path = getApiPath("sms/select");
-        String massageids = StringUtils.join(",", ids);
-        JsonArray array = execute(path, "messageid", massageids).getAsJsonArray();
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            SendResult result = new SendResult(json);
-            list.add(result);
-        }
-        return list;
+        final Endpoint endpoint = Endpoint.SmsSelect;
+        return inBatches(ids, batch -> execute(endpoint, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("messageid", batch)));
     }
 
     public SendResult select(long messageId) throws BaseException {
@@ -290,14 +974,11 @@ public class KavenegarApi {
     */
 
     public List<SendResult> selectOutbox(long startDate, long endDate, String sender) throws BaseException {
-        String path = getApiPath("sms/selectoutbox");
-        JsonArray array = execute(path, "startdate", startDate, "enddate", endDate, "sender", sender).getAsJsonArray();
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            list.add(new SendResult(json));
-        }
-        return list;
+        Endpoint endpoint = Endpoint.SmsSelectOutbox;
+        return execute(endpoint, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("startdate", startDate)
+                .param("enddate", endDate)
+                .param("sender", sender));
     }
 
     public List<SendResult> selectOutbox(long startDate) throws BaseException {
@@ -315,15 +996,10 @@ public class KavenegarApi {
     */
 
     public List<SendResult> latestOutbox(Long pageSize, String sender) throws BaseException {
-        String path = getApiPath("sms/latestoutbox");
-        JsonArray array = execute(path, "pagesize", pageSize, "sender", sender).getAsJsonArray();
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            SendResult result = new SendResult(json);
-            list.add(result);
-        }
-        return list;
+        Endpoint endpoint = Endpoint.SmsLatestOutbox;
+        return execute(endpoint, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("pagesize", pageSize)
+                .param("sender", sender));
     }
 
     public List<SendResult> latestOutbox() throws BaseException {
@@ -341,9 +1017,11 @@ public class KavenegarApi {
     */
 
     public CountOutboxResult countOutbox(long startDate, long endDate, int status) throws BaseException {
-        String path = getApiPath("sms/countoutbox");
-        JsonObject entry = execute(path, "startdate", startDate, "enddate", endDate, "status", status).getAsJsonArray().get(0).getAsJsonObject();
-        return new CountOutboxResult(entry);
+        Endpoint endpoint = Endpoint.SmsCountOutbox;
+        return first(execute(endpoint, Decoders.COUNT_OUTBOX_RESULT, FormWriter.acquire()
+                .param("startdate", startDate)
+                .param("enddate", endDate)
+                .param("status", status)));
     }
 
     public CountOutboxResult countOutbox(long startDate) throws BaseException {
@@ -359,15 +1037,9 @@ public class KavenegarApi {
     */
 
     public List<StatusResult> cancel(List<Long> messageIds) throws BaseException {
-        String path = getApiPath("sms/cancel");
-        String id = StringUtils.join(",", messageIds);
-        JsonArray array = execute(path, "messageid", id).getAsJsonArray();
-        List<StatusResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            StatusResult result = new StatusResult(json);
-        }
-        return list;
+        final Endpoint endpoint = Endpoint.SmsCancel;
+        return inBatches(messageIds, batch -> execute(endpoint, Decoders.STATUS_RESULT, FormWriter.acquire()
+                .param("messageid", batch)));
     }
 
     public StatusResult cancel(Long messageId) throws BaseException {
@@ -378,18 +1050,10 @@ public class KavenegarApi {
       Receive
     */
     public List<ReceiveResult> receive(String lineNumber, int isRead) throws BaseException {
-        String path = getApiPath("sms/receive");
-        JsonElement res = execute(path, "linenumber", lineNumber, "isread", isRead);
-        if (res.isJsonNull()) {
-            return new ArrayList<>();
-        }
-        JsonArray array = res.getAsJsonArray();
-        List<ReceiveResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject json = array.get(i).getAsJsonObject();
-            list.add(new ReceiveResult(json));
-        }
-        return list;
+        Endpoint endpoint = Endpoint.SmsReceive;
+        return execute(endpoint, Decoders.RECEIVE_RESULT, FormWriter.acquire()
+                .param("linenumber", lineNumber)
+                .param("isread", isRead));
     }
 
     /*
@@ -398,9 +1062,12 @@ public class KavenegarApi {
 
 
     public CountInboxResult countInbox(long startDate, long endDate, String lineNumber, int isRead) throws BaseException {
-        String path = getApiPath("sms/countinbox");
-        JsonObject entry = execute(path, "startdate", startDate, "enddate", endDate, "linenumber", lineNumber, "isread", isRead).getAsJsonArray().get(0).getAsJsonObject();
-        return new CountInboxResult(entry);
+        Endpoint endpoint = Endpoint.SmsCountInbox;
+        return first(execute(endpoint, Decoders.COUNT_INBOX_RESULT, FormWriter.acquire()
+                .param("startdate", startDate)
+                .param("enddate", endDate)
+                .param("linenumber", lineNumber)
+                .param("isread", isRead)));
     }
 
     public CountInboxResult countInbox(long startDate, String lineNumber) throws BaseException {
@@ -418,15 +1085,16 @@ public class KavenegarApi {
 
 
     public List<SendResult> sendByPostalCode(long postalCode, String sender, String message, long mciStartIndex, long mciCount, long mtnStartIndex, long mtnCount, long date) throws BaseException {
-        String path = getApiPath("sms/sendpostalcode");
-        JsonArray entry = execute(path, "postalcode", postalCode, "sender", sender, "message", message, "mcistartIndex", mciStartIndex, "mcicount", mciCount, "mtnstartindex", mtnStartIndex, "mtncount", mtnCount, "date", date).getAsJsonArray();
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < entry.size(); i++) {
-            JsonObject json = entry.get(i).getAsJsonObject();
-            SendResult result = new SendResult(json);
-            list.add(result);
-        }
-        return list;
+        Endpoint endpoint = Endpoint.SmsSendPostalCode;
+        return execute(endpoint, Decoders.SEND_RESULT, Collections.singletonList(sender), false, FormWriter.acquire()
+                .param("postalcode", postalCode)
+                .param("sender", sender)
+                .param("message", message)
+                .param("mcistartIndex", mciStartIndex)
+                .param("mcicount", mciCount)
+                .param("mtnstartindex", mtnStartIndex)
+                .param("mtncount", mtnCount)
+                .param("date", date));
     }
 
     public List<SendResult> sendByPostalCode(long postalCode, String sender, String message, long mciStartIndex, long mciCount, long mtnStartIndex, long mtnCount) throws BaseException {
@@ -438,14 +1106,9 @@ public class KavenegarApi {
     */
 
     public List<CountPostalCodeResult> countPostalCode(Long postalCode) throws BaseException {
-        String path = getApiPath("sms/countpostalcode");
-        JsonArray array = execute(path, "postalcode", postalCode).getAsJsonArray();
-        List<CountPostalCodeResult> list = new ArrayList<>();
-        for (int i = 0; i < array.size(); i++) {
-            JsonObject entry = array.get(i).getAsJsonObject();
-            list.add(new CountPostalCodeResult(entry));
-        }
-        return list;
+        Endpoint endpoint = Endpoint.SmsCountPostalCode;
+        return execute(endpoint, Decoders.COUNT_POSTAL_CODE_RESULT, FormWriter.acquire()
+                .param("postalcode", postalCode));
     }
 
 
@@ -453,9 +1116,8 @@ public class KavenegarApi {
       AccountInfo
     */
     public AccountInfoResult accountInfo() throws BaseException {
-        String path = getApiPath("account/info");
-        JsonObject json = execute(path).getAsJsonObject();
-        return new AccountInfoResult(json);
+        Endpoint endpoint = Endpoint.AccountInfo;
+        return first(execute(endpoint, Decoders.ACCOUNT_INFO_RESULT, FormWriter.acquire()));
     }
 
 
@@ -463,60 +1125,104 @@ public class KavenegarApi {
       AccountConfig
     */
     public AccountConfigResult accountConfig(String apiLogs, String dailyReport, String debugMode, String defaultSender, int minCreditAlarm, String resendFailed) throws BaseException {
-        String path = getApiPath("account/config");
-        JsonObject json = execute(path, "apilogs", dailyReport, "dailyreport", debugMode, "debugmode", debugMode, "defaultsender", defaultSender, "mincreditalarm", minCreditAlarm, "mincreditalarm", resendFailed).getAsJsonObject();
-        return new AccountConfigResult(json);
+        Endpoint endpoint = Endpoint.AccountConfig;
+        return first(execute(endpoint, Decoders.ACCOUNT_CONFIG_RESULT, FormWriter.acquire()
+                .param("apilogs", apiLogs)
+                .param("dailyreport", dailyReport)
+                .param("debugmode", debugMode)
+                .param("defaultsender", defaultSender)
+                .param("mincreditalarm", minCreditAlarm)
+                .param("resendfailed", resendFailed)));
     }
 
     /*
        VerifyLookup
      */
 
+    /**
+     * Sends the OTP of {@code template}; in {@link #setOtpMode(OtpConfig) OTP mode} through the
+     * low-latency path, with the template compiled once and cached.
+     */
     public SendResult verifyLookup(String receptor, String token, String token2, String token3, String template) throws BaseException {
-        String path = getApiPath("verify/lookup");
-        JsonArray array = execute(path, "receptor", receptor, "token", token, "token2", token2, "token3", token3, "template", template).getAsJsonArray();
-        JsonObject json = array.get(0).getAsJsonObject();
-        return new SendResult(json);
+        OtpSender otp = otpSender;
+        if (otp != null && receptor != null && token != null && template != null) {
+            return verifyLookup(otp.template(template), receptor, token, token2, token3);
+        }
+        Endpoint endpoint = Endpoint.VerifyLookup;
+        return first(execute(endpoint, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("receptor", receptor)
+                .param("token", token)
+                .param("token2", token2)
+                .param("token3", token3)
+                .param("template", template)));
     }
     
      public SendResult verifyLookup(String receptor, String token, String token2, String token3, String template,List<PairValue> params) throws BaseException {
-        String path = getApiPath("verify/lookup");
-        String token10=null;
-        String token20=null;     
+        Endpoint endpoint = Endpoint.VerifyLookup;
+        String token10 = lookupToken(params, "token10");
+        String token20 = lookupToken(params, "token20");
+        return first(execute(endpoint, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("receptor", receptor)
+                .param("token", token)
+                .param("token2", token2)
+                .param("token3", token3)
+                .param("template", template)
+                .param("token10", token10)
+                .param("token20", token20)));
+    }
+
+    static String lookupToken(List<PairValue> params, String name) {
+        String value = null;
         for (PairValue Key : params) {
-            if (null != Key.getKey()) switch (Key.getKey()) {
-                case "token10":
-                    token10 = Key.getValue();
-                    break;
-                case "token20":
-                    token20 = Key.getValue();
-                    break;
+            if (Key.keyEquals(name)) {
+                value = Key.getValue();
             }
         }
-        JsonArray array = execute(path, "receptor", receptor, "token", token, "token2", token2, "token3", token3, "template", template,"token10",token10,"token20",token20).getAsJsonArray();
-        JsonObject json = array.get(0).getAsJsonObject();
-        return new SendResult(json);
+        return value;
     }
 
     public SendResult verifyLookup(String receptor, String token, String template) throws BaseException {
         return verifyLookup(receptor, token, "", "", template);
     }
 
-    public List<SendResult> CallMakeTTS(String message,List<String> receptors,Long date, List<String> localIds) throws BaseException {
-        JsonArray entry = execute(getApiPath("call/maketts"),
-                "receptor", StringUtils.join(",", receptors),
-                "message", message,                
-                "date", date,
-                "localid", localIds == null ? "" : StringUtils.join(",", localIds)
-        ).getAsJsonArray();
+    public SendResult verifyLookup(OtpTemplate template, String receptor, String token) throws BaseException {
+        return verifyLookup(template, receptor, token, "", "");
+    }
 
-        List<SendResult> list = new ArrayList<>();
-        for (int i = 0; i < entry.size(); i++) {
-            JsonObject json = entry.get(i).getAsJsonObject();
-            SendResult result = new SendResult(json);
-            list.add(result);
+    /**
+     * Sends the OTP of a precompiled {@code template}, writing only the receptor and tokens into
+     * the request. In {@link #setOtpMode(OtpConfig) OTP mode} the call has a deadline and may be
+     * hedged; otherwise it is posted like the other {@code verifyLookup} methods.
+     *
+     * @param token2 second token, or {@code null} to leave it out
+     * @param token3 third token, or {@code null} to leave it out
+     */
+    public SendResult verifyLookup(OtpTemplate template, String receptor, String token, String token2, String token3) throws BaseException {
+        final Endpoint endpoint = Endpoint.VerifyLookup;
+        OtpSender otp = otpSender;
+        FormWriter form = FormWriter.acquire();
+        try {
+            template.writeTo(form, receptor, token, token2, token3);
+        } catch (RuntimeException e) {
+            form.release();
+            throw e;
         }
-        return list;
+        if (otp == null) {
+            return first(execute(endpoint, Decoders.SEND_RESULT, form));
+        }
+        // attempts may outlive the call when the deadline passes, so they get their own copy
+        final byte[] body = Arrays.copyOf(form.buffer(), form.length());
+        form.release();
+        final Transport via = otp.getTransport();
+        return first(otp.call(() -> post(endpoint, Decoders.SEND_RESULT, null, body, body.length, via)));
+    }
+
+    public List<SendResult> CallMakeTTS(final String message, List<String> receptors, final Long date, List<String> localIds) throws BaseException {
+        return inReceptorChunks(receptors, localIds, (chunk, chunkLocalIds) -> execute(Endpoint.CallMakeTts, Decoders.SEND_RESULT, null, hasLocalIds(chunkLocalIds), FormWriter.acquire()
+                .param("receptor", chunk)
+                .param("message", message)
+                .param("date", date)
+                .param("localid", chunkLocalIds)));
     }
     
     public SendResult CallMakeTTS(String message,String receptor) throws BaseException {
@@ -0,0 +1,492 @@
+package com.kavenegar.sdk;
+
+import com.kavenegar.sdk.codec.Decoders;
+import com.kavenegar.sdk.codec.EntryDecoder;
+import com.kavenegar.sdk.codec.FormWriter;
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.excepctions.PartialSendException;
+import com.kavenegar.sdk.models.*;
+import com.kavenegar.sdk.transport.AsyncTransport;
+import com.kavenegar.sdk.transport.JdkHttpTransport;
+import com.kavenegar.sdk.transport.TransportResponse;
+import com.kavenegar.sdk.utils.PairValue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+/**
+ * Non-blocking counterpart of {@link KavenegarApi}.
+ * <p>
+ * Every method returns immediately with a {@link CompletableFuture}; the request runs on the
+ * transport's non-blocking I/O, so a handful of threads can keep thousands of calls in flight.
+ * Failures complete the future exceptionally with the same {@link HttpException} or
+ * {@link com.kavenegar.sdk.excepctions.ApiException} the blocking API would throw.
+ * Continuations attached without an explicit executor run on the transport's threads and
+ * should not block.
+ */
+public class KavenegarAsyncApi implements AutoCloseable {
+
+    private final EndpointRegistry endpoints;
+    private final AsyncTransport transport;
+    private volatile int receptorChunkSize = KavenegarApi.DEFAULT_RECEPTOR_CHUNK_SIZE;
+
+    public KavenegarAsyncApi(String apiKey) {
+        this(apiKey, new JdkHttpTransport());
+    }
+
+    /**
+     * Creates a client that sends every request through {@code transport}.
+     * The client takes ownership of the transport and closes it in {@link #close()}.
+     */
+    public KavenegarAsyncApi(String apiKey, AsyncTransport transport) {
+        this(new EndpointRegistry(apiKey), transport);
+    }
+
+    /**
+     * Creates a client whose requests go to the URIs of {@code endpoints}.
+     */
+    public KavenegarAsyncApi(EndpointRegistry endpoints, AsyncTransport transport) {
+        this.endpoints = endpoints;
+        this.transport = transport;
+    }
+
+    public EndpointRegistry getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Maximum number of receptors sent in one {@code send} or {@code CallMakeTTS} request.
+     * Longer lists are split and all chunks are sent at once; see
+     * {@link KavenegarApi#setReceptorChunkSize(int)}.
+     */
+    public void setReceptorChunkSize(int receptorChunkSize) {
+        if (receptorChunkSize < 1) {
+            throw new IllegalArgumentException("receptorChunkSize must be positive: " + receptorChunkSize);
+        }
+        this.receptorChunkSize = receptorChunkSize;
+    }
+
+    public int getReceptorChunkSize() {
+        return receptorChunkSize;
+    }
+
+    @Override
+    public void close() {
+        try {
+            transport.close();
+        } catch (IOException e) {
+            throw new HttpException("Failed to close http transport", 0, e);
+        }
+    }
+
+    /**
+     * Posts the body held by {@code form}; the writer goes back to its pool when the exchange completes.
+     */
+    private <T> CompletableFuture<List<T>> execute(Endpoint endpoint, EntryDecoder<T> decoder, FormWriter form) {
+        CompletableFuture<TransportResponse> exchange;
+        try {
+            exchange = transport.postAsync(endpoints.uri(endpoint), form.buffer(), 0, form.length());
+        } catch (RuntimeException e) {
+            form.release();
+            throw e;
+        }
+        return exchange
+                .whenComplete((response, error) -> form.release())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        throw new HttpException("Http Request Exception", 0,
+                                error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    }
+                    try (TransportResponse r = response) {
+                        return KavenegarApi.readEntries(r, decoder);
+                    } catch (IOException e) {
+                        throw new HttpException("Http Request Exception", 0, e);
+                    }
+                });
+    }
+
+    /**
+     * Sends chunks of at most {@link #getReceptorChunkSize()} receptors concurrently and merges the
+     * results in receptor order, failing with a {@link PartialSendException} if any chunk failed.
+     */
+    private CompletableFuture<List<SendResult>> inReceptorChunks(List<String> receptors, List<String> localIds,
+                                                                 BiFunction<List<String>, List<String>, CompletableFuture<List<SendResult>>> call) {
+        if (receptors == null || receptors.size() <= receptorChunkSize) {
+            return call.apply(receptors, localIds);
+        }
+        final ReceptorChunks chunks = new ReceptorChunks(receptors, localIds, receptorChunkSize);
+        final BaseException[] failures = new BaseException[chunks.count()];
+        final List<CompletableFuture<List<SendResult>>> parts = new ArrayList<>(chunks.count());
+        for (int i = 0; i < chunks.count(); i++) {
+            final int chunk = i;
+            parts.add(call.apply(chunks.receptors(chunk), chunks.localIds(chunk)).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (!(cause instanceof BaseException)) {
+                    throw new CompletionException(cause);
+                }
+                failures[chunk] = (BaseException) cause;
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<List<SendResult>> results = new ArrayList<>(parts.size());
+            for (CompletableFuture<List<SendResult>> part : parts) {
+                results.add(part.join());
+            }
+            return chunks.merge(results, failures);
+        });
+    }
+
+    private static <T> CompletableFuture<T> first(CompletableFuture<List<T>> future) {
+        return future.thenApply(KavenegarApi::first);
+    }
+
+    /*
+       Send
+    */
+
+    public CompletableFuture<List<SendResult>> send(final String sender, List<String> receptors, final String message, final MessageType type, final long date, List<String> localIds) {
+        return inReceptorChunks(receptors, localIds, (chunk, chunkLocalIds) -> execute(Endpoint.SmsSend, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("sender", sender)
+                .param("receptor", chunk)
+                .param("message", message)
+                .param("type", type.getValue())
+                .param("date", date)
+                .param("localid", chunkLocalIds)));
+    }
+
+    public CompletableFuture<SendResult> send(String sender, String receptor, String message) {
+        return send(sender, receptor, message, MessageType.MobileMemory, 0);
+    }
+
+    public CompletableFuture<SendResult> send(String sender, String receptor, String message, MessageType type, long date) {
+        return first(send(sender, Arrays.asList(receptor), message, type, date));
+    }
+
+    public CompletableFuture<List<SendResult>> send(String sender, List<String> receptors, String message) {
+        return send(sender, receptors, message, MessageType.MobileMemory, 0);
+    }
+
+    public CompletableFuture<List<SendResult>> send(String sender, List<String> receptors, String message, MessageType type, long date) {
+        return send(sender, receptors, message, type, date, null);
+    }
+
+    public CompletableFuture<SendResult> send(String sender, String receptor, String message, MessageType type, long date, String localId) {
+        return first(send(sender, Arrays.asList(receptor), message, type, date, Arrays.asList(localId)));
+    }
+
+    public CompletableFuture<SendResult> send(String sender, String receptor, String message, String localId) {
+        return send(sender, receptor, message, MessageType.MobileMemory, 0, localId);
+    }
+
+    /*
+      SendArray
+    */
+
+    public CompletableFuture<List<SendResult>> sendArray(List<String> senders, List<String> receptors, List<String> messages, List<MessageType> types, long date, List<String> localIds) {
+        return execute(Endpoint.SmsSendArray, Decoders.SEND_RESULT, KavenegarApi.sendArrayForm(senders, receptors, messages, types, date, localIds));
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(List<String> senders, List<String> receptors, List<String> messages) {
+        return sendArray(senders, receptors, messages, (String) null);
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(List<String> senders, List<String> receptors, List<String> messages, String localId) {
+        List<MessageType> types = new ArrayList<>();
+        for (int i = 0; i < receptors.size(); i++) {
+            types.add(MessageType.MobileMemory);
+        }
+        return sendArray(senders, receptors, messages, types, 0, localId);
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(List<String> senders, List<String> receptors, List<String> messages, List<MessageType> types, long date, String localId) {
+        List<String> localIds = new ArrayList<>();
+        for (int i = 0; i < receptors.size(); i++) {
+            localIds.add(localId);
+        }
+        return sendArray(senders, receptors, messages, types, date, localIds);
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(String sender, List<String> receptors, List<String> messages) {
+        return sendArray(sender, receptors, messages, (String) null);
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(String sender, List<String> receptors, List<String> messages, String localId) {
+        List<MessageType> types = new ArrayList<>();
+        for (int i = 0; i < receptors.size(); i++) {
+            types.add(MessageType.MobileMemory);
+        }
+        return sendArray(sender, receptors, messages, types, 0, localId);
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(String sender, List<String> receptors, List<String> messages, List<MessageType> types, long date, String localId) {
+        List<String> senders = new ArrayList<>();
+        for (int i = 0; i < receptors.size(); i++) {
+            senders.add(sender);
+        }
+        return sendArray(senders, receptors, messages, types, date, localId);
+    }
+
+    /*
+      Status
+    */
+
+    public CompletableFuture<List<StatusResult>> status(List<Long> messageId) {
+        return execute(Endpoint.SmsStatus, Decoders.STATUS_RESULT, FormWriter.acquire()
+                .param("messageid", messageId));
+    }
+
+    public CompletableFuture<StatusResult> status(Long messageId) {
+        return first(status(Arrays.asList(messageId)));
+    }
+
+    /*
+      StatusLocalMessageId
+    */
+
+    public CompletableFuture<List<StatusLocalMessageIdResult>> statusLocalMessageId(List<Long> localIds) {
+        return execute(Endpoint.SmsStatusLocalMessageId, Decoders.STATUS_LOCAL_MESSAGE_ID_RESULT, FormWriter.acquire()
+                .param("localid", localIds));
+    }
+
+    public CompletableFuture<StatusLocalMessageIdResult> statusLocalMessageId(Long localId) {
+        return first(statusLocalMessageId(Arrays.asList(localId)));
+    }
+
+    /*
+      Select
+    */
+
+    public CompletableFuture<List<SendResult>> select(List<Long> ids) {
+        return execute(Endpoint.SmsSelect, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("messageid", ids));
+    }
+
+    public CompletableFuture<SendResult> select(long messageId) {
+        return first(select(Arrays.asList(messageId)));
+    }
+
+    /*
+      SelectOutbox
+    */
+
+    public CompletableFuture<List<SendResult>> selectOutbox(long startDate, long endDate, String sender) {
+        return execute(Endpoint.SmsSelectOutbox, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("startdate", startDate)
+                .param("enddate", endDate)
+                .param("sender", sender));
+    }
+
+    public CompletableFuture<List<SendResult>> selectOutbox(long startDate) {
+        return selectOutbox(startDate, 0, "");
+    }
+
+    public CompletableFuture<List<SendResult>> selectOutbox(long startDate, long endDate) {
+        return selectOutbox(startDate, endDate, "");
+    }
+
+    /*
+      LatestOutbox
+    */
+
+    public CompletableFuture<List<SendResult>> latestOutbox(Long pageSize, String sender) {
+        return execute(Endpoint.SmsLatestOutbox, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("pagesize", pageSize)
+                .param("sender", sender));
+    }
+
+    public CompletableFuture<List<SendResult>> latestOutbox() {
+        return latestOutbox(3000L, "");
+    }
+
+    public CompletableFuture<List<SendResult>> latestOutbox(Long pageSize) {
+        return latestOutbox(pageSize, "");
+    }
+
+    /*
+      CountOutbox
+    */
+
+    public CompletableFuture<CountOutboxResult> countOutbox(long startDate, long endDate, int status) {
+        return first(execute(Endpoint.SmsCountOutbox, Decoders.COUNT_OUTBOX_RESULT, FormWriter.acquire()
+                .param("startdate", startDate)
+                .param("enddate", endDate)
+                .param("status", status)));
+    }
+
+    public CompletableFuture<CountOutboxResult> countOutbox(long startDate) {
+        return countOutbox(startDate, 0, 0);
+    }
+
+    public CompletableFuture<CountOutboxResult> countOutbox(long startDate, long endDate) {
+        return countOutbox(startDate, endDate, 0);
+    }
+
+    /*
+      Cancel
+    */
+
+    public CompletableFuture<List<StatusResult>> cancel(List<Long> messageIds) {
+        return execute(Endpoint.SmsCancel, Decoders.STATUS_RESULT, FormWriter.acquire()
+                .param("messageid", messageIds));
+    }
+
+    public CompletableFuture<StatusResult> cancel(Long messageId) {
+        return first(cancel(Arrays.asList(messageId)));
+    }
+
+    /*
+      Receive
+    */
+
+    public CompletableFuture<List<ReceiveResult>> receive(String lineNumber, int isRead) {
+        return execute(Endpoint.SmsReceive, Decoders.RECEIVE_RESULT, FormWriter.acquire()
+                .param("linenumber", lineNumber)
+                .param("isread", isRead));
+    }
+
+    /*
+      CountInbox
+    */
+
+    public CompletableFuture<CountInboxResult> countInbox(long startDate, long endDate, String lineNumber, int isRead) {
+        return first(execute(Endpoint.SmsCountInbox, Decoders.COUNT_INBOX_RESULT, FormWriter.acquire()
+                .param("startdate", startDate)
+                .param("enddate", endDate)
+                .param("linenumber", lineNumber)
+                .param("isread", isRead)));
+    }
+
+    public CompletableFuture<CountInboxResult> countInbox(long startDate, String lineNumber) {
+        return countInbox(startDate, 0, lineNumber, 0);
+    }
+
+    public CompletableFuture<CountInboxResult> countInbox(long startDate, long endDate, String lineNumber) {
+        return countInbox(startDate, endDate, lineNumber, 0);
+    }
+
+    /*
+      SendByPostalCode
+    */
+
+    public CompletableFuture<List<SendResult>> sendByPostalCode(long postalCode, String sender, String message, long mciStartIndex, long mciCount, long mtnStartIndex, long mtnCount, long date) {
+        return execute(Endpoint.SmsSendPostalCode, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("postalcode", postalCode)
+                .param("sender", sender)
+                .param("message", message)
+                .param("mcistartIndex", mciStartIndex)
+                .param("mcicount", mciCount)
+                .param("mtnstartindex", mtnStartIndex)
+                .param("mtncount", mtnCount)
+                .param("date", date));
+    }
+
+    public CompletableFuture<List<SendResult>> sendByPostalCode(long postalCode, String sender, String message, long mciStartIndex, long mciCount, long mtnStartIndex, long mtnCount) {
+        return sendByPostalCode(postalCode, sender, message, mciStartIndex, mciCount, mtnStartIndex, mtnCount, 0);
+    }
+
+    /*
+      CountPostalCode
+    */
+
+    public CompletableFuture<List<CountPostalCodeResult>> countPostalCode(Long postalCode) {
+        return execute(Endpoint.SmsCountPostalCode, Decoders.COUNT_POSTAL_CODE_RESULT, FormWriter.acquire()
+                .param("postalcode", postalCode));
+    }
+
+    /*
+      AccountInfo
+    */
+
+    public CompletableFuture<AccountInfoResult> accountInfo() {
+        return first(execute(Endpoint.AccountInfo, Decoders.ACCOUNT_INFO_RESULT, FormWriter.acquire()));
+    }
+
+    /*
+      AccountConfig
+    */
+
+    public CompletableFuture<AccountConfigResult> accountConfig(String apiLogs, String dailyReport, String debugMode, String defaultSender, int minCreditAlarm, String resendFailed) {
+        return first(execute(Endpoint.AccountConfig, Decoders.ACCOUNT_CONFIG_RESULT, FormWriter.acquire()
+                .param("apilogs", apiLogs)
+                .param("dailyreport", dailyReport)
+                .param("debugmode", debugMode)
+                .param("defaultsender", defaultSender)
+                .param("mincreditalarm", minCreditAlarm)
+                .param("resendfailed", resendFailed)));
+    }
+
+    /*
+       VerifyLookup
+     */
+
+    public CompletableFuture<SendResult> verifyLookup(String receptor, String token, String token2, String token3, String template) {
+        return first(execute(Endpoint.VerifyLookup, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("receptor", receptor)
+                .param("token", token)
+                .param("token2", token2)
+                .param("token3", token3)
+                .param("template", template)));
+    }
+
+    public CompletableFuture<SendResult> verifyLookup(String receptor, String token, String token2, String token3, String template, List<PairValue> params) {
+        String token10 = KavenegarApi.lookupToken(params, "token10");
+        String token20 = KavenegarApi.lookupToken(params, "token20");
+        return first(execute(Endpoint.VerifyLookup, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("receptor", receptor)
+                .param("token", token)
+                .param("token2", token2)
+                .param("token3", token3)
+                .param("template", template)
+                .param("token10", token10)
+                .param("token20", token20)));
+    }
+
+    public CompletableFuture<SendResult> verifyLookup(String receptor, String token, String template) {
+        return verifyLookup(receptor, token, "", "", template);
+    }
+
+    /*
+       CallMakeTTS
+     */
+
+    public CompletableFuture<List<SendResult>> CallMakeTTS(final String message, List<String> receptors, final Long date, List<String> localIds) {
+        return inReceptorChunks(receptors, localIds, (chunk, chunkLocalIds) -> execute(Endpoint.CallMakeTts, Decoders.SEND_RESULT, FormWriter.acquire()
+                .param("receptor", chunk)
+                .param("message", message)
+                .param("date", date)
+                .param("localid", chunkLocalIds)));
+    }
+
+    public CompletableFuture<SendResult> CallMakeTTS(String message, String receptor) {
+        return first(CallMakeTTS(message, Arrays.asList(receptor)));
+    }
+
+    public CompletableFuture<List<SendResult>> CallMakeTTS(String message, List<String> receptor) {
+        return CallMakeTTS(message, receptor, null, null);
+    }
+
+    public CompletableFuture<List<SendResult>> CallMakeTTS(String message, String receptor, Long date) {
+        return CallMakeTTS(message, Arrays.asList(receptor), date);
+    }
+
+    public CompletableFuture<List<SendResult>> CallMakeTTS(String message, List<String> receptor, Long date) {
+        return CallMakeTTS(message, receptor, date, null);
+    }
+
+    public CompletableFuture<List<SendResult>> CallMakeTTS(String message, List<String> receptor, List<String> localId) {
+        return CallMakeTTS(message, receptor, null, localId);
+    }
+
+    public CompletableFuture<List<SendResult>> CallMakeTTS(String message, List<String> receptor, String localId) {
+        return CallMakeTTS(message, receptor, null, Arrays.asList(localId));
+    }
+}
@@ -0,0 +1,287 @@
+package com.kavenegar.sdk;
+
+import com.kavenegar.sdk.dispatch.SendJob;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.excepctions.ApiException;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.excepctions.PartialSendException;
+import com.kavenegar.sdk.excepctions.PartialSendException.ChunkFailure;
+import com.kavenegar.sdk.keys.ApiKeyPool;
+import com.kavenegar.sdk.keys.ApiKeyState;
+import com.kavenegar.sdk.keys.KeyPoolConfig;
+import com.kavenegar.sdk.models.AccountInfoResult;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.transport.ApacheHttpTransport;
+import com.kavenegar.sdk.transport.ConnectionPoolConfig;
+import com.kavenegar.sdk.transport.Transport;
+import com.kavenegar.sdk.transport.TransportResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client that spreads requests over several Kavenegar accounts.
+ * <p>
+ * Each request is routed to one API key of an {@link ApiKeyPool}, by weighted round-robin or
+ * least outstanding requests, within each key's quota. A key the API answers with
+ * {@code INVALID_API_KEY}, {@code EXPIRED_API_KEY}, {@code ACCOUNT_DISABLED} or
+ * {@code NOT_ENOUGH_CREDIT} is taken out of rotation and the request goes to the next key; the
+ * API did not accept it, so it is not sent twice. When a send split into chunks fails that way for
+ * some chunks only, just those chunks go to the next key. Every key has its own {@link KavenegarApi}, and all
+ * of them post through one shared transport and connection pool.
+ * <p>
+ * Message ids belong to the account that sent them, so status, select and cancel calls must go to
+ * {@link #client(String)} of that key rather than through the pool.
+ */
+public class KavenegarMultiKeyApi implements AutoCloseable {
+
+    private final ApiKeyPool pool;
+    private final Transport transport;
+    private final Map<String, KavenegarApi> clients = new HashMap<>();
+
+    public KavenegarMultiKeyApi(KeyPoolConfig config) {
+        this(config, new ConnectionPoolConfig());
+    }
+
+    public KavenegarMultiKeyApi(KeyPoolConfig config, ConnectionPoolConfig poolConfig) {
+        this(config, new ApacheHttpTransport(poolConfig));
+    }
+
+    /**
+     * Creates a client that sends every key's requests through {@code transport}, which it closes in
+     * {@link #close()}.
+     */
+    public KavenegarMultiKeyApi(KeyPoolConfig config, Transport transport) {
+        this(config, EndpointRegistry.DEFAULT_BASE_URL, transport);
+    }
+
+    public KavenegarMultiKeyApi(KeyPoolConfig config, String baseUrl, Transport transport) {
+        this.pool = new ApiKeyPool(config);
+        this.transport = transport;
+        Transport shared = new SharedTransport(transport);
+        for (ApiKeyState key : pool.getKeys()) {
+            clients.put(key.getApiKey(), new KavenegarApi(new EndpointRegistry(baseUrl, key.getApiKey()), shared));
+        }
+    }
+
+    public ApiKeyPool getKeyPool() {
+        return pool;
+    }
+
+    /**
+     * The client of one key, to configure it (retries, limiters, ...) or to query messages it sent.
+     *
+     * @throws IllegalArgumentException if the key is not in the pool
+     */
+    public KavenegarApi client(String apiKey) {
+        KavenegarApi client = clients.get(apiKey);
+        if (client == null) {
+            throw new IllegalArgumentException("unknown api key");
+        }
+        return client;
+    }
+
+    /**
+     * Runs {@code job} on the client of the next key in rotation, moving on to another key if the
+     * chosen one turns out to be unusable. A job that fails part way with a
+     * {@link PartialSendException} is not run again, since some of it was sent; its key is still
+     * taken out of rotation if a chunk failed for the key.
+     *
+     * @throws com.kavenegar.sdk.excepctions.NoAvailableApiKeyException if every key is out of rotation
+     */
+    public <T> T execute(SendJob<T> job) throws BaseException {
+        while (true) {
+            ApiKeyState key = pool.acquire();
+            T result;
+            try {
+                result = job.run(clients.get(key.getApiKey()));
+            } catch (RuntimeException e) {
+                if (pool.onFailure(key, e)) {
+                    continue;
+                }
+                throw e;
+            }
+            pool.onSuccess(key, cost(result));
+            return result;
+        }
+    }
+
+    /**
+     * Sends receptors {@code [from, to)} with {@code send} on the next key in rotation. If some of
+     * the chunks fail because the key is unusable, only those are sent again, on other keys, and the
+     * results are merged in receptor order, one result per receptor as the API answers.
+     *
+     * @throws PartialSendException if chunks failed for another reason, or on every key
+     */
+    private List<SendResult> executeChunked(RangeSend send, int from, int to) throws BaseException {
+        while (true) {
+            ApiKeyState key = pool.acquire();
+            List<SendResult> result;
+            try {
+                result = send.run(clients.get(key.getApiKey()), from, to);
+            } catch (PartialSendException e) {
+                pool.onFailure(key, e);
+                return retryKeyFailures(send, from, e);
+            } catch (RuntimeException e) {
+                if (pool.onFailure(key, e)) {
+                    continue;
+                }
+                throw e;
+            }
+            pool.onSuccess(key, cost(result));
+            return result;
+        }
+    }
+
+    /**
+     * Sends the chunks of {@code partial}, whose indexes start at {@code offset}, that failed for
+     * their key again.
+     */
+    private List<SendResult> retryKeyFailures(RangeSend send, int offset, PartialSendException partial) {
+        List<SendResult> sent = partial.getResults();
+        List<SendResult> merged = new ArrayList<>(sent.size());
+        List<ChunkFailure> failures = new ArrayList<>();
+        boolean retried = false;
+        int next = 0;
+        int sentIndex = 0;
+        for (ChunkFailure chunk : partial.getFailures()) {
+            int gap = Math.min(chunk.getFromIndex() - next, sent.size() - sentIndex);
+            merged.addAll(sent.subList(sentIndex, sentIndex + gap));
+            sentIndex += gap;
+            next = chunk.getToIndex();
+            if (ApiKeyPool.keyFailure(chunk.getCause()) == null) {
+                failures.add(chunk);
+                continue;
+            }
+            retried = true;
+            try {
+                merged.addAll(executeChunked(send, offset + chunk.getFromIndex(), offset + chunk.getToIndex()));
+            } catch (PartialSendException e) {
+                merged.addAll(e.getResults());
+                for (ChunkFailure failure : e.getFailures()) {
+                    failures.add(new ChunkFailure(chunk.getFromIndex() + failure.getFromIndex(),
+                            chunk.getFromIndex() + failure.getToIndex(), failure.getReceptors(), failure.getCause()));
+                }
+            } catch (BaseException e) {
+                failures.add(new ChunkFailure(chunk.getFromIndex(), chunk.getToIndex(), chunk.getReceptors(), e));
+            }
+        }
+        if (!retried) {
+            throw partial;
+        }
+        merged.addAll(sent.subList(sentIndex, sent.size()));
+        if (!failures.isEmpty()) {
+            throw new PartialSendException(merged, failures);
+        }
+        return merged;
+    }
+
+    private static long cost(Object result) {
+        long cost = 0;
+        if (result instanceof SendResult) {
+            Integer messageCost = ((SendResult) result).getCost();
+            cost = messageCost == null ? 0 : messageCost;
+        } else if (result instanceof List) {
+            for (Object entry : (List<?>) result) {
+                cost += cost(entry);
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Fetches the remaining credit of every key, active or not. Keys that had run out of credit and
+     * were topped up go back into rotation; keys the API now rejects are taken out.
+     */
+    public void refreshCredit() throws BaseException {
+        for (ApiKeyState key : pool.getKeys()) {
+            try {
+                AccountInfoResult info = clients.get(key.getApiKey()).accountInfo();
+                if (info.getRemainCredit() != null) {
+                    pool.updateCredit(key, info.getRemainCredit());
+                }
+            } catch (ApiException e) {
+                if (ApiKeyPool.isKeyFailure(e.getCode())) {
+                    pool.disable(key, e.getCode());
+                }
+            }
+        }
+    }
+
+    public SendResult send(final String sender, final String receptor, final String message) throws BaseException {
+        return execute(api -> api.send(sender, receptor, message));
+    }
+
+    public List<SendResult> send(final String sender, final List<String> receptors, final String message, final MessageType type,
+                                 final long date, final List<String> localIds) throws BaseException {
+        return executeChunked((api, from, to) -> api.send(sender, receptors.subList(from, to), message, type, date,
+                subList(localIds, from, to)), 0, receptors.size());
+    }
+
+    public List<SendResult> sendArray(final List<String> senders, final List<String> receptors, final List<String> messages,
+                                      final List<MessageType> types, final long date, final List<String> localIds) throws BaseException {
+        return executeChunked((api, from, to) -> api.sendArray(subList(senders, from, to), receptors.subList(from, to),
+                subList(messages, from, to), subList(types, from, to), date, subList(localIds, from, to)), 0, receptors.size());
+    }
+
+    private static <E> List<E> subList(List<E> list, int from, int to) {
+        return list == null ? null : list.subList(from, to);
+    }
+
+    public SendResult verifyLookup(String receptor, String token, String token2, String token3, String template) throws BaseException {
+        return execute(SendJob.verifyLookup(receptor, token, token2, token3, template));
+    }
+
+    public List<ApiKeyState> getKeys() {
+        return pool.getKeys();
+    }
+
+    /**
+     * Closes every key's client, then the shared transport.
+     */
+    @Override
+    public void close() {
+        for (KavenegarApi client : clients.values()) {
+            client.close();
+        }
+        try {
+            transport.close();
+        } catch (IOException e) {
+            throw new HttpException("Failed to close http transport", 0, e);
+        }
+    }
+
+    /**
+     * A chunked send of the receptors at {@code [from, to)} of its lists.
+     */
+    private interface RangeSend {
+
+        List<SendResult> run(KavenegarApi api, int from, int to);
+    }
+
+    /**
+     * Hands the shared transport to the per-key clients without letting them close it.
+     */
+    private static final class SharedTransport implements Transport {
+
+        private final Transport delegate;
+
+        SharedTransport(Transport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException {
+            return delegate.post(uri, body, offset, length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.kavenegar.sdk;
+
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.PartialSendException;
+import com.kavenegar.sdk.models.SendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a receptor list, and the matching local ids, into consecutive chunks of at most
+ * {@code chunkSize} entries, and merges the per-chunk results back in input order.
+ */
+final class ReceptorChunks {
+
+    private final List<String> receptors;
+    private final List<String> localIds;
+    private final int chunkSize;
+    private final int count;
+
+    ReceptorChunks(List<String> receptors, List<String> localIds, int chunkSize) {
+        this.receptors = receptors;
+        this.localIds = localIds;
+        this.chunkSize = chunkSize;
+        this.count = Math.max(1, (receptors.size() + chunkSize - 1) / chunkSize);
+    }
+
+    int count() {
+        return count;
+    }
+
+    int from(int chunk) {
+        return chunk * chunkSize;
+    }
+
+    int to(int chunk) {
+        return Math.min(from(chunk) + chunkSize, receptors.size());
+    }
+
+    List<String> receptors(int chunk) {
+        return count == 1 ? receptors : receptors.subList(from(chunk), to(chunk));
+    }
+
+    /**
+     * Local ids are split alongside the receptors when there is one per receptor; otherwise,
+     * e.g. a single shared id, every chunk gets the list unchanged.
+     */
+    List<String> localIds(int chunk) {
+        if (count == 1 || localIds == null || localIds.size() != receptors.size()) {
+            return localIds;
+        }
+        return localIds.subList(from(chunk), to(chunk));
+    }
+
+    /**
+     * Concatenates the chunk results. If any chunk failed, throws a {@link PartialSendException}
+     * carrying the successful results and one entry per failed chunk.
+     */
+    List<SendResult> merge(List<List<SendResult>> results, BaseException[] failures) {
+        List<SendResult> merged = new ArrayList<>(receptors.size());
+        List<PartialSendException.ChunkFailure> failed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (failures[i] != null) {
+                failed.add(new PartialSendException.ChunkFailure(from(i), to(i), receptors(i), failures[i]));
+            } else {
+                merged.addAll(results.get(i));
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new PartialSendException(merged, failed);
+        }
+        return merged;
+    }
+}
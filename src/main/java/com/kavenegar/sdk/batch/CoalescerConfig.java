@@ -0,0 +1,53 @@
+package com.kavenegar.sdk.batch;
+
+/**
+ * Settings for a {@link SendCoalescer}.
+ * <p>
+ * A batch is sent as soon as it holds {@link #getMaxBatchSize()} messages, or
+ * {@link #getLingerMillis()} after its first message arrived, whichever comes first.
+ */
+public class CoalescerConfig {
+
+    private int maxBatchSize = 100;
+    private long lingerMillis = 5L;
+    private int maxConcurrentBatches = 8;
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Longest time a message waits for others to share its request.
+     */
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Maximum number of {@code sendArray} requests in flight; further batches wait for one to finish.
+     */
+    public int getMaxConcurrentBatches() {
+        return maxConcurrentBatches;
+    }
+
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescerConfig{" +
+                "maxBatchSize=" + maxBatchSize +
+                ", lingerMillis=" + lingerMillis +
+                ", maxConcurrentBatches=" + maxConcurrentBatches +
+                '}';
+    }
+}
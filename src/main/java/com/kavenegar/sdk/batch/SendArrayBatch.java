@@ -0,0 +1,310 @@
+package com.kavenegar.sdk.batch;
+
+import com.google.gson.JsonParser;
+import com.kavenegar.sdk.codec.FormWriter;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.template.MessageTemplate;
+import com.kavenegar.sdk.template.RecipientBinder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Rows of a {@code sendArray} request, appended one at a time and encoded as they arrive.
+ * <p>
+ * Receptors and messages are written straight into two form-encoded JSON columns, so a row costs
+ * its encoded bytes rather than a {@code String} in each of four parallel lists; senders are kept
+ * once each and referenced by index, and types as one byte per row. Sending copies whole ranges
+ * of the columns into the request body, so a large batch is cut into
+ * {@link com.kavenegar.sdk.KavenegarApi#getReceptorChunkSize() chunks} without re-encoding
+ * anything.
+ * <p>
+ * Send it with {@link com.kavenegar.sdk.KavenegarApi#sendArray(SendArrayBatch)}. The columns are
+ * pooled buffers: {@link #close()} the batch once it has been sent. Not thread-safe.
+ */
+public final class SendArrayBatch implements AutoCloseable {
+
+    private final Column receptors = new Column();
+    private final Column messages = new Column();
+    private final List<String> senders = new ArrayList<>(2);
+    private int[] senderOf = new int[64];
+    private byte[] types = new byte[64];
+    /**
+     * Local id of each row, created on the first row that has one.
+     */
+    private List<String> localIds;
+    private int size;
+    private long date;
+
+    public SendArrayBatch add(String sender, CharSequence receptor, CharSequence message) {
+        return add(sender, receptor, message, MessageType.MobileMemory, null);
+    }
+
+    /**
+     * Adds a row; the receptor and message are encoded at once, so they may be reused buffers.
+     *
+     * @param localId optional local id, or {@code null}
+     */
+    public SendArrayBatch add(String sender, CharSequence receptor, CharSequence message, MessageType type, String localId) {
+        if (message == null) {
+            throw new IllegalArgumentException("message is required");
+        }
+        checkRow(sender, receptor, type);
+        messages.begin().appendJsonString(message);
+        messages.end();
+        addRow(sender, receptor, type, localId);
+        return this;
+    }
+
+    /**
+     * Adds a row whose message is {@code template} rendered for {@code recipient}; the receptor and
+     * local id come from {@code binder} as well.
+     */
+    public <T> SendArrayBatch add(String sender, MessageTemplate template, T recipient, RecipientBinder<? super T> binder, MessageType type) {
+        return add(sender, binder.receptor(recipient), template, recipient, binder, type, binder.localId(recipient));
+    }
+
+    /**
+     * Adds a row whose message is {@code template} rendered for {@code recipient}, with the
+     * receptor and local id given rather than read through {@code binder}.
+     */
+    public <T> SendArrayBatch add(String sender, CharSequence receptor, MessageTemplate template, T recipient,
+                                  RecipientBinder<? super T> binder, MessageType type, String localId) {
+        checkRow(sender, receptor, type);
+        FormWriter message = messages.begin();
+        try {
+            template.render(message, recipient, binder);
+        } catch (RuntimeException e) {
+            messages.abort();
+            throw e;
+        }
+        messages.end();
+        addRow(sender, receptor, type, localId);
+        return this;
+    }
+
+    private static void checkRow(String sender, CharSequence receptor, MessageType type) {
+        if (sender == null || receptor == null || type == null) {
+            throw new IllegalArgumentException("sender, receptor and type are required");
+        }
+    }
+
+    private void addRow(String sender, CharSequence receptor, MessageType type, String localId) {
+        if (size == senderOf.length) {
+            senderOf = Arrays.copyOf(senderOf, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+        }
+        int index = senders.indexOf(sender);
+        if (index < 0) {
+            index = senders.size();
+            senders.add(sender);
+        }
+        senderOf[size] = index;
+        types[size] = (byte) type.getValue();
+        if (localId != null && localIds == null) {
+            localIds = new ArrayList<>(Collections.nCopies(size, (String) null));
+        }
+        if (localIds != null) {
+            localIds.add(localId);
+        }
+        receptors.begin().appendJsonString(receptor);
+        receptors.end();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Scheduled send time as a Unix timestamp, or 0 to send now.
+     */
+    public long getDate() {
+        return date;
+    }
+
+    public void setDate(long date) {
+        this.date = date;
+    }
+
+    /**
+     * Local ids of all rows, with {@code null} for rows without one, or {@code null} if no row has
+     * one.
+     */
+    public List<String> getLocalIds() {
+        return localIds == null ? null : Collections.unmodifiableList(localIds);
+    }
+
+    /**
+     * Receptors of all rows. Elements are decoded from the request column when read, so this
+     * is meant for reporting, not for the send path.
+     */
+    public List<String> getReceptors() {
+        return new ReceptorView();
+    }
+
+    /**
+     * Distinct senders of rows {@code [from, to)}.
+     */
+    public List<String> senders(int from, int to) {
+        if (senders.size() == 1) {
+            return Collections.unmodifiableList(senders);
+        }
+        boolean[] used = new boolean[senders.size()];
+        List<String> distinct = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (!used[senderOf[i]]) {
+                used[senderOf[i]] = true;
+                distinct.add(senders.get(senderOf[i]));
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Writes the {@code sender}, {@code receptor}, {@code message}, {@code date} and {@code type}
+     * parameters for rows {@code [from, to)}, the same bytes
+     * {@code sendArray} writes for the equivalent lists; {@code localids} is left to the caller.
+     */
+    public void writeTo(FormWriter form, int from, int to) {
+        byte[][] encodedSenders = new byte[senders.size()][];
+        FormWriter scratch = FormWriter.acquire();
+        try {
+            for (int i = 0; i < encodedSenders.length; i++) {
+                int start = scratch.length();
+                scratch.appendJsonString(senders.get(i));
+                encodedSenders[i] = Arrays.copyOfRange(scratch.buffer(), start, scratch.length());
+            }
+        } finally {
+            scratch.release();
+        }
+        form.beginParam("sender").append("[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                form.append(",");
+            }
+            byte[] sender = encodedSenders[senderOf[i]];
+            form.append(sender, 0, sender.length);
+        }
+        form.append("]");
+        receptors.copy(form.beginParam("receptor"), from, to);
+        messages.copy(form.beginParam("message"), from, to);
+        form.param("date", date);
+        form.beginParam("type").append("[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                form.append(",");
+            }
+            form.append(types[i]);
+        }
+        form.append("]");
+    }
+
+    /**
+     * Returns the column buffers to the pool; the batch must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        receptors.release();
+        messages.release();
+    }
+
+    @Override
+    public String toString() {
+        return "SendArrayBatch{" +
+                "size=" + size +
+                ", senders=" + senders +
+                ", date=" + date +
+                '}';
+    }
+
+    /**
+     * One JSON array of the request, kept as its form-encoded elements joined by encoded commas,
+     * with the end offset of every element.
+     */
+    private static final class Column {
+
+        /**
+         * Length of a form-encoded {@code ','}.
+         */
+        private static final int SEPARATOR = 3;
+
+        private FormWriter writer = FormWriter.acquire();
+        private int[] ends = new int[64];
+        private int count;
+        private int mark;
+
+        FormWriter begin() {
+            mark = writer.length();
+            if (count > 0) {
+                writer.append(",");
+            }
+            return writer;
+        }
+
+        /**
+         * Drops what was written since {@link #begin()}.
+         */
+        void abort() {
+            writer.truncate(mark);
+        }
+
+        void end() {
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = writer.length();
+        }
+
+        int start(int row) {
+            return row == 0 ? 0 : ends[row - 1] + SEPARATOR;
+        }
+
+        void copy(FormWriter out, int from, int to) {
+            out.append("[");
+            if (to > from) {
+                int start = start(from);
+                out.append(writer.buffer(), start, ends[to - 1] - start);
+            }
+            out.append("]");
+        }
+
+        String decode(int row) {
+            String encoded = new String(writer.buffer(), start(row), ends[row] - start(row), StandardCharsets.US_ASCII);
+            return new JsonParser().parse(URLDecoder.decode(encoded, StandardCharsets.UTF_8)).getAsString();
+        }
+
+        void release() {
+            if (writer != null) {
+                writer.release();
+                writer = null;
+            }
+        }
+    }
+
+    private final class ReceptorView extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            }
+            return receptors.decode(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.kavenegar.sdk.batch;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.concurrent.ParallelExecutor;
+import com.kavenegar.sdk.concurrent.VirtualThreads;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.models.SendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges single-recipient sends arriving from many threads into {@code sendArray} requests.
+ * <p>
+ * Each {@link #submit} joins the current batch and gets a future for its own {@link SendResult}.
+ * A batch may mix senders, messages and types; it is sent when it is full or when its linger
+ * time has passed, so one HTTP round trip carries up to {@link CoalescerConfig#getMaxBatchSize()}
+ * messages. If the request fails, every future of the batch fails with the same exception.
+ * <p>
+ * Enable it for the plain {@code send} calls of a client with
+ * {@link KavenegarApi#setSendCoalescing(CoalescerConfig)}, or use it directly.
+ */
+public class SendCoalescer implements AutoCloseable {
+
+    private final KavenegarApi api;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final ScheduledExecutorService timer;
+    private final ParallelExecutor dispatcher;
+
+    private final Object lock = new Object();
+    private Batch pending;
+    private boolean closed;
+
+    public SendCoalescer(KavenegarApi api, CoalescerConfig config) {
+        if (config.getMaxBatchSize() < 1 || config.getLingerMillis() < 0) {
+            throw new IllegalArgumentException("invalid coalescer config: " + config);
+        }
+        this.api = api;
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.lingerMillis = config.getLingerMillis();
+        this.timer = Executors.newSingleThreadScheduledExecutor(VirtualThreads.daemonThreads("kavenegar-coalescer"));
+        this.dispatcher = new ParallelExecutor(VirtualThreads.newPerTaskExecutor(), config.getMaxConcurrentBatches());
+    }
+
+    /**
+     * Queues one message for the next batch.
+     *
+     * @param localId optional local id, or {@code null}
+     * @throws IllegalStateException if the coalescer is closed
+     */
+    public CompletableFuture<SendResult> submit(String sender, String receptor, String message, MessageType type, String localId) {
+        CompletableFuture<SendResult> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("SendCoalescer is closed");
+            }
+            if (pending == null) {
+                final Batch batch = new Batch(maxBatchSize);
+                batch.timeout = timer.schedule(() -> flush(batch), lingerMillis, TimeUnit.MILLISECONDS);
+                pending = batch;
+            }
+            pending.add(sender, receptor, message, type, localId, result);
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = null;
+                full.timeout.cancel(false);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return result;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            pending = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(final Batch batch) {
+        try {
+            dispatcher.submit(() -> {
+                batch.send(api);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            batch.fail(e);
+        }
+    }
+
+    /**
+     * Number of messages waiting in the batch that has not been sent yet.
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending == null ? 0 : pending.size();
+        }
+    }
+
+    /**
+     * Sends the pending batch, then stops accepting messages. Batches already in flight complete normally.
+     */
+    @Override
+    public void close() {
+        Batch last;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            last = pending;
+            pending = null;
+        }
+        if (last != null) {
+            last.timeout.cancel(false);
+            dispatch(last);
+        }
+        timer.shutdown();
+        dispatcher.close();
+    }
+
+    private static final class Batch {
+
+        final List<String> senders;
+        final List<String> receptors;
+        final List<String> messages;
+        final List<MessageType> types;
+        final List<String> localIds;
+        final List<CompletableFuture<SendResult>> results;
+        boolean hasLocalIds;
+        ScheduledFuture<?> timeout;
+
+        Batch(int capacity) {
+            senders = new ArrayList<>(capacity);
+            receptors = new ArrayList<>(capacity);
+            messages = new ArrayList<>(capacity);
+            types = new ArrayList<>(capacity);
+            localIds = new ArrayList<>(capacity);
+            results = new ArrayList<>(capacity);
+        }
+
+        void add(String sender, String receptor, String message, MessageType type, String localId, CompletableFuture<SendResult> result) {
+            senders.add(sender);
+            receptors.add(receptor);
+            messages.add(message);
+            types.add(type);
+            localIds.add(localId == null ? "" : localId);
+            hasLocalIds |= localId != null;
+            results.add(result);
+        }
+
+        int size() {
+            return results.size();
+        }
+
+        void send(KavenegarApi api) {
+            List<SendResult> sent;
+            try {
+                sent = api.sendArray(senders, receptors, messages, types, 0, hasLocalIds ? localIds : null);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+            for (int i = 0; i < results.size(); i++) {
+                if (i < sent.size()) {
+                    results.get(i).complete(sent.get(i));
+                } else {
+                    results.get(i).completeExceptionally(new HttpException("Missing entry in sendarray response", 200));
+                }
+            }
+        }
+
+        void fail(Throwable error) {
+            for (CompletableFuture<SendResult> result : results) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.kavenegar.sdk.breaker;
+
+import com.kavenegar.sdk.enums.EndpointFamily;
+import com.kavenegar.sdk.excepctions.CircuitOpenException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops requests to one endpoint family while the provider is failing.
+ * <p>
+ * Every request calls {@link #acquire()} before it is posted and reports back with
+ * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnore}. While {@link CircuitState#Closed}
+ * the outcomes fill a sliding window of the last requests; once too many of them failed or were
+ * slow the breaker opens, and for the open duration requests fail at once with a
+ * {@link CircuitOpenException} instead of waiting for a socket timeout. After that a few probes are
+ * let through: if they all succeed the breaker closes, otherwise it opens again.
+ * <p>
+ * Acquiring while closed is two volatile reads. Outcomes are recorded under the breaker's monitor;
+ * outcomes of requests admitted before the last state change are dropped.
+ */
+public class CircuitBreaker {
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final EndpointFamily family;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    private volatile CircuitState state = CircuitState.Closed;
+    /**
+     * Bumped on every state change; handed out by {@link #acquire()} to match outcomes to the state they were admitted in.
+     */
+    private volatile long epoch;
+
+    // guarded by this
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAtNanos;
+    private int probesAdmitted;
+    private int probesSucceeded;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(EndpointFamily family, CircuitBreakerConfig config) {
+        if (config.getWindowSize() < 1 || config.getMinimumCalls() < 1 || config.getMinimumCalls() > config.getWindowSize()
+                || config.getFailureRateThreshold() <= 0 || config.getFailureRateThreshold() > 1
+                || config.getSlowCallRateThreshold() <= 0 || config.getSlowCallRateThreshold() > 1
+                || config.getHalfOpenProbes() < 1 || config.getOpenDurationMillis() < 0) {
+            throw new IllegalArgumentException("invalid circuit breaker config: " + config);
+        }
+        this.family = family;
+        this.window = new byte[config.getWindowSize()];
+        this.minimumCalls = config.getMinimumCalls();
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDurationMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMillis());
+        this.halfOpenProbes = config.getHalfOpenProbes();
+    }
+
+    /**
+     * Lets a request through or fails it fast.
+     *
+     * @return the ticket to pass back to {@link #onSuccess}, {@link #onFailure} or {@link #onIgnore}
+     * @throws CircuitOpenException while the breaker is open, or half-open with all probes taken
+     */
+    public long acquire() throws CircuitOpenException {
+        long ticket = epoch;
+        if (state == CircuitState.Closed) {
+            return ticket;
+        }
+        synchronized (this) {
+            if (state == CircuitState.Open) {
+                long remaining = openNanos - (System.nanoTime() - openedAtNanos);
+                if (remaining > 0) {
+                    rejected.increment();
+                    throw new CircuitOpenException("Circuit breaker for " + family + " endpoints is open", family,
+                            TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                }
+                transition(CircuitState.HalfOpen);
+            }
+            if (state == CircuitState.HalfOpen) {
+                if (probesAdmitted >= halfOpenProbes) {
+                    rejected.increment();
+                    throw new CircuitOpenException("Circuit breaker for " + family + " endpoints is probing", family, 0);
+                }
+                probesAdmitted++;
+            }
+            return epoch;
+        }
+    }
+
+    /**
+     * The request got a regular answer from the API, which includes API errors such as an invalid
+     * receptor.
+     */
+    public void onSuccess(long ticket, long durationNanos) {
+        record(ticket, durationNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    /**
+     * The request failed in a way that points at the provider: a broken connection, a 5xx status or
+     * {@code SERVER_IS_BUSY}.
+     */
+    public void onFailure(long ticket, long durationNanos) {
+        record(ticket, durationNanos >= slowCallNanos ? FAILED | SLOW : FAILED);
+    }
+
+    /**
+     * The request never reached the API, e.g. it was stopped by a client-side limit.
+     */
+    public synchronized void onIgnore(long ticket) {
+        if (ticket == epoch && state == CircuitState.HalfOpen) {
+            probesAdmitted--;
+        }
+    }
+
+    private synchronized void record(long ticket, byte outcome) {
+        if (ticket != epoch) {
+            return;
+        }
+        if (state == CircuitState.HalfOpen) {
+            if (outcome != 0) {
+                transition(CircuitState.Open);
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                transition(CircuitState.Closed);
+            }
+            return;
+        }
+        if (state != CircuitState.Closed) {
+            return;
+        }
+        if (recorded == window.length) {
+            byte evicted = window[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+        if (recorded >= minimumCalls
+                && (failures >= failureRateThreshold * recorded || slowCalls >= slowCallRateThreshold * recorded)) {
+            transition(CircuitState.Open);
+        }
+    }
+
+    private void transition(CircuitState to) {
+        epoch++;
+        state = to;
+        if (to == CircuitState.Open) {
+            openedAtNanos = System.nanoTime();
+            opened.increment();
+        }
+        probesAdmitted = 0;
+        probesSucceeded = 0;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public EndpointFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * Current state. An open breaker reports {@link CircuitState#Open} until the first request after
+     * the open duration turns it half-open.
+     */
+    public CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * Share of failed requests in the current window, between 0 and 1.
+     */
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    /**
+     * Share of slow requests in the current window, between 0 and 1.
+     */
+    public synchronized double getSlowCallRate() {
+        return recorded == 0 ? 0 : (double) slowCalls / recorded;
+    }
+
+    /**
+     * Requests failed fast because the breaker was open or probing.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of times the breaker opened.
+     */
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "family=" + family +
+                ", state=" + state +
+                ", failureRate=" + getFailureRate() +
+                ", slowCallRate=" + getSlowCallRate() +
+                ", rejected=" + rejected.sum() +
+                ", opened=" + opened.sum() +
+                '}';
+    }
+}
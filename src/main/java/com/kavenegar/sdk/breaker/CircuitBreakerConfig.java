@@ -0,0 +1,104 @@
+package com.kavenegar.sdk.breaker;
+
+/**
+ * Settings for a {@link CircuitBreaker}.
+ * <p>
+ * The breaker looks at the outcomes of the last {@link #getWindowSize()} requests and opens when,
+ * with at least {@link #getMinimumCalls()} of them recorded, the share of failures or of slow calls
+ * reaches its threshold.
+ */
+public class CircuitBreakerConfig {
+
+    private int windowSize = 100;
+    private int minimumCalls = 20;
+    private double failureRateThreshold = 0.5;
+    private double slowCallRateThreshold = 0.8;
+    private long slowCallDurationMillis = 5000L;
+    private long openDurationMillis = 30000L;
+    private int halfOpenProbes = 3;
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    /**
+     * Share of failed requests, between 0 and 1, that opens the breaker. Only failures that point at
+     * the provider count: transport errors, 5xx statuses and {@code SERVER_IS_BUSY}; a rejected
+     * parameter is a normal answer.
+     */
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Share of requests slower than {@link #getSlowCallDurationMillis()} that opens the breaker;
+     * {@code 1} opens it only when every request is slow.
+     */
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    public void setSlowCallDurationMillis(long slowCallDurationMillis) {
+        this.slowCallDurationMillis = slowCallDurationMillis;
+    }
+
+    /**
+     * How long an open breaker fails requests before it lets probes through.
+     */
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public void setOpenDurationMillis(long openDurationMillis) {
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Number of probe requests let through while half-open; the breaker closes once all of them
+     * succeed and opens again as soon as one fails or is slow.
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    public void setHalfOpenProbes(int halfOpenProbes) {
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerConfig{" +
+                "windowSize=" + windowSize +
+                ", minimumCalls=" + minimumCalls +
+                ", failureRateThreshold=" + failureRateThreshold +
+                ", slowCallRateThreshold=" + slowCallRateThreshold +
+                ", slowCallDurationMillis=" + slowCallDurationMillis +
+                ", openDurationMillis=" + openDurationMillis +
+                ", halfOpenProbes=" + halfOpenProbes +
+                '}';
+    }
+}
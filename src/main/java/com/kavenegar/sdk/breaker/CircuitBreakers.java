@@ -0,0 +1,55 @@
+package com.kavenegar.sdk.breaker;
+
+import com.kavenegar.sdk.enums.EndpointFamily;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link CircuitBreaker} per endpoint family: {@code sms/*}, {@code verify/lookup},
+ * {@code call/maketts} and {@code account/*}, so an outage of one does not block the others.
+ * May be shared by several clients using the same provider.
+ */
+public class CircuitBreakers {
+
+    private final Map<EndpointFamily, CircuitBreaker> breakers = new EnumMap<>(EndpointFamily.class);
+
+    public CircuitBreakers(CircuitBreakerConfig config) {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            breakers.put(family, new CircuitBreaker(family, config));
+        }
+    }
+
+    public CircuitBreaker get(EndpointFamily family) {
+        return breakers.get(family);
+    }
+
+    /**
+     * State of every family's breaker, for health checks.
+     */
+    public Map<EndpointFamily, CircuitState> getStates() {
+        Map<EndpointFamily, CircuitState> states = new EnumMap<>(EndpointFamily.class);
+        for (CircuitBreaker breaker : breakers.values()) {
+            states.put(breaker.getFamily(), breaker.getState());
+        }
+        return Collections.unmodifiableMap(states);
+    }
+
+    /**
+     * True when no breaker is open.
+     */
+    public boolean isHealthy() {
+        for (CircuitBreaker breaker : breakers.values()) {
+            if (breaker.getState() == CircuitState.Open) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakers" + breakers.values();
+    }
+}
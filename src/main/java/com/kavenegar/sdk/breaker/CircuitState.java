@@ -0,0 +1,20 @@
+package com.kavenegar.sdk.breaker;
+
+/**
+ * State of a {@link CircuitBreaker}.
+ */
+public enum CircuitState {
+
+    /**
+     * Requests pass and their outcomes are recorded.
+     */
+    Closed,
+    /**
+     * Requests fail fast until the open duration has passed.
+     */
+    Open,
+    /**
+     * A few probe requests pass; their outcomes decide whether the breaker closes or opens again.
+     */
+    HalfOpen
+}
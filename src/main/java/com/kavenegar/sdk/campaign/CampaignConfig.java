@@ -0,0 +1,123 @@
+package com.kavenegar.sdk.campaign;
+
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.template.MessageTemplate;
+
+/**
+ * Settings for a {@link CampaignRunner}.
+ * <p>
+ * Each row of the input supplies a {@code receptor} and, unless a {@link #getTemplate() template}
+ * is set, a {@code message}; optional {@code sender} and {@code localid} fields override the
+ * defaults per row. With a template, its placeholders are filled from the fields of the same name.
+ */
+public class CampaignConfig {
+
+    private CampaignFormat format = CampaignFormat.Csv;
+    private String sender;
+    private MessageType type = MessageType.MobileMemory;
+    private long date;
+    private MessageTemplate template;
+    private int maxInFlightChunks = 4;
+    private long checkpointIntervalMillis = 1000L;
+    private boolean validateReceptors = true;
+
+    public CampaignFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(CampaignFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Sender line for rows without a {@code sender} field.
+     */
+    public String getSender() {
+        return sender;
+    }
+
+    public void setSender(String sender) {
+        this.sender = sender;
+    }
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public void setType(MessageType type) {
+        this.type = type;
+    }
+
+    /**
+     * Scheduled send time as a Unix timestamp, or 0 to send now.
+     */
+    public long getDate() {
+        return date;
+    }
+
+    public void setDate(long date) {
+        this.date = date;
+    }
+
+    /**
+     * Template rendered for every row instead of its {@code message} field, or {@code null}.
+     */
+    public MessageTemplate getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(MessageTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * {@code sendArray} requests in flight at once. Rows are read only as far ahead as twice this
+     * many chunks, so memory stays bounded whatever the size of the file.
+     */
+    public int getMaxInFlightChunks() {
+        return maxInFlightChunks;
+    }
+
+    public void setMaxInFlightChunks(int maxInFlightChunks) {
+        this.maxInFlightChunks = maxInFlightChunks;
+    }
+
+    /**
+     * How often the results file is forced to disk and the checkpoint rewritten. A run interrupted
+     * in between resumes from the previous checkpoint and sends the rows after it again.
+     */
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public void setCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    /**
+     * Whether receptors are checked and normalized with
+     * {@link com.kavenegar.sdk.receptors.PhoneNumbers}, so rows with invalid numbers are reported
+     * instead of sent.
+     */
+    public boolean isValidateReceptors() {
+        return validateReceptors;
+    }
+
+    public void setValidateReceptors(boolean validateReceptors) {
+        this.validateReceptors = validateReceptors;
+    }
+
+    @Override
+    public String toString() {
+        return "CampaignConfig{" +
+                "format=" + format +
+                ", sender='" + sender + '\'' +
+                ", type=" + type +
+                ", date=" + date +
+                ", template=" + template +
+                ", maxInFlightChunks=" + maxInFlightChunks +
+                ", checkpointIntervalMillis=" + checkpointIntervalMillis +
+                ", validateReceptors=" + validateReceptors +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.campaign;
+
+/**
+ * Layout of a campaign's recipient file, UTF-8 in either case.
+ */
+public enum CampaignFormat {
+
+    /**
+     * Comma-separated values with a header row naming the columns. Fields may be quoted, with
+     * {@code ""} for a quote inside, and quoted fields may span lines.
+     */
+    Csv,
+    /**
+     * One flat JSON object per line, e.g. {@code {"receptor":"09121234567","name":"Sara"}}.
+     * Values are strings, numbers, booleans or {@code null}; nested objects and arrays are not supported.
+     */
+    JsonLines
+}
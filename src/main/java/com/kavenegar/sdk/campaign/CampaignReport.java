@@ -0,0 +1,75 @@
+package com.kavenegar.sdk.campaign;
+
+/**
+ * Outcome of one {@link CampaignRunner#run} call. Counts cover the rows handled by that call only,
+ * not those a previous, interrupted run had already handled.
+ */
+public class CampaignReport {
+
+    private final long resumedAfterRow;
+    private final long lastRow;
+    private final long sentCount;
+    private final long rejectedCount;
+    private final long failedCount;
+    private final long elapsedMillis;
+
+    public CampaignReport(long resumedAfterRow, long lastRow, long sentCount, long rejectedCount, long failedCount, long elapsedMillis) {
+        this.resumedAfterRow = resumedAfterRow;
+        this.lastRow = lastRow;
+        this.sentCount = sentCount;
+        this.rejectedCount = rejectedCount;
+        this.failedCount = failedCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Last row handled by a previous run, or 0 if this run started at the beginning of the file.
+     */
+    public long getResumedAfterRow() {
+        return resumedAfterRow;
+    }
+
+    /**
+     * Number of the last row handled; rows are numbered from 1, not counting a CSV header.
+     */
+    public long getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * Messages the API accepted.
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Rows not sent because a field was missing or invalid.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Rows of requests the API rejected.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "CampaignReport{" +
+                "resumedAfterRow=" + resumedAfterRow +
+                ", lastRow=" + lastRow +
+                ", sentCount=" + sentCount +
+                ", rejectedCount=" + rejectedCount +
+                ", failedCount=" + failedCount +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,526 @@
+package com.kavenegar.sdk.campaign;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.batch.SendArrayBatch;
+import com.kavenegar.sdk.concurrent.ParallelExecutor;
+import com.kavenegar.sdk.excepctions.ApiException;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.CampaignException;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.keys.ApiKeyPool;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.receptors.PhoneNumbers;
+import com.kavenegar.sdk.retry.FailureClass;
+import com.kavenegar.sdk.retry.RetryEngine;
+import com.kavenegar.sdk.template.MessageTemplate;
+import com.kavenegar.sdk.template.RecipientBinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a campaign from a CSV or JSON Lines file of any size, with bounded memory.
+ * <p>
+ * Rows are read through a memory-mapped window and added straight into {@link SendArrayBatch}
+ * chunks of {@link KavenegarApi#getReceptorChunkSize()} rows, which are sent concurrently. Each
+ * row gets one line in the results file, in input order:
+ * {@code row,receptor,messageid,status,cost,error}. Rows with a missing or invalid field, and rows
+ * of requests the API turns down for good, are reported there and the run goes on; any other
+ * failure, such as a broken connection, an invalid key or an open circuit breaker, stops the run.
+ * <p>
+ * Progress is checkpointed next to the results. Running the same input again resumes after the
+ * last row whose result was checkpointed, and a finished campaign sends nothing more. Chunks that
+ * were in flight when a run stopped are sent again; give the rows a {@code localid} field so the
+ * API drops such repeats.
+ * <p>
+ * Rows without a {@code localid} are sent without one, and may reach their receptor twice if their
+ * chunk is sent again. With an {@link com.kavenegar.sdk.journal.OutboxJournal} set on the client,
+ * they get generated ids instead, which lets {@link KavenegarApi#replayOutbox()} settle an
+ * interrupted chunk; a run resumed from the checkpoint still generates new ids, so it does not
+ * drop repeats of those rows.
+ */
+public class CampaignRunner {
+
+    static final int RECEPTOR = 0;
+    static final int MESSAGE = 1;
+    static final int SENDER = 2;
+    static final int LOCAL_ID = 3;
+    private static final String[] FIXED_FIELDS = {"receptor", "message", "sender", "localid"};
+
+    private static final String RESULTS_HEADER = "row,receptor,messageid,status,cost,error\n";
+
+    private final KavenegarApi api;
+    private final CampaignConfig config;
+
+    public CampaignRunner(KavenegarApi api, CampaignConfig config) {
+        if (config.getFormat() == null || config.getType() == null || config.getMaxInFlightChunks() < 1
+                || config.getCheckpointIntervalMillis() < 0) {
+            throw new IllegalArgumentException("invalid campaign config: " + config);
+        }
+        this.api = api;
+        this.config = config;
+    }
+
+    /**
+     * Runs the campaign in {@code input}, with results in {@code results} and the checkpoint in
+     * {@code results} plus {@code .checkpoint}.
+     */
+    public CampaignReport run(Path input, Path results) {
+        return run(input, results, results.resolveSibling(results.getFileName() + ".checkpoint"));
+    }
+
+    /**
+     * Runs the campaign in {@code input}, resuming from {@code checkpoint} if it exists.
+     *
+     * @throws IllegalArgumentException if the input lacks a required field or no longer matches
+     *                                  the checkpoint
+     */
+    public CampaignReport run(Path input, Path results, Path checkpoint) {
+        try (Run run = new Run(input, results, checkpoint)) {
+            return run.execute();
+        }
+    }
+
+    /**
+     * State of one {@link #run} call.
+     */
+    private final class Run implements AutoCloseable {
+
+        private final long started = System.nanoTime();
+        private final Path input;
+        private final Path resultsFile;
+        private final Path checkpointFile;
+        private final MessageTemplate template;
+        /**
+         * Field index of each template placeholder.
+         */
+        private final int[] slotFields;
+        private final RowReader reader;
+        private final FileChannel results;
+        private final ParallelExecutor executor;
+        private final ArrayDeque<Chunk> pending = new ArrayDeque<>();
+        private final int chunkSize;
+        private final int maxPending;
+        private final long checkpointIntervalNanos;
+        private final long inputSize;
+        private final StringBuilder normalized = new StringBuilder(11);
+        private final RecipientBinder<RowReader> binder = new RecipientBinder<RowReader>() {
+            @Override
+            public String receptor(RowReader row) {
+                return String.valueOf(row.field(RECEPTOR));
+            }
+
+            @Override
+            public CharSequence value(RowReader row, int index) {
+                return row.field(slotFields[index]);
+            }
+        };
+
+        private String lastSender;
+        private long resumedAfterRow;
+        private long checkpointedRow;
+        private long completedRow;
+        private long completedOffset;
+        private long lastCheckpoint = System.nanoTime();
+        private long sent;
+        private long rejected;
+        private long failed;
+
+        Run(Path input, Path resultsFile, Path checkpointFile) {
+            this.input = input;
+            this.resultsFile = resultsFile;
+            this.checkpointFile = checkpointFile;
+            this.template = config.getTemplate();
+            List<String> names = new ArrayList<>(Arrays.asList(FIXED_FIELDS));
+            this.slotFields = template == null ? new int[0] : new int[template.getNames().size()];
+            for (int i = 0; i < slotFields.length; i++) {
+                String name = template.getNames().get(i);
+                int index = indexOfIgnoreCase(names, name);
+                if (index < 0) {
+                    index = names.size();
+                    names.add(name);
+                }
+                slotFields[i] = index;
+            }
+            this.chunkSize = api.getReceptorChunkSize();
+            this.maxPending = 2 * config.getMaxInFlightChunks();
+            this.checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getCheckpointIntervalMillis());
+            this.reader = new RowReader(input, config.getFormat(), names.toArray(new String[0]));
+            try {
+                this.inputSize = Files.size(input);
+                this.results = FileChannel.open(resultsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                reader.close();
+                throw new CampaignException("Failed to open campaign results " + resultsFile, e);
+            }
+            this.executor = ParallelExecutor.virtualThreads(config.getMaxInFlightChunks());
+        }
+
+        CampaignReport execute() {
+            if (config.getFormat() == CampaignFormat.Csv) {
+                checkColumns(reader.readHeader());
+            }
+            start(Checkpoint.read(checkpointFile));
+            Chunk chunk = newChunk();
+            while (reader.next()) {
+                String reason = add(chunk);
+                if (reason != null) {
+                    chunk.reject(reader.row(), reader.field(RECEPTOR), reason);
+                }
+                chunk.lastRow = reader.row();
+                chunk.endOffset = reader.position();
+                if (chunk.batch.size() == chunkSize || chunk.rejectedCount == chunkSize) {
+                    submit(chunk);
+                    chunk = newChunk();
+                }
+            }
+            if (chunk.lastRow > 0) {
+                submit(chunk);
+            } else {
+                chunk.batch.close();
+            }
+            while (!pending.isEmpty()) {
+                complete(pending.removeFirst());
+            }
+            checkpoint();
+            return new CampaignReport(resumedAfterRow, completedRow, sent, rejected, failed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+
+        private Chunk newChunk() {
+            Chunk chunk = new Chunk();
+            chunk.batch.setDate(config.getDate());
+            return chunk;
+        }
+
+        private void checkColumns(List<String> columns) {
+            List<String> missing = new ArrayList<>();
+            if (indexOfIgnoreCase(columns, "receptor") < 0) {
+                missing.add("receptor");
+            }
+            if (template == null && indexOfIgnoreCase(columns, "message") < 0) {
+                missing.add("message");
+            }
+            if (config.getSender() == null && indexOfIgnoreCase(columns, "sender") < 0) {
+                missing.add("sender");
+            }
+            if (template != null) {
+                for (String name : template.getNames()) {
+                    if (indexOfIgnoreCase(columns, name) < 0) {
+                        missing.add(name);
+                    }
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("campaign file " + input + " has no column " + missing);
+            }
+        }
+
+        private void start(Checkpoint checkpoint) {
+            try {
+                if (checkpoint == null) {
+                    results.truncate(0);
+                    write(RESULTS_HEADER);
+                    return;
+                }
+                if (checkpoint.inputSize != inputSize) {
+                    throw new IllegalArgumentException("campaign file " + input + " changed since checkpoint " + checkpointFile);
+                }
+                reader.seek(checkpoint.offset, checkpoint.row);
+                results.truncate(checkpoint.resultsLength);
+                results.position(checkpoint.resultsLength);
+                resumedAfterRow = checkpoint.row;
+                checkpointedRow = checkpoint.row;
+                completedRow = checkpoint.row;
+                completedOffset = checkpoint.offset;
+            } catch (IOException e) {
+                throw new CampaignException("Failed to resume campaign results " + resultsFile, e);
+            }
+        }
+
+        /**
+         * Adds the current row to {@code chunk}.
+         *
+         * @return why the row cannot be sent, or {@code null} if it was added
+         */
+        private String add(Chunk chunk) {
+            if (reader.error() != null) {
+                return reader.error();
+            }
+            CharSequence receptor = reader.field(RECEPTOR);
+            if (receptor == null || receptor.length() == 0) {
+                return "missing receptor";
+            }
+            if (config.isValidateReceptors()) {
+                long number = PhoneNumbers.parse(receptor);
+                if (number == PhoneNumbers.INVALID) {
+                    return "invalid receptor";
+                }
+                normalized.setLength(0);
+                receptor = normalized.append('0').append(number);
+            }
+            String sender = sender(reader.field(SENDER));
+            if (sender == null) {
+                return "missing sender";
+            }
+            CharSequence localIdField = reader.field(LOCAL_ID);
+            String localId = localIdField == null || localIdField.length() == 0 ? null : localIdField.toString();
+            if (template != null) {
+                chunk.batch.add(sender, receptor, template, reader, binder, config.getType(), localId);
+            } else {
+                CharSequence message = reader.field(MESSAGE);
+                if (message == null || message.length() == 0) {
+                    return "missing message";
+                }
+                chunk.batch.add(sender, receptor, message, config.getType(), localId);
+            }
+            chunk.sent(reader.row());
+            return null;
+        }
+
+        /**
+         * The row's sender, reusing the previous row's {@code String} when it is the same.
+         */
+        private String sender(CharSequence field) {
+            if (field == null || field.length() == 0) {
+                return config.getSender();
+            }
+            if (lastSender == null || !lastSender.contentEquals(field)) {
+                lastSender = field.toString();
+            }
+            return lastSender;
+        }
+
+        private void submit(final Chunk chunk) {
+            while (pending.size() >= maxPending) {
+                complete(pending.removeFirst());
+            }
+            if (!chunk.batch.isEmpty()) {
+                chunk.future = executor.submit(() -> api.sendArray(chunk.batch));
+            }
+            pending.addLast(chunk);
+            while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+                complete(pending.removeFirst());
+            }
+        }
+
+        /**
+         * Writes the result lines of {@code chunk}, the oldest pending one, and checkpoints if due.
+         */
+        private void complete(Chunk chunk) {
+            List<SendResult> answers = null;
+            BaseException rejection = null;
+            try {
+                if (chunk.future != null) {
+                    answers = ParallelExecutor.await(chunk.future);
+                }
+            } catch (ApiException | HttpException e) {
+                if (!isRejection(e)) {
+                    throw e;
+                }
+                rejection = e;
+            }
+            StringBuilder lines = new StringBuilder(64 * (chunk.batch.size() + chunk.rejectedCount));
+            List<String> receptors = chunk.batch.getReceptors();
+            int next = 0;
+            for (int i = 0; i < chunk.batch.size(); i++) {
+                next = chunk.writeRejected(lines, next, chunk.sentRows[i]);
+                lines.append(chunk.sentRows[i]).append(',');
+                if (rejection != null) {
+                    appendCsv(lines, receptors.get(i)).append(",,,,");
+                    appendCsv(lines, rejection.getMessage());
+                    failed++;
+                } else if (i < answers.size()) {
+                    SendResult answer = answers.get(i);
+                    appendCsv(lines, answer.getReceptor()).append(',')
+                            .append(nonNull(answer.getMessageId())).append(',')
+                            .append(nonNull(answer.getStatus())).append(',')
+                            .append(nonNull(answer.getCost())).append(',');
+                    sent++;
+                } else {
+                    appendCsv(lines, receptors.get(i)).append(",,,,no result");
+                    failed++;
+                }
+                lines.append('\n');
+            }
+            chunk.writeRejected(lines, next, Long.MAX_VALUE);
+            rejected += chunk.rejectedCount;
+            chunk.batch.close();
+            write(lines);
+            completedRow = chunk.lastRow;
+            completedOffset = chunk.endOffset;
+            if (System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos) {
+                checkpoint();
+            }
+        }
+
+        private void write(CharSequence text) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+            try {
+                while (bytes.hasRemaining()) {
+                    results.write(bytes);
+                }
+            } catch (IOException e) {
+                throw new CampaignException("Failed to write campaign results " + resultsFile, e);
+            }
+        }
+
+        /**
+         * Forces the results written so far and records the rows they cover.
+         */
+        private void checkpoint() {
+            if (completedRow == checkpointedRow && Files.exists(checkpointFile)) {
+                return;
+            }
+            try {
+                results.force(false);
+                new Checkpoint(inputSize, completedRow, completedOffset == 0 ? reader.position() : completedOffset,
+                        results.position()).write(checkpointFile);
+            } catch (IOException e) {
+                throw new CampaignException("Failed to flush campaign results " + resultsFile, e);
+            }
+            checkpointedRow = completedRow;
+            lastCheckpoint = System.nanoTime();
+        }
+
+        /**
+         * Checkpoints what has completed, closes the files and returns the batches of chunks that
+         * were never completed to their pool. Requests still in flight are left to finish.
+         */
+        @Override
+        public void close() {
+            try {
+                if (completedRow > checkpointedRow) {
+                    checkpoint();
+                }
+            } finally {
+                executor.close();
+                for (Chunk chunk : pending) {
+                    if (chunk.isDone()) {
+                        chunk.batch.close();
+                    }
+                }
+                reader.close();
+                try {
+                    results.close();
+                } catch (IOException e) {
+                    throw new CampaignException("Failed to close campaign results " + resultsFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * True if {@code failure} turned down this request's rows only: a permanent API or HTTP error
+     * other than one about the API key or account, which would fail every later request as well.
+     */
+    static boolean isRejection(BaseException failure) {
+        if (RetryEngine.classify(failure) != FailureClass.Permanent) {
+            return false;
+        }
+        if (failure instanceof ApiException) {
+            return !ApiKeyPool.isKeyFailure(((ApiException) failure).getCode());
+        }
+        int code = ((HttpException) failure).getCode();
+        return code >= 400 && code < 500 && code != 401 && code != 403;
+    }
+
+    private static int indexOfIgnoreCase(List<String> names, String name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object nonNull(Object value) {
+        return value == null ? "" : value;
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, CharSequence value) {
+        if (value == null) {
+            return out;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Up to one request's worth of rows: those added to the batch, and those rejected before it.
+     */
+    private static final class Chunk {
+
+        final SendArrayBatch batch = new SendArrayBatch();
+        long[] sentRows = new long[16];
+        long[] rejectedRows = new long[0];
+        String[] rejectedLines = new String[0];
+        int rejectedCount;
+        long lastRow;
+        long endOffset;
+        Future<List<SendResult>> future;
+
+        void sent(long row) {
+            int index = batch.size() - 1;
+            if (index == sentRows.length) {
+                sentRows = Arrays.copyOf(sentRows, index * 2);
+            }
+            sentRows[index] = row;
+        }
+
+        void reject(long row, CharSequence receptor, String reason) {
+            if (rejectedCount == rejectedRows.length) {
+                rejectedRows = Arrays.copyOf(rejectedRows, Math.max(4, rejectedCount * 2));
+                rejectedLines = Arrays.copyOf(rejectedLines, rejectedRows.length);
+            }
+            StringBuilder line = new StringBuilder().append(row).append(',');
+            appendCsv(line, receptor).append(",,,,");
+            appendCsv(line, reason).append('\n');
+            rejectedRows[rejectedCount] = row;
+            rejectedLines[rejectedCount++] = line.toString();
+        }
+
+        /**
+         * Appends the rejected lines from {@code next} on whose rows come before {@code row}.
+         *
+         * @return the index of the first rejected line not appended
+         */
+        int writeRejected(StringBuilder out, int next, long row) {
+            while (next < rejectedCount && rejectedRows[next] < row) {
+                out.append(rejectedLines[next++]);
+            }
+            return next;
+        }
+
+        boolean isDone() {
+            return future == null || future.isDone();
+        }
+    }
+}
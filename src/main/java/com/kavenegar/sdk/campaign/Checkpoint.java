@@ -0,0 +1,81 @@
+package com.kavenegar.sdk.campaign;
+
+import com.kavenegar.sdk.excepctions.CampaignException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Progress of a campaign run: every row up to {@link #row} has its result line in the first
+ * {@link #resultsLength} bytes of the results file, and the next row starts at input offset
+ * {@link #offset}.
+ * <p>
+ * Kept as a few {@code name=value} lines, written to a temporary file, forced and moved over the
+ * previous checkpoint, so a crash leaves either the old or the new one.
+ */
+final class Checkpoint {
+
+    final long inputSize;
+    final long row;
+    final long offset;
+    final long resultsLength;
+
+    Checkpoint(long inputSize, long row, long offset, long resultsLength) {
+        this.inputSize = inputSize;
+        this.row = row;
+        this.offset = offset;
+        this.resultsLength = resultsLength;
+    }
+
+    /**
+     * The checkpoint in {@code file}, or {@code null} if there is none.
+     */
+    static Checkpoint read(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            return new Checkpoint(value(lines, "input.size"), value(lines, "row"), value(lines, "offset"), value(lines, "results.length"));
+        } catch (IOException | RuntimeException e) {
+            throw new CampaignException("Failed to read campaign checkpoint " + file, e);
+        }
+    }
+
+    private static long value(List<String> lines, String name) {
+        for (String line : lines) {
+            if (line.startsWith(name + "=")) {
+                return Long.parseLong(line.substring(name.length() + 1).trim());
+            }
+        }
+        throw new IllegalArgumentException("missing " + name);
+    }
+
+    void write(Path file) {
+        String text = "input.size=" + inputSize + "\n"
+                + "row=" + row + "\n"
+                + "offset=" + offset + "\n"
+                + "results.length=" + resultsLength + "\n";
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new CampaignException("Failed to write campaign checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,586 @@
+package com.kavenegar.sdk.campaign;
+
+import com.kavenegar.sdk.excepctions.CampaignException;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the rows of a campaign file through a sliding memory-mapped window.
+ * <p>
+ * Each row is decoded into one reusable character buffer and its fields, unquoted or unescaped,
+ * into another; {@link #field(int)} returns views over the latter, so reading a row allocates
+ * nothing once the buffers have grown to the longest row. Only the fields named when the reader
+ * is opened are kept. Rows are numbered from 1, not counting a CSV header.
+ * Not thread-safe.
+ */
+final class RowReader implements AutoCloseable {
+
+    private static final long WINDOW_SIZE = 64L << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+    private final CampaignFormat format;
+    private final String[] names;
+    /**
+     * Field index of each CSV column, or -1 for columns that are not read.
+     */
+    private int[] columnFields = new int[0];
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long row;
+
+    private CharBuffer line = CharBuffer.allocate(1024);
+    private char[] chars = new char[1024];
+    private int length;
+    private final int[] starts;
+    private final int[] ends;
+    private final Field[] fields;
+    /**
+     * View of a JSON key while it is matched against the field names.
+     */
+    private final Field key = new Field(-1);
+    private boolean malformed;
+    private String error;
+
+    /**
+     * @param names fields to read, matched case-insensitively against the CSV header or JSON keys
+     */
+    RowReader(Path file, CampaignFormat format, String[] names) {
+        this.file = file;
+        this.format = format;
+        this.names = names;
+        this.starts = new int[names.length];
+        this.ends = new int[names.length];
+        this.fields = new Field[names.length];
+        for (int i = 0; i < names.length; i++) {
+            fields[i] = new Field(i);
+        }
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        } catch (IOException e) {
+            throw new CampaignException("Failed to open campaign file " + file, e);
+        }
+        skipByteOrderMark();
+    }
+
+    private void skipByteOrderMark() {
+        if (size >= 3 && byteAt(0) == (byte) 0xEF && byteAt(1) == (byte) 0xBB && byteAt(2) == (byte) 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Reads the CSV header and returns the column names; the reader is then at the first row.
+     */
+    List<String> readHeader() {
+        if (!nextLine()) {
+            throw new IllegalArgumentException("campaign file " + file + " has no header row");
+        }
+        if (malformed) {
+            throw new IllegalArgumentException("header of " + file + " is not valid UTF-8");
+        }
+        List<String> columns = new ArrayList<>();
+        int i = 0;
+        int n = line.limit();
+        char[] text = line.array();
+        while (true) {
+            length = 0;
+            i = csvField(text, i, n);
+            if (i < 0) {
+                throw new IllegalArgumentException("malformed header in " + file + ": " + error);
+            }
+            columns.add(new String(chars, 0, length).trim());
+            if (i >= n) {
+                break;
+            }
+            i++;
+        }
+        columnFields = new int[columns.size()];
+        for (int c = 0; c < columnFields.length; c++) {
+            columnFields[c] = indexOf(columns.get(c));
+        }
+        return columns;
+    }
+
+    private int indexOf(CharSequence name) {
+        for (int i = 0; i < names.length; i++) {
+            if (equalsIgnoreCase(names[i], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsIgnoreCase(String name, CharSequence text) {
+        int n = name.length();
+        if (text.length() != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            char a = name.charAt(i);
+            char b = text.charAt(i);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves to file offset {@code offset}, the start of row {@code rowNumber + 1}, as recorded by a
+     * checkpoint.
+     */
+    void seek(long offset, long rowNumber) {
+        if (offset < position || offset > size) {
+            throw new IllegalArgumentException("offset " + offset + " is outside the rows of " + file);
+        }
+        position = offset;
+        row = rowNumber;
+    }
+
+    /**
+     * Reads the next non-blank row.
+     *
+     * @return false at the end of the file
+     */
+    boolean next() {
+        while (nextLine()) {
+            if (!malformed && isBlank()) {
+                continue;
+            }
+            row++;
+            Arrays.fill(starts, -1);
+            length = 0;
+            error = null;
+            if (format == CampaignFormat.Csv) {
+                parseCsv();
+            } else {
+                parseJson();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isBlank() {
+        char[] text = line.array();
+        for (int i = 0, n = line.limit(); i < n; i++) {
+            if (!Character.isWhitespace(text[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of the current row.
+     */
+    long row() {
+        return row;
+    }
+
+    /**
+     * File offset just past the current row.
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * Why the current row could not be parsed, or {@code null} if it was.
+     */
+    String error() {
+        return error;
+    }
+
+    /**
+     * Field {@code index} of the current row, valid until the next row is read, or {@code null}
+     * if the row does not have it.
+     */
+    CharSequence field(int index) {
+        return starts[index] < 0 ? null : fields[index];
+    }
+
+    private byte byteAt(long offset) {
+        if (window == null || offset < windowStart || offset >= windowStart + window.capacity()) {
+            map(offset);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    private void map(long offset) {
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, size - offset));
+            windowStart = offset;
+        } catch (IOException e) {
+            throw new CampaignException("Failed to map campaign file " + file, e);
+        }
+    }
+
+    /**
+     * Decodes the next line into {@link #line}; a CSV line ends at the first newline outside quotes.
+     */
+    private boolean nextLine() {
+        if (position >= size) {
+            return false;
+        }
+        if (window == null || position < windowStart || position >= windowStart + window.capacity()) {
+            map(position);
+        }
+        boolean csv = format == CampaignFormat.Csv;
+        boolean quoted = false;
+        long end = position;
+        while (true) {
+            int relative = (int) (end - windowStart);
+            if (relative >= window.capacity()) {
+                if (end >= size) {
+                    break;
+                }
+                if (position == windowStart) {
+                    throw new IllegalArgumentException("row " + (row + 1) + " of " + file + " is longer than " + WINDOW_SIZE + " bytes");
+                }
+                // the row crosses the end of the window: map a new one starting at the row
+                map(position);
+                continue;
+            }
+            byte b = window.get(relative);
+            if (b == '\n' && !quoted) {
+                break;
+            }
+            if (csv && b == '"') {
+                quoted = !quoted;
+            }
+            end++;
+        }
+        int from = (int) (position - windowStart);
+        int to = (int) (end - windowStart);
+        if (to > from && window.get(to - 1) == '\r') {
+            to--;
+        }
+        decode(from, to);
+        position = Math.min(size, end + 1);
+        return true;
+    }
+
+    /**
+     * Decodes {@code window[from, to)} into {@link #line}, setting {@link #malformed} if it is not
+     * valid UTF-8.
+     */
+    private void decode(int from, int to) {
+        while (true) {
+            window.limit(to);
+            window.position(from);
+            line.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(window, line, true);
+            if (!result.isOverflow()) {
+                result = decoder.flush(line);
+            }
+            window.limit(window.capacity());
+            if (result.isOverflow()) {
+                line = CharBuffer.allocate(line.capacity() * 2);
+                continue;
+            }
+            line.flip();
+            malformed = result.isError();
+            return;
+        }
+    }
+
+    private void parseCsv() {
+        if (takeMalformed()) {
+            return;
+        }
+        char[] text = line.array();
+        int n = line.limit();
+        int i = 0;
+        for (int column = 0; ; column++) {
+            int start = length;
+            i = csvField(text, i, n);
+            if (i < 0) {
+                return;
+            }
+            int field = column < columnFields.length ? columnFields[column] : -1;
+            if (field >= 0) {
+                starts[field] = start;
+                ends[field] = length;
+            } else {
+                length = start;
+            }
+            if (i >= n) {
+                return;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Copies the CSV field at {@code i} into {@link #chars}, unquoted.
+     *
+     * @return the index of the comma after the field, {@code n} at the end of the line, or -1 with
+     * {@link #error} set
+     */
+    private int csvField(char[] text, int i, int n) {
+        if (i < n && text[i] == '"') {
+            i++;
+            while (true) {
+                if (i >= n) {
+                    error = "unterminated quoted field";
+                    return -1;
+                }
+                char c = text[i++];
+                if (c == '"') {
+                    if (i < n && text[i] == '"') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                put(c);
+            }
+            if (i < n && text[i] != ',') {
+                error = "text after a quoted field";
+                return -1;
+            }
+            return i;
+        }
+        while (i < n && text[i] != ',') {
+            put(text[i++]);
+        }
+        return i;
+    }
+
+    private void parseJson() {
+        if (takeMalformed()) {
+            return;
+        }
+        char[] text = line.array();
+        int n = line.limit();
+        int i = skipSpace(text, 0, n);
+        if (i >= n || text[i] != '{') {
+            error = "row is not a JSON object";
+            return;
+        }
+        i = skipSpace(text, i + 1, n);
+        if (i < n && text[i] == '}') {
+            return;
+        }
+        while (true) {
+            if (i >= n || text[i] != '"') {
+                error = "expected a quoted key";
+                return;
+            }
+            int keyStart = length;
+            i = jsonString(text, i + 1, n);
+            if (i < 0) {
+                return;
+            }
+            int field = indexOf(key.slice(keyStart, length));
+            length = keyStart;
+            i = skipSpace(text, i, n);
+            if (i >= n || text[i] != ':') {
+                error = "expected ':' after a key";
+                return;
+            }
+            i = skipSpace(text, i + 1, n);
+            int start = length;
+            boolean isNull = false;
+            if (i < n && text[i] == '"') {
+                i = jsonString(text, i + 1, n);
+                if (i < 0) {
+                    return;
+                }
+            } else if (i < n && (text[i] == '{' || text[i] == '[')) {
+                error = "nested values are not supported";
+                return;
+            } else {
+                int literal = i;
+                while (i < n && text[i] != ',' && text[i] != '}' && !Character.isWhitespace(text[i])) {
+                    put(text[i++]);
+                }
+                isNull = i - literal == 4 && text[literal] == 'n' && text[literal + 1] == 'u' && text[literal + 2] == 'l' && text[literal + 3] == 'l';
+                if (i == literal) {
+                    error = "missing value";
+                    return;
+                }
+            }
+            if (field >= 0 && !isNull) {
+                starts[field] = start;
+                ends[field] = length;
+            } else {
+                length = start;
+            }
+            i = skipSpace(text, i, n);
+            if (i < n && text[i] == ',') {
+                i = skipSpace(text, i + 1, n);
+                continue;
+            }
+            if (i < n && text[i] == '}' && skipSpace(text, i + 1, n) == n) {
+                return;
+            }
+            error = "expected ',' or '}'";
+            return;
+        }
+    }
+
+    /**
+     * Copies the JSON string starting after its opening quote at {@code i} into {@link #chars},
+     * unescaped.
+     *
+     * @return the index after the closing quote, or -1 with {@link #error} set
+     */
+    private int jsonString(char[] text, int i, int n) {
+        while (i < n) {
+            char c = text[i++];
+            if (c == '"') {
+                return i;
+            }
+            if (c != '\\') {
+                put(c);
+                continue;
+            }
+            if (i >= n) {
+                break;
+            }
+            char escaped = text[i++];
+            switch (escaped) {
+                case 'b':
+                    put('\b');
+                    break;
+                case 'f':
+                    put('\f');
+                    break;
+                case 'n':
+                    put('\n');
+                    break;
+                case 'r':
+                    put('\r');
+                    break;
+                case 't':
+                    put('\t');
+                    break;
+                case 'u':
+                    if (i + 4 > n) {
+                        error = "truncated \\u escape";
+                        return -1;
+                    }
+                    int code = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int digit = Character.digit(text[i++], 16);
+                        if (digit < 0) {
+                            error = "invalid \\u escape";
+                            return -1;
+                        }
+                        code = code * 16 + digit;
+                    }
+                    put((char) code);
+                    break;
+                default:
+                    // \" \\ \/ and, leniently, anything else stand for themselves
+                    put(escaped);
+                    break;
+            }
+        }
+        error = "unterminated string";
+        return -1;
+    }
+
+    private static int skipSpace(char[] text, int i, int n) {
+        while (i < n && Character.isWhitespace(text[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean takeMalformed() {
+        if (malformed) {
+            malformed = false;
+            error = "row is not valid UTF-8";
+            return true;
+        }
+        return false;
+    }
+
+    private void put(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    @Override
+    public void close() {
+        window = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new CampaignException("Failed to close campaign file " + file, e);
+        }
+    }
+
+    /**
+     * View of one field of the current row.
+     */
+    private final class Field implements CharSequence {
+
+        private final int index;
+        private int sliceStart = -1;
+        private int sliceEnd;
+
+        Field(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Turns this view, temporarily, into one over {@code chars[start, end)}.
+         */
+        Field slice(int start, int end) {
+            sliceStart = start;
+            sliceEnd = end;
+            return this;
+        }
+
+        private int start() {
+            return sliceStart >= 0 ? sliceStart : starts[index];
+        }
+
+        @Override
+        public int length() {
+            return (sliceStart >= 0 ? sliceEnd : ends[index]) - start();
+        }
+
+        @Override
+        public char charAt(int i) {
+            return chars[start() + i];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(chars, start() + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start(), length());
+        }
+    }
+}
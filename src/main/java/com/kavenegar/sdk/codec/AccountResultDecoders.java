@@ -0,0 +1,84 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.kavenegar.sdk.models.AccountConfigResult;
+import com.kavenegar.sdk.models.AccountInfoResult;
+
+import java.io.IOException;
+
+import static com.kavenegar.sdk.codec.JsonReaders.nextInt;
+import static com.kavenegar.sdk.codec.JsonReaders.nextLong;
+import static com.kavenegar.sdk.codec.JsonReaders.nextString;
+
+final class AccountResultDecoders {
+
+    private AccountResultDecoders() {
+    }
+
+    static final class Info implements EntryDecoder<AccountInfoResult> {
+        @Override
+        public AccountInfoResult decode(JsonReader reader) throws IOException {
+            long remainCredit = 0L;
+            long expireDate = 0L;
+            String type = "Unknown";
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "remaincredit":
+                        remainCredit = nextLong(reader, remainCredit);
+                        break;
+                    case "expiredate":
+                        expireDate = nextLong(reader, expireDate);
+                        break;
+                    case "type":
+                        type = nextString(reader, type);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new AccountInfoResult(remainCredit, expireDate, type);
+        }
+    }
+
+    static final class Config implements EntryDecoder<AccountConfigResult> {
+        @Override
+        public AccountConfigResult decode(JsonReader reader) throws IOException {
+            String apiLogs = "false";
+            String dailyReport = "false";
+            String debugMode = "false";
+            String defaultSender = "Unknown";
+            String resendFailed = "false";
+            int minCreditAlarm = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                // the API is inconsistent about the casing of these two keys
+                switch (reader.nextName()) {
+                    case "apilogs":
+                        apiLogs = nextString(reader, apiLogs);
+                        break;
+                    case "dailyreport":
+                        dailyReport = nextString(reader, dailyReport);
+                        break;
+                    case "debugmode":
+                        debugMode = nextString(reader, debugMode);
+                        break;
+                    case "DefaultSender":
+                        defaultSender = nextString(reader, defaultSender);
+                        break;
+                    case "resendfailed":
+                        resendFailed = nextString(reader, resendFailed);
+                        break;
+                    case "Mincreditalarm":
+                        minCreditAlarm = nextInt(reader, minCreditAlarm);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new AccountConfigResult(apiLogs, dailyReport, debugMode, defaultSender, minCreditAlarm, resendFailed);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.kavenegar.sdk.models.CountInboxResult;
+import com.kavenegar.sdk.models.CountOutboxResult;
+import com.kavenegar.sdk.models.CountPostalCodeResult;
+
+import java.io.IOException;
+
+import static com.kavenegar.sdk.codec.JsonReaders.nextLong;
+import static com.kavenegar.sdk.codec.JsonReaders.nextString;
+
+/**
+ * Decoders for the small count models, which share the {@code startdate/enddate/sumcount} layout.
+ */
+final class CountResultDecoders {
+
+    private CountResultDecoders() {
+    }
+
+    static final class Inbox implements EntryDecoder<CountInboxResult> {
+        @Override
+        public CountInboxResult decode(JsonReader reader) throws IOException {
+            long[] range = readRange(reader);
+            return new CountInboxResult(range[0], range[1], range[2]);
+        }
+    }
+
+    static final class Outbox implements EntryDecoder<CountOutboxResult> {
+        @Override
+        public CountOutboxResult decode(JsonReader reader) throws IOException {
+            long[] range = readRange(reader);
+            return new CountOutboxResult(range[0], range[1], range[2]);
+        }
+    }
+
+    static final class PostalCode implements EntryDecoder<CountPostalCodeResult> {
+        @Override
+        public CountPostalCodeResult decode(JsonReader reader) throws IOException {
+            String section = "";
+            long value = 0L;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "section":
+                        section = nextString(reader, section);
+                        break;
+                    case "value":
+                        value = nextLong(reader, value);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new CountPostalCodeResult(section, value);
+        }
+    }
+
+    /**
+     * @return {@code {startdate, enddate, sumcount}}
+     */
+    private static long[] readRange(JsonReader reader) throws IOException {
+        long[] range = new long[3];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "startdate":
+                    range[0] = nextLong(reader, 0L);
+                    break;
+                case "enddate":
+                    range[1] = nextLong(reader, 0L);
+                    break;
+                case "sumcount":
+                    range[2] = nextLong(reader, 0L);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return range;
+    }
+}
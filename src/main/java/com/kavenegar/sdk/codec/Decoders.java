@@ -0,0 +1,46 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.kavenegar.sdk.models.*;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * {@link EntryDecoder}s for the result models.
+ * <p>
+ * The built-in decoders read each field straight off the {@link JsonReader} and call the model's
+ * field constructor, so no intermediate {@link JsonObject} is built on the hot path.
+ * {@link #of(Function)} adapts a {@code JsonObject} constructor for models without a dedicated decoder.
+ */
+public final class Decoders {
+
+    private static final JsonParser PARSER = new JsonParser();
+
+    public static final EntryDecoder<SendResult> SEND_RESULT = new SendResultDecoder();
+    public static final EntryDecoder<StatusResult> STATUS_RESULT = StatusResultDecoder.status();
+    public static final EntryDecoder<StatusLocalMessageIdResult> STATUS_LOCAL_MESSAGE_ID_RESULT = StatusResultDecoder.statusLocalMessageId();
+    public static final EntryDecoder<ReceiveResult> RECEIVE_RESULT = new ReceiveResultDecoder();
+    public static final EntryDecoder<CountInboxResult> COUNT_INBOX_RESULT = new CountResultDecoders.Inbox();
+    public static final EntryDecoder<CountOutboxResult> COUNT_OUTBOX_RESULT = new CountResultDecoders.Outbox();
+    public static final EntryDecoder<CountPostalCodeResult> COUNT_POSTAL_CODE_RESULT = new CountResultDecoders.PostalCode();
+    public static final EntryDecoder<AccountInfoResult> ACCOUNT_INFO_RESULT = new AccountResultDecoders.Info();
+    public static final EntryDecoder<AccountConfigResult> ACCOUNT_CONFIG_RESULT = new AccountResultDecoders.Config();
+
+    private Decoders() {
+    }
+
+    /**
+     * Adapts a model constructor taking one entry's {@link JsonObject}.
+     */
+    public static <T> EntryDecoder<T> of(final Function<JsonObject, T> factory) {
+        return new EntryDecoder<T>() {
+            @Override
+            public T decode(JsonReader reader) throws IOException {
+                return factory.apply(PARSER.parse(reader).getAsJsonObject());
+            }
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Reads one element of a response's {@code entries} straight from the JSON stream.
+ *
+ * @param <T> the result model produced for each entry
+ */
+public interface EntryDecoder<T> {
+
+    /**
+     * Consumes exactly one JSON value from {@code reader} and returns the decoded model.
+     */
+    T decode(JsonReader reader) throws IOException;
+}
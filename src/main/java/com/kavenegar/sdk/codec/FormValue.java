@@ -0,0 +1,19 @@
+package com.kavenegar.sdk.codec;
+
+/**
+ * A list value that writes itself into a form body, e.g. receptors kept as numbers, instead of
+ * being joined element by element through {@code toString()}.
+ */
+public interface FormValue {
+
+    /**
+     * Writes the comma-joined, form-encoded value of the parameter started by
+     * {@link FormWriter#beginParam(String)}.
+     */
+    void writeFormValue(FormWriter out);
+
+    /**
+     * Writes the value as a form-encoded JSON array, as the array parameters of {@code sendarray} take.
+     */
+    void writeJsonArray(FormWriter out);
+}
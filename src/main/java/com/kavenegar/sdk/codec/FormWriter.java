@@ -0,0 +1,404 @@
+package com.kavenegar.sdk.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Writes an {@code application/x-www-form-urlencoded} request body straight into a reusable byte buffer.
+ * <p>
+ * Keys and values are UTF-8 percent-encoded char by char, numbers are written as digits without
+ * boxing, and lists are joined in place, so building a body allocates nothing once the buffer has
+ * grown to size. The filled buffer is handed to the transport as {@code (buffer(), 0, length())}
+ * without copying.
+ * <p>
+ * Writers come from a small lock-free pool: obtain one with {@link #acquire()} and call
+ * {@link #release()} exactly once, after the transport is done with the buffer.
+ * A writer is not thread-safe.
+ */
+public final class FormWriter {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+    private static final int POOL_SIZE = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+    private static final AtomicReferenceArray<FormWriter> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final String JSON_HEX = "0123456789abcdef";
+
+    private byte[] buffer;
+    private int length;
+
+    private FormWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Takes an empty writer from the pool, or creates one if the pool is empty.
+     */
+    public static FormWriter acquire() {
+        int start = poolIndex();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int index = (start + i) % POOL_SIZE;
+            FormWriter writer = POOL.get(index);
+            if (writer != null && POOL.compareAndSet(index, writer, null)) {
+                return writer;
+            }
+        }
+        return new FormWriter(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Clears the writer and returns it to the pool. Writers that grew unusually large are dropped instead.
+     */
+    public void release() {
+        length = 0;
+        if (buffer.length > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        int start = poolIndex();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int index = (start + i) % POOL_SIZE;
+            if (POOL.get(index) == null && POOL.compareAndSet(index, null, this)) {
+                return;
+            }
+        }
+    }
+
+    private static int poolIndex() {
+        return (int) (Thread.currentThread().getId() % POOL_SIZE);
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Drops everything written after the first {@code length} bytes, e.g. a value that could not be
+     * completed.
+     */
+    public void truncate(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IndexOutOfBoundsException("length " + length + ", written " + this.length);
+        }
+        this.length = length;
+    }
+
+    /**
+     * Appends {@code name=value}; a {@code null} value is skipped, as the API treats it as absent.
+     */
+    public FormWriter param(String name, CharSequence value) {
+        if (value == null) {
+            return this;
+        }
+        beginParam(name);
+        writeEncoded(value);
+        return this;
+    }
+
+    public FormWriter param(String name, long value) {
+        beginParam(name);
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Appends {@code name=value}, skipping the parameter when {@code value} is {@code null}.
+     */
+    public FormWriter param(String name, Long value) {
+        return value == null ? this : param(name, value.longValue());
+    }
+
+    /**
+     * Appends the values joined by commas as one parameter, e.g. {@code receptor=0912...%2C0935...}.
+     * A {@code null} list is skipped; {@code Long} and {@code Integer} elements are written as digits,
+     * and a {@link FormValue} list writes itself.
+     */
+    public FormWriter param(String name, Iterable<?> values) {
+        if (values == null) {
+            return this;
+        }
+        beginParam(name);
+        if (values instanceof FormValue) {
+            ((FormValue) values).writeFormValue(this);
+            return this;
+        }
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                writeEncoded(',');
+            }
+            first = false;
+            writeValue(value);
+        }
+        return this;
+    }
+
+    /**
+     * Appends elements {@code [from, to)} of {@code values} as a JSON array, written in place the
+     * way Gson serializes it: strings quoted and escaped, numbers as digits, {@code null} as
+     * {@code null}. A {@link FormValue} list writes itself.
+     */
+    public FormWriter jsonArrayParam(String name, List<?> values, int from, int to) {
+        beginParam(name);
+        if (values instanceof FormValue && from == 0 && to == values.size()) {
+            ((FormValue) values).writeJsonArray(this);
+            return this;
+        }
+        writeEncoded('[');
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                writeEncoded(',');
+            }
+            Object value = values.get(i);
+            if (value instanceof Long || value instanceof Integer) {
+                writeLong(((Number) value).longValue());
+            } else if (value == null) {
+                writeEncoded("null");
+            } else {
+                appendJsonString(value instanceof CharSequence ? (CharSequence) value : value.toString());
+            }
+        }
+        writeEncoded(']');
+        return this;
+    }
+
+    /**
+     * Appends the list in the {@code [a, b]} form of
+     * {@link java.util.AbstractCollection#toString()}, without building the string;
+     * {@code sendarray} has always taken its {@code localids} this way. A {@code null} list is
+     * skipped.
+     */
+    public FormWriter listParam(String name, List<?> values) {
+        if (values == null) {
+            return this;
+        }
+        beginParam(name);
+        writeEncoded('[');
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                writeEncoded(',');
+                writeEncoded(' ');
+            }
+            first = false;
+            writeValue(value);
+        }
+        writeEncoded(']');
+        return this;
+    }
+
+    /**
+     * Appends bytes that are already form-encoded, such as a body recorded earlier or a
+     * precomputed fragment; {@code encoded} must not start with {@code '&'}.
+     */
+    public FormWriter raw(byte[] encoded, int offset, int count) {
+        if (count == 0) {
+            return this;
+        }
+        ensureCapacity(count + 1);
+        if (length > 0) {
+            buffer[length++] = '&';
+        }
+        System.arraycopy(encoded, offset, buffer, length, count);
+        length += count;
+        return this;
+    }
+
+    /**
+     * Starts parameter {@code name}, whose value is then written piece by piece with the
+     * {@code append} methods, e.g. a JSON array rendered element by element.
+     */
+    public FormWriter beginParam(String name) {
+        if (length > 0) {
+            ensureCapacity(1);
+            buffer[length++] = '&';
+        }
+        writeEncoded(name);
+        ensureCapacity(1);
+        buffer[length++] = '=';
+        return this;
+    }
+
+    /**
+     * Appends bytes that are already form-encoded to the current value.
+     */
+    public FormWriter append(byte[] encoded, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(encoded, offset, buffer, length, count);
+        length += count;
+        return this;
+    }
+
+    /**
+     * Appends {@code value}, percent-encoded, to the current value.
+     */
+    public FormWriter append(CharSequence value) {
+        writeEncoded(value, 0, value.length());
+        return this;
+    }
+
+    public FormWriter append(long value) {
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Appends {@code value} as a quoted JSON string, escaped the way Gson writes it, then
+     * percent-encoded.
+     */
+    public FormWriter appendJsonString(CharSequence value) {
+        writeEncoded('"');
+        appendJsonChars(value);
+        writeEncoded('"');
+        return this;
+    }
+
+    /**
+     * Appends the JSON-escaped, percent-encoded characters of {@code value} without quotes, for
+     * building a JSON string from several pieces.
+     */
+    public FormWriter appendJsonChars(CharSequence value) {
+        int n = value.length();
+        int run = 0;
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            writeEncoded(value, run, i);
+            run = i + 1;
+            writeEncoded('\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    writeEncoded(c);
+                    break;
+                case '\t':
+                    writeEncoded('t');
+                    break;
+                case '\b':
+                    writeEncoded('b');
+                    break;
+                case '\n':
+                    writeEncoded('n');
+                    break;
+                case '\r':
+                    writeEncoded('r');
+                    break;
+                case '\f':
+                    writeEncoded('f');
+                    break;
+                default:
+                    writeEncoded('u');
+                    for (int shift = 12; shift >= 0; shift -= 4) {
+                        writeEncoded(JSON_HEX.charAt((c >> shift) & 0xF));
+                    }
+            }
+        }
+        writeEncoded(value, run, n);
+        return this;
+    }
+
+    private void writeValue(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof CharSequence) {
+            writeEncoded((CharSequence) value);
+        } else {
+            writeEncoded(String.valueOf(value));
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeEncoded(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = length + digits;
+        for (int i = end - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+    }
+
+    private void writeEncoded(CharSequence value) {
+        writeEncoded(value, 0, value.length());
+    }
+
+    private void writeEncoded(CharSequence value, int from, int to) {
+        ensureCapacity(to - from);
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeEncoded(c);
+            } else if (c < 0x800) {
+                writeEscaped(0xC0 | (c >> 6));
+                writeEscaped(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                writeEscaped(0xF0 | (cp >> 18));
+                writeEscaped(0x80 | ((cp >> 12) & 0x3F));
+                writeEscaped(0x80 | ((cp >> 6) & 0x3F));
+                writeEscaped(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, encoded as '?' like String.getBytes(UTF_8)
+                writeEncoded('?');
+            } else {
+                writeEscaped(0xE0 | (c >> 12));
+                writeEscaped(0x80 | ((c >> 6) & 0x3F));
+                writeEscaped(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Writes one ASCII char using the same rules as {@link java.net.URLEncoder}.
+     */
+    private void writeEncoded(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '.' || c == '-' || c == '*' || c == '_') {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+        } else if (c == ' ') {
+            ensureCapacity(1);
+            buffer[length++] = '+';
+        } else {
+            writeEscaped(c);
+        }
+    }
+
+    private void writeEscaped(int b) {
+        ensureCapacity(3);
+        buffer[length++] = '%';
+        buffer[length++] = HEX[(b >> 4) & 0xF];
+        buffer[length++] = HEX[b & 0xF];
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+}
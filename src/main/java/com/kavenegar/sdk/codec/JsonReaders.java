@@ -0,0 +1,52 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Null-tolerant primitive reads shared by the model decoders.
+ * Each method consumes exactly one value and returns {@code defaultValue} for JSON {@code null}.
+ */
+final class JsonReaders {
+
+    private JsonReaders() {
+    }
+
+    static String nextString(JsonReader reader, String defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return defaultValue;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean() ? "true" : "false";
+        }
+        return reader.nextString();
+    }
+
+    static long nextLong(JsonReader reader, long defaultValue) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return defaultValue;
+        }
+        return reader.nextLong();
+    }
+
+    static int nextInt(JsonReader reader, int defaultValue) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return defaultValue;
+        }
+        return reader.nextInt();
+    }
+
+    static Long nextLongOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+}
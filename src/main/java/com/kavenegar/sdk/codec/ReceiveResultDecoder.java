@@ -0,0 +1,46 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.kavenegar.sdk.models.ReceiveResult;
+
+import java.io.IOException;
+
+import static com.kavenegar.sdk.codec.JsonReaders.nextLongOrNull;
+import static com.kavenegar.sdk.codec.JsonReaders.nextString;
+
+final class ReceiveResultDecoder implements EntryDecoder<ReceiveResult> {
+
+    @Override
+    public ReceiveResult decode(JsonReader reader) throws IOException {
+        Long messageId = null;
+        String message = "";
+        String sender = "";
+        String receptor = "";
+        Long date = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "messageid":
+                    messageId = nextLongOrNull(reader);
+                    break;
+                case "message":
+                    message = nextString(reader, message);
+                    break;
+                case "sender":
+                    sender = nextString(reader, sender);
+                    break;
+                case "receptor":
+                    receptor = nextString(reader, receptor);
+                    break;
+                case "date":
+                    date = nextLongOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ReceiveResult(messageId, message, sender, receptor, date);
+    }
+}
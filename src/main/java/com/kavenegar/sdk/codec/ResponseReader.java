@@ -0,0 +1,95 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.kavenegar.sdk.excepctions.ApiException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes the {@code {"return": {...}, "entries": ...}} envelope of an API response in a single
+ * pass over the body stream.
+ * <p>
+ * Entries are handed to an {@link EntryDecoder} as they are read, so neither the body text nor a
+ * tree of the whole payload is ever held in memory.
+ */
+public final class ResponseReader {
+
+    private static final int STATUS_OK = 200;
+
+    private ResponseReader() {
+    }
+
+    /**
+     * Reads the response body and returns its entries in order.
+     * An {@code entries} object (as returned by the account endpoints) yields a one-element list
+     * and {@code null} entries yield an empty list.
+     *
+     * @throws ApiException when the envelope reports a status other than 200
+     * @throws IOException  when the body cannot be read or is not valid JSON
+     */
+    public static <T> List<T> read(InputStream body, EntryDecoder<T> decoder) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int status = -1;
+        String message = null;
+        List<T> entries = Collections.emptyList();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("return".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if ("status".equals(field)) {
+                        status = reader.nextInt();
+                    } else if ("message".equals(field) && reader.peek() != JsonToken.NULL) {
+                        message = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (status != STATUS_OK) {
+                    // the entries of a failed call carry nothing useful, stop reading here
+                    break;
+                }
+            } else if ("entries".equals(name)) {
+                entries = readEntries(reader, decoder);
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        if (status != STATUS_OK) {
+            throw new ApiException(message, status);
+        }
+        return entries;
+    }
+
+    private static <T> List<T> readEntries(JsonReader reader, EntryDecoder<T> decoder) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                List<T> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(decoder.decode(reader));
+                }
+                reader.endArray();
+                return list;
+            case BEGIN_OBJECT:
+                List<T> single = new ArrayList<>(1);
+                single.add(decoder.decode(reader));
+                return single;
+            default:
+                reader.skipValue();
+                return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.kavenegar.sdk.models.SendResult;
+
+import java.io.IOException;
+
+import static com.kavenegar.sdk.codec.JsonReaders.nextInt;
+import static com.kavenegar.sdk.codec.JsonReaders.nextLong;
+import static com.kavenegar.sdk.codec.JsonReaders.nextString;
+
+final class SendResultDecoder implements EntryDecoder<SendResult> {
+
+    @Override
+    public SendResult decode(JsonReader reader) throws IOException {
+        long messageId = 0L;
+        String message = "";
+        int status = -1;
+        String statusText = "";
+        String sender = "";
+        String receptor = "";
+        long date = 0L;
+        int cost = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "messageid":
+                    messageId = nextLong(reader, messageId);
+                    break;
+                case "message":
+                    message = nextString(reader, message);
+                    break;
+                case "status":
+                    status = nextInt(reader, status);
+                    break;
+                case "statustext":
+                    statusText = nextString(reader, statusText);
+                    break;
+                case "sender":
+                    sender = nextString(reader, sender);
+                    break;
+                case "receptor":
+                    receptor = nextString(reader, receptor);
+                    break;
+                case "date":
+                    date = nextLong(reader, date);
+                    break;
+                case "cost":
+                    cost = nextInt(reader, cost);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new SendResult(messageId, message, status, statusText, sender, receptor, date, cost);
+    }
+}
@@ -0,0 +1,68 @@
+package com.kavenegar.sdk.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.kavenegar.sdk.enums.MessageStatus;
+import com.kavenegar.sdk.models.StatusLocalMessageIdResult;
+import com.kavenegar.sdk.models.StatusResult;
+
+import java.io.IOException;
+
+import static com.kavenegar.sdk.codec.JsonReaders.nextInt;
+import static com.kavenegar.sdk.codec.JsonReaders.nextLong;
+import static com.kavenegar.sdk.codec.JsonReaders.nextString;
+
+/**
+ * Decodes both {@link StatusResult} and, when {@code withLocalId} is set, {@link StatusLocalMessageIdResult}.
+ */
+final class StatusResultDecoder<T extends StatusResult> implements EntryDecoder<T> {
+
+    private final boolean withLocalId;
+
+    private StatusResultDecoder(boolean withLocalId) {
+        this.withLocalId = withLocalId;
+    }
+
+    static StatusResultDecoder<StatusResult> status() {
+        return new StatusResultDecoder<>(false);
+    }
+
+    static StatusResultDecoder<StatusLocalMessageIdResult> statusLocalMessageId() {
+        return new StatusResultDecoder<>(true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(JsonReader reader) throws IOException {
+        int messageId = -1;
+        int status = -1;
+        String statusText = "";
+        long localId = -1L;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "messageid":
+                    messageId = nextInt(reader, messageId);
+                    break;
+                case "status":
+                    status = nextInt(reader, status);
+                    break;
+                case "statustext":
+                    statusText = nextString(reader, statusText);
+                    break;
+                case "localid":
+                    localId = nextLong(reader, localId);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        MessageStatus messageStatus = MessageStatus.valueOf(status);
+        if (withLocalId) {
+            return (T) new StatusLocalMessageIdResult(messageId, messageStatus, statusText, localId);
+        }
+        return (T) new StatusResult(messageId, messageStatus, statusText);
+    }
+}
@@ -0,0 +1,97 @@
+package com.kavenegar.sdk.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ * <p>
+ * Values are kept in microseconds: exactly below 64&micro;s, then in 32 buckets per power of two,
+ * so any percentile is reported within about 3% of the true value. Recording is one atomic
+ * increment; reading a percentile scans the fixed set of buckets and can run concurrently with
+ * recording, at the cost of not being an exact snapshot.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Largest value tracked, about 12 days; longer latencies are counted in the last bucket.
+     */
+    private static final long MAX_MICROS = (1L << 40) - 1;
+    private static final int BUCKETS = index(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, Math.min(MAX_MICROS, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        counts.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        long seen;
+        while (nanos > (seen = max.get()) && !max.compareAndSet(seen, nanos)) {
+            // retry with the newer maximum
+        }
+    }
+
+    private static int index(long micros) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (micros >>> shift);
+    }
+
+    /**
+     * Highest value the bucket at {@code index} holds, in microseconds.
+     */
+    private static long upperBound(int index) {
+        int shift = index < 2 * SUB_BUCKETS ? 0 : (index >> SUB_BUCKET_BITS) - 1;
+        long lower = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Latency below which {@code percentile} of the recorded values fall, e.g. {@code 0.99}
+     * for p99, or 0 if nothing was recorded.
+     */
+    public long percentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1: " + percentile);
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(TimeUnit.MICROSECONDS.toNanos(upperBound(i) + 1), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded values. Values recorded while the reset runs may or may not survive it.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,173 @@
+package com.kavenegar.sdk.concurrent;
+
+import com.kavenegar.sdk.excepctions.BaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs independent API calls concurrently with a hard cap on how many are in flight.
+ * <p>
+ * {@code KavenegarApi} uses it to fan out internal work such as batched status queries.
+ * The cap is a {@link Semaphore} rather than a fixed thread pool, so on Java 21 each call
+ * can get its own cheap virtual thread (see {@link #virtualThreads(int)}) while the
+ * semaphore keeps the load on the connection pool and the API bounded.
+ */
+public class ParallelExecutor implements AutoCloseable {
+
+    private static final ParallelExecutor SAME_THREAD = new ParallelExecutor(null, 1);
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * @param executor       runs the tasks; owned by this instance and shut down in {@link #close()}
+     * @param maxConcurrency maximum number of tasks running at once
+     */
+    public ParallelExecutor(ExecutorService executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * One virtual thread per task on Java 21+, daemon platform threads otherwise.
+     */
+    public static ParallelExecutor virtualThreads(int maxConcurrency) {
+        return new ParallelExecutor(VirtualThreads.newPerTaskExecutor(), maxConcurrency);
+    }
+
+    /**
+     * Runs every task on the calling thread, one after another. This is the default.
+     */
+    public static ParallelExecutor sameThread() {
+        return SAME_THREAD;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Number of tasks currently running.
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Submits {@code task}, blocking the caller while {@code maxConcurrency} tasks are already running.
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        if (executor == null) {
+            throw new IllegalStateException("same-thread executor does not accept submissions");
+        }
+        permits.acquireUninterruptibly();
+        try {
+            return executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs all tasks and returns their results in input order.
+     * Waits for every task to finish, then rethrows the first failure, if any.
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws BaseException {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (executor == null || tasks.size() == 1) {
+            for (Callable<T> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(submit(task));
+        }
+        RuntimeException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(await(future));
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                results.add(null);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Waits for {@code future}, unwrapping the task's own exception.
+     */
+    public static <T> T await(Future<T> future) throws BaseException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw unwrap(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        BaseException wrapped = new BaseException(String.valueOf(cause));
+        wrapped.initCause(cause);
+        return wrapped;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.kavenegar.sdk.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Events per second over a sliding window of whole seconds.
+ * <p>
+ * Every second has its own counter slot in a small ring; {@link #mark(long)} is one atomic add,
+ * and {@link #ratePerSecond()} averages the seconds that are complete.
+ */
+public final class RateMeter {
+
+    private final int windowSeconds;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray epochs;
+
+    public RateMeter(int windowSeconds) {
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("windowSeconds must be positive: " + windowSeconds);
+        }
+        this.windowSeconds = windowSeconds;
+        this.counts = new AtomicLongArray(windowSeconds + 1);
+        this.epochs = new AtomicLongArray(windowSeconds + 1);
+    }
+
+    public void mark() {
+        mark(1);
+    }
+
+    public void mark(long events) {
+        long second = System.nanoTime() / 1_000_000_000L;
+        int slot = (int) (second % counts.length());
+        long epoch = epochs.get(slot);
+        if (epoch != second && epochs.compareAndSet(slot, epoch, second)) {
+            counts.set(slot, 0);
+        }
+        counts.addAndGet(slot, events);
+    }
+
+    /**
+     * Average events per second over the last {@code windowSeconds} complete seconds.
+     */
+    public double ratePerSecond() {
+        long now = System.nanoTime() / 1_000_000_000L;
+        long total = 0;
+        for (long second = now - windowSeconds; second < now; second++) {
+            int slot = (int) (second % counts.length());
+            if (epochs.get(slot) == second) {
+                total += counts.get(slot);
+            }
+        }
+        return (double) total / windowSeconds;
+    }
+}
@@ -0,0 +1,67 @@
+package com.kavenegar.sdk.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for an older release.
+ * <p>
+ * The SDK targets Java 11, so {@code Executors.newVirtualThreadPerTaskExecutor()} is looked up
+ * reflectively once. On older runtimes callers get a cached pool of daemon platform threads instead.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true when the running JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when available, otherwise a cached pool of
+     * daemon threads. Either way the executor itself is unbounded; bound it with a
+     * {@link ParallelExecutor}.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // fall back to platform threads below
+            }
+        }
+        return Executors.newCachedThreadPool(daemonThreads("kavenegar-worker"));
+    }
+
+    /**
+     * Thread factory for named daemon platform threads, {@code prefix-1}, {@code prefix-2}, ...
+     */
+    public static ThreadFactory daemonThreads(final String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, prefix + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
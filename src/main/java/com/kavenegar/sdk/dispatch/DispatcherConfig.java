@@ -0,0 +1,51 @@
+package com.kavenegar.sdk.dispatch;
+
+/**
+ * Settings for a {@link SendDispatcher}.
+ */
+public class DispatcherConfig {
+
+    private int queueCapacity = 10000;
+    private int workers = 16;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.Block;
+
+    /**
+     * Maximum number of jobs waiting to be sent.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Number of threads draining the queue, and so the maximum number of requests in flight.
+     * Keep it at or below the connection pool's per-route limit.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatcherConfig{" +
+                "queueCapacity=" + queueCapacity +
+                ", workers=" + workers +
+                ", overflowPolicy=" + overflowPolicy +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.kavenegar.sdk.dispatch;
+
+/**
+ * What {@link SendDispatcher} does with a job submitted while its queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The submitting thread waits until a slot frees up.
+     */
+    Block,
+    /**
+     * {@code submit} throws a {@link com.kavenegar.sdk.excepctions.QueueFullException}.
+     */
+    Reject,
+    /**
+     * {@code submit} returns at once with a future already failed with a
+     * {@link com.kavenegar.sdk.excepctions.QueueFullException}.
+     */
+    FailFuture
+}
@@ -0,0 +1,260 @@
+package com.kavenegar.sdk.dispatch;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.concurrent.BoundedQueue;
+import com.kavenegar.sdk.concurrent.RateMeter;
+import com.kavenegar.sdk.concurrent.VirtualThreads;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.excepctions.QueueFullException;
+import com.kavenegar.sdk.models.SendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues send jobs and drains them with a fixed set of workers over one {@link KavenegarApi}.
+ * <p>
+ * Callers hand over jobs, possibly a burst of hundreds of thousands, and get a future per job;
+ * the workers keep at most {@link DispatcherConfig#getWorkers()} requests in flight on the
+ * client's shared connection pool. The queue is a lock-free {@link BoundedQueue}; when it is
+ * full the {@link OverflowPolicy} decides whether the caller blocks, gets an exception or gets
+ * a failed future.
+ * <p>
+ * Queue depth, counters and throughput can be read at any time for monitoring.
+ */
+public class SendDispatcher implements AutoCloseable {
+
+    private final KavenegarApi api;
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+    private final BoundedQueue<Task<?>> queue;
+    private final Semaphore freeSlots;
+    private final Semaphore queuedJobs = new Semaphore(0);
+    private final List<Thread> workers;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicInteger enqueuing = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final RateMeter messageRate = new RateMeter(5);
+
+    private volatile boolean closed;
+
+    public SendDispatcher(KavenegarApi api, DispatcherConfig config) {
+        if (config.getQueueCapacity() < 1 || config.getWorkers() < 1 || config.getOverflowPolicy() == null) {
+            throw new IllegalArgumentException("invalid dispatcher config: " + config);
+        }
+        this.api = api;
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.capacity = config.getQueueCapacity();
+        this.queue = new BoundedQueue<>(capacity);
+        this.freeSlots = new Semaphore(capacity);
+        this.workers = new ArrayList<>(config.getWorkers());
+        ThreadFactory threads = VirtualThreads.daemonThreads("kavenegar-dispatcher");
+        for (int i = 0; i < config.getWorkers(); i++) {
+            Thread worker = threads.newThread(this::drain);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues {@code job}, applying the overflow policy if the queue is full.
+     *
+     * @throws QueueFullException    with {@link OverflowPolicy#Reject} when the queue is full
+     * @throws IllegalStateException if the dispatcher is closed
+     */
+    public <T> CompletableFuture<T> submit(SendJob<T> job) {
+        ensureOpen();
+        if (!freeSlots.tryAcquire()) {
+            switch (overflowPolicy) {
+                case Block:
+                    freeSlots.acquireUninterruptibly();
+                    break;
+                case Reject:
+                    rejected.increment();
+                    throw queueFull();
+                default:
+                    rejected.increment();
+                    CompletableFuture<T> failedFuture = new CompletableFuture<>();
+                    failedFuture.completeExceptionally(queueFull());
+                    return failedFuture;
+            }
+        }
+        return enqueue(job);
+    }
+
+    /**
+     * Queues {@code job}, waiting at most {@code timeout} for a free slot regardless of the overflow policy.
+     *
+     * @throws QueueFullException if no slot became free in time
+     */
+    public <T> CompletableFuture<T> submit(SendJob<T> job, long timeout, TimeUnit unit) throws InterruptedException {
+        ensureOpen();
+        if (!freeSlots.tryAcquire(timeout, unit)) {
+            rejected.increment();
+            throw queueFull();
+        }
+        return enqueue(job);
+    }
+
+    public CompletableFuture<List<SendResult>> send(String sender, List<String> receptors, String message, MessageType type, long date, List<String> localIds) {
+        return submit(SendJob.send(sender, receptors, message, type, date, localIds));
+    }
+
+    public CompletableFuture<List<SendResult>> sendArray(List<String> senders, List<String> receptors, List<String> messages, List<MessageType> types, long date, List<String> localIds) {
+        return submit(SendJob.sendArray(senders, receptors, messages, types, date, localIds));
+    }
+
+    public CompletableFuture<SendResult> verifyLookup(String receptor, String token, String token2, String token3, String template) {
+        return submit(SendJob.verifyLookup(receptor, token, token2, token3, template));
+    }
+
+    private <T> CompletableFuture<T> enqueue(SendJob<T> job) {
+        Task<T> task = new Task<>(job);
+        // workers only exit once no producer is between this check and the release below
+        enqueuing.incrementAndGet();
+        try {
+            if (closed) {
+                freeSlots.release();
+                throw new IllegalStateException("SendDispatcher is closed");
+            }
+            // cannot fail: the slot permit guarantees room, and the ring is at least as large as the capacity
+            queue.offer(task);
+            submitted.increment();
+            queuedJobs.release();
+        } finally {
+            enqueuing.decrementAndGet();
+        }
+        return task.result;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("SendDispatcher is closed");
+        }
+    }
+
+    private QueueFullException queueFull() {
+        return new QueueFullException("Send queue is full", capacity);
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                if (!queuedJobs.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    if (closed && enqueuing.get() == 0 && queuedJobs.availablePermits() == 0) {
+                        return;
+                    }
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            Task<?> task;
+            while ((task = queue.poll()) == null) {
+                // a job is counted but its producer is still publishing it
+                Thread.yield();
+            }
+            freeSlots.release();
+            activeWorkers.incrementAndGet();
+            try {
+                run(task);
+            } finally {
+                activeWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        try {
+            T value = task.job.run(api);
+            completed.increment();
+            messageRate.mark(task.job.size());
+            task.result.complete(value);
+        } catch (Throwable e) {
+            failed.increment();
+            task.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Jobs waiting in the queue, not counting those being sent.
+     */
+    public int getQueueDepth() {
+        return capacity - freeSlots.availablePermits();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Workers currently waiting on a request.
+     */
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Messages sent per second, averaged over the last five seconds.
+     */
+    public double getThroughput() {
+        return messageRate.ratePerSecond();
+    }
+
+    /**
+     * Stops accepting jobs and waits for the workers to send everything already queued.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Task<T> {
+
+        final SendJob<T> job;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(SendJob<T> job) {
+            this.job = job;
+        }
+    }
+}
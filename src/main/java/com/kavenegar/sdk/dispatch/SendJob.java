@@ -0,0 +1,81 @@
+package com.kavenegar.sdk.dispatch;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.batch.SendArrayBatch;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.models.SendResult;
+
+import java.util.List;
+
+/**
+ * One unit of work for a {@link SendDispatcher}: a call against the dispatcher's client.
+ *
+ * @param <T> result of the call
+ */
+public interface SendJob<T> {
+
+    T run(KavenegarApi api);
+
+    /**
+     * Number of messages the job sends, used for throughput metrics.
+     */
+    default int size() {
+        return 1;
+    }
+
+    static SendJob<List<SendResult>> send(final String sender, final List<String> receptors, final String message,
+                                          final MessageType type, final long date, final List<String> localIds) {
+        return new SendJob<List<SendResult>>() {
+            @Override
+            public List<SendResult> run(KavenegarApi api) {
+                return api.send(sender, receptors, message, type, date, localIds);
+            }
+
+            @Override
+            public int size() {
+                return receptors.size();
+            }
+        };
+    }
+
+    static SendJob<List<SendResult>> sendArray(final List<String> senders, final List<String> receptors, final List<String> messages,
+                                               final List<MessageType> types, final long date, final List<String> localIds) {
+        return new SendJob<List<SendResult>>() {
+            @Override
+            public List<SendResult> run(KavenegarApi api) {
+                return api.sendArray(senders, receptors, messages, types, date, localIds);
+            }
+
+            @Override
+            public int size() {
+                return receptors.size();
+            }
+        };
+    }
+
+    /**
+     * Sends {@code batch} and then closes it.
+     */
+    static SendJob<List<SendResult>> sendArray(final SendArrayBatch batch) {
+        return new SendJob<List<SendResult>>() {
+            @Override
+            public List<SendResult> run(KavenegarApi api) {
+                try {
+                    return api.sendArray(batch);
+                } finally {
+                    batch.close();
+                }
+            }
+
+            @Override
+            public int size() {
+                return batch.size();
+            }
+        };
+    }
+
+    static SendJob<SendResult> verifyLookup(final String receptor, final String token, final String token2,
+                                            final String token3, final String template) {
+        return api -> api.verifyLookup(receptor, token, token2, token3, template);
+    }
+}
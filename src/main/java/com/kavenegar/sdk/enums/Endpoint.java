@@ -0,0 +1,76 @@
+package com.kavenegar.sdk.enums;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The REST methods exposed by the Kavenegar API, keyed by their path below {@code /v1/{apikey}/}.
+ */
+public enum Endpoint {
+
+    SmsSend("sms/send", EndpointFamily.Sms, false),
+    SmsSendArray("sms/sendarray", EndpointFamily.Sms, false),
+    SmsStatus("sms/status", EndpointFamily.Sms, true),
+    SmsStatusLocalMessageId("sms/statuslocalmessageid", EndpointFamily.Sms, true),
+    SmsSelect("sms/select", EndpointFamily.Sms, true),
+    SmsSelectOutbox("sms/selectoutbox", EndpointFamily.Sms, true),
+    SmsLatestOutbox("sms/latestoutbox", EndpointFamily.Sms, true),
+    SmsCountOutbox("sms/countoutbox", EndpointFamily.Sms, true),
+    SmsCancel("sms/cancel", EndpointFamily.Sms, false),
+    SmsReceive("sms/receive", EndpointFamily.Sms, false),
+    SmsCountInbox("sms/countinbox", EndpointFamily.Sms, true),
+    SmsSendPostalCode("sms/sendpostalcode", EndpointFamily.Sms, false),
+    SmsCountPostalCode("sms/countpostalcode", EndpointFamily.Sms, true),
+    AccountInfo("account/info", EndpointFamily.Account, true),
+    AccountConfig("account/config", EndpointFamily.Account, false),
+    VerifyLookup("verify/lookup", EndpointFamily.Verify, false),
+    CallMakeTts("call/maketts", EndpointFamily.Call, false);
+
+    private static final Map<String, Endpoint> BY_PATH = new HashMap<>();
+
+    static {
+        for (Endpoint endpoint : values()) {
+            BY_PATH.put(endpoint.path, endpoint);
+        }
+    }
+
+    private final String path;
+    private final EndpointFamily family;
+    private final boolean idempotent;
+
+    private Endpoint(String path, EndpointFamily family, boolean idempotent) {
+        this.path = path;
+        this.family = family;
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Gets the method path, e.g. {@code sms/send}.
+     *
+     * @return the path without the {@code .json} suffix
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Maps a method path, e.g. {@code sms/send}, to its endpoint.
+     *
+     * @return the endpoint, or {@code null} if the path is unknown
+     */
+    public static Endpoint fromPath(String path) {
+        return BY_PATH.get(path);
+    }
+
+    public EndpointFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * Whether the method only reads, so posting it twice has the same effect as posting it once.
+     * {@code sms/receive} is not, as it marks the messages it returns as read.
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
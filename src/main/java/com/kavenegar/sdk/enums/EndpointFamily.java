@@ -0,0 +1,12 @@
+package com.kavenegar.sdk.enums;
+
+/**
+ * Groups of endpoints that share server-side capacity, e.g. for rate limiting.
+ */
+public enum EndpointFamily {
+
+    Sms,
+    Verify,
+    Call,
+    Account
+}
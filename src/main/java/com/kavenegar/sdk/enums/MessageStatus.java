@@ -17,6 +17,22 @@ public enum MessageStatus {
 
     private final int value;
 
+    /**
+     * Lookup table indexed by status code, so decoding a status never scans or clones {@code values()}.
+     */
+    private static final MessageStatus[] BY_VALUE;
+
+    static {
+        int max = 0;
+        for (MessageStatus status : values()) {
+            max = Math.max(max, status.value);
+        }
+        BY_VALUE = new MessageStatus[max + 1];
+        for (MessageStatus status : values()) {
+            BY_VALUE[status.value] = status;
+        }
+    }
+
     MessageStatus(int type) {
         this.value = type;
     }
@@ -26,12 +42,7 @@ public enum MessageStatus {
     }
 
     public static MessageStatus valueOf(int type) {
-        for (MessageStatus code : MessageStatus.values()) {
-            if (type == code.getValue()) {
-                return code;
-            }
-        }
-        return null;
+        return type >= 0 && type < BY_VALUE.length ? BY_VALUE[type] : null;
     }
 
     /**
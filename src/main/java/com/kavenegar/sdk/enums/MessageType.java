@@ -18,6 +18,19 @@ public enum MessageType {
 
     private final int value;
 
+    private static final MessageType[] BY_VALUE;
+
+    static {
+        int max = 0;
+        for (MessageType type : values()) {
+            max = Math.max(max, type.value);
+        }
+        BY_VALUE = new MessageType[max + 1];
+        for (MessageType type : values()) {
+            BY_VALUE[type.value] = type;
+        }
+    }
+
     private MessageType(int type) {
         this.value = type;
     }
@@ -38,12 +51,7 @@ public enum MessageType {
      * @return the MessageType if found, otherwise null
      */
     public static MessageType valueOf(int type) {
-        for (MessageType code : MessageType.values()) {
-            if (type == code.getValue()) {
-                return code;
-            }
-        }
-        return null;
+        return type >= 0 && type < BY_VALUE.length ? BY_VALUE[type] : null;
     }
 
     /**
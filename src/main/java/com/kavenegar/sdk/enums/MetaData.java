@@ -40,6 +40,23 @@ public enum MetaData {
 
     private final int code;
 
+    /**
+     * Codes are contiguous from {@link #NOT_CHECKED}, so the table is indexed by {@code code - BASE}.
+     */
+    private static final int BASE = 99;
+    private static final MetaData[] BY_CODE;
+
+    static {
+        int max = BASE;
+        for (MetaData m : values()) {
+            max = Math.max(max, m.code);
+        }
+        BY_CODE = new MetaData[max - BASE + 1];
+        for (MetaData m : values()) {
+            BY_CODE[m.code - BASE] = m;
+        }
+    }
+
     MetaData(int code) {
         this.code = code;
     }
@@ -62,10 +79,8 @@ public enum MetaData {
      * @return matching MetaData or {@code null} when unknown
      */
     public static MetaData fromValue(int value) {
-        for (MetaData m : MetaData.values()) {
-            if (m.code == value) return m;
-        }
-        return null;
+        int index = value - BASE;
+        return index >= 0 && index < BY_CODE.length ? BY_CODE[index] : null;
     }
 
     @Override
@@ -21,6 +21,6 @@ public class ApiException extends BaseException {
     }
 
     public MetaData getCode() {
-        return MetaData.valueOf(code);
+        return MetaData.fromValue(code);
     }
 }
@@ -0,0 +1,12 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown when a campaign's input, results or checkpoint file cannot be read or written.
+ */
+public class CampaignException extends BaseException {
+
+    public CampaignException(String message, Throwable cause) {
+        super(message);
+        initCause(cause);
+    }
+}
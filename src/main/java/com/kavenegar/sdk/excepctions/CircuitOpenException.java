@@ -0,0 +1,29 @@
+package com.kavenegar.sdk.excepctions;
+
+import com.kavenegar.sdk.enums.EndpointFamily;
+
+/**
+ * Thrown without contacting the API while the circuit breaker of an endpoint family is open.
+ */
+public class CircuitOpenException extends BaseException {
+
+    private final EndpointFamily family;
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(String message, EndpointFamily family, long retryAfterMillis) {
+        super(message);
+        this.family = family;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public EndpointFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * Time until the breaker lets probe requests through again; 0 while it is already probing.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown when no request slot frees up within the adaptive concurrency limiter's maximum wait.
+ */
+public class ConcurrencyLimitExceededException extends BaseException {
+
+    private final int limit;
+
+    public ConcurrencyLimitExceededException(String message, int limit) {
+        super(message);
+        this.limit = limit;
+    }
+
+    /**
+     * The concurrency limit in force when the request gave up.
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown when a request has not answered within its deadline. The request may still reach the API.
+ */
+public class DeadlineExceededException extends BaseException {
+
+    private final long deadlineMillis;
+
+    public DeadlineExceededException(String message, long deadlineMillis) {
+        super(message);
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+}
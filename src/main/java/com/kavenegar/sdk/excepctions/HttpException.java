@@ -17,6 +17,16 @@ public class HttpException extends BaseException {
         this.code = code;
     }
 
+    /**
+     * @param cause the transport failure, kept so callers and retry policies can tell
+     *              a connect timeout from a reset connection
+     */
+    public HttpException(String message, int code, Throwable cause) {
+        super(message);
+        this.code = code;
+        initCause(cause);
+    }
+
     public int getCode() {
         return code;
     }
@@ -0,0 +1,16 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown when the outbox journal, or the store of a send scheduler, cannot be read or written.
+ */
+public class JournalException extends BaseException {
+
+    public JournalException(String message) {
+        super(message);
+    }
+
+    public JournalException(String message, Throwable cause) {
+        super(message);
+        initCause(cause);
+    }
+}
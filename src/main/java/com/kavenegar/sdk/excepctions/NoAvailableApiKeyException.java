@@ -0,0 +1,11 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown by a multi-key client when every API key has been taken out of rotation.
+ */
+public class NoAvailableApiKeyException extends BaseException {
+
+    public NoAvailableApiKeyException(String message) {
+        super(message);
+    }
+}
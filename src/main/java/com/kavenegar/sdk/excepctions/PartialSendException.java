@@ -0,0 +1,82 @@
+package com.kavenegar.sdk.excepctions;
+
+import com.kavenegar.sdk.models.SendResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a send was split into several requests and at least one of them failed.
+ * <p>
+ * The results of the requests that succeeded are kept, in the order of the original receptor
+ * list, and each failed request is described by a {@link ChunkFailure}. The cause is the
+ * first failure.
+ */
+public class PartialSendException extends BaseException {
+
+    private final List<SendResult> results;
+    private final List<ChunkFailure> failures;
+
+    public PartialSendException(List<SendResult> results, List<ChunkFailure> failures) {
+        super(failures.size() + " of the receptor chunks failed, " + results.size() + " messages were sent");
+        this.results = Collections.unmodifiableList(results);
+        this.failures = Collections.unmodifiableList(failures);
+        if (!failures.isEmpty()) {
+            initCause(failures.get(0).getCause());
+        }
+    }
+
+    /**
+     * Results of the chunks that were accepted, in receptor order.
+     */
+    public List<SendResult> getResults() {
+        return results;
+    }
+
+    public List<ChunkFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * A rejected chunk: the receptors at {@code [fromIndex, toIndex)} of the original list.
+     */
+    public static class ChunkFailure {
+
+        private final int fromIndex;
+        private final int toIndex;
+        private final List<String> receptors;
+        private final BaseException cause;
+
+        public ChunkFailure(int fromIndex, int toIndex, List<String> receptors, BaseException cause) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.receptors = receptors;
+            this.cause = cause;
+        }
+
+        public int getFromIndex() {
+            return fromIndex;
+        }
+
+        public int getToIndex() {
+            return toIndex;
+        }
+
+        public List<String> getReceptors() {
+            return receptors;
+        }
+
+        public BaseException getCause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return "ChunkFailure{" +
+                    "fromIndex=" + fromIndex +
+                    ", toIndex=" + toIndex +
+                    ", cause=" + cause +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown, or used to fail a future, when a job is offered to a full send queue.
+ */
+public class QueueFullException extends BaseException {
+
+    private final int capacity;
+
+    public QueueFullException(String message, int capacity) {
+        super(message);
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,11 @@
+package com.kavenegar.sdk.excepctions;
+
+/**
+ * Thrown when a request would have to wait longer than the rate limiter allows.
+ */
+public class RateLimitExceededException extends BaseException {
+
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
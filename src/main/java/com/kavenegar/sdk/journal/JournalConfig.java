@@ -0,0 +1,41 @@
+package com.kavenegar.sdk.journal;
+
+/**
+ * Settings for an {@link OutboxJournal}.
+ */
+public class JournalConfig {
+
+    private int segmentSize = 64 * 1024 * 1024;
+    private long flushIntervalMillis = 2L;
+
+    /**
+     * Size in bytes of each memory-mapped journal file; a new file is started when one is full.
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Longest time the flusher waits before forcing written records to disk. Every append made
+     * in that window is covered by the same fsync.
+     */
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalConfig{" +
+                "segmentSize=" + segmentSize +
+                ", flushIntervalMillis=" + flushIntervalMillis +
+                '}';
+    }
+}
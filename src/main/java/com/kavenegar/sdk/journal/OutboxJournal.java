@@ -0,0 +1,474 @@
+package com.kavenegar.sdk.journal;
+
+import com.kavenegar.sdk.concurrent.VirtualThreads;
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.excepctions.JournalException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of outbound send requests.
+ * <p>
+ * Before a request is posted, {@link #recordPending} appends its endpoint, local ids and encoded
+ * body, and returns once the record is on disk. After the API answers, {@link #recordAck} appends
+ * the message ids. Entries without an ack after a crash are returned by {@link #pendingEntries()}
+ * so the client can check them with {@code statusLocalMessageId} and resend only what the API
+ * never received.
+ * <p>
+ * Records are copied into memory-mapped segment files under a short lock. A single flusher thread
+ * forces the segment to disk, so every append made while one fsync runs is covered by the next:
+ * callers wait for a shared flush instead of paying for their own. Segments whose entries are all
+ * acknowledged are deleted, oldest first.
+ * <p>
+ * Each record is {@code [int length][byte type][long sequence][payload][int crc32]}; scanning stops
+ * at a zero length or a checksum mismatch, which is how a torn final write is detected. A pending
+ * record names its endpoint by path, so records stay valid when endpoints are added or reordered,
+ * and marks a message without a local id as such rather than storing a placeholder string.
+ */
+public class OutboxJournal implements AutoCloseable {
+
+    private static final String PREFIX = "outbox-";
+    private static final String SUFFIX = ".journal";
+
+    private static final byte PENDING = 1;
+    private static final byte ACK = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final int CRC_SIZE = 4;
+    /**
+     * Length written in place of a local id the message does not have.
+     */
+    private static final int ABSENT_ID = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalNanos;
+
+    private final AtomicLong sequences;
+    private final AtomicLong localIds;
+    private final Map<Long, PendingEntry> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dirty = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final TreeMap<Long, int[]> outstandingBySegment = new TreeMap<>();
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long written;
+    private long durable;
+    private boolean closed;
+
+    private final Thread flusher;
+
+    private OutboxJournal(Path directory, JournalConfig config, long lastSegment, long lastSequence, long lastLocalId) throws IOException {
+        this.directory = directory;
+        this.segmentSize = config.getSegmentSize();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        this.sequences = new AtomicLong(lastSequence);
+        this.localIds = new AtomicLong(Math.max(lastLocalId, System.currentTimeMillis() * 1000L));
+        openSegment(lastSegment + 1);
+        this.durable = this.written;
+        this.flusher = VirtualThreads.daemonThreads("kavenegar-journal").newThread(this::flushLoop);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens the journal in {@code directory}, creating it if needed, and loads the entries left
+     * pending by a previous run. Writing always continues in a new segment.
+     */
+    public static OutboxJournal open(Path directory, JournalConfig config) {
+        if (config.getSegmentSize() < 4096 || config.getFlushIntervalMillis() < 0) {
+            throw new IllegalArgumentException("invalid journal config: " + config);
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments(directory);
+            Recovery recovery = new Recovery();
+            for (Path file : segments) {
+                recovery.scan(segmentId(file), file);
+            }
+            long lastSegment = segments.isEmpty() ? 0 : segmentId(segments.get(segments.size() - 1));
+            OutboxJournal journal = new OutboxJournal(directory, config, lastSegment, recovery.maxSequence, recovery.maxLocalId);
+            journal.lock.lock();
+            try {
+                for (PendingEntry entry : recovery.pending.values()) {
+                    journal.pending.put(entry.getSequence(), entry);
+                    journal.outstandingBySegment.computeIfAbsent(entry.segment, s -> new int[1])[0]++;
+                }
+                for (Path file : segments) {
+                    journal.outstandingBySegment.putIfAbsent(segmentId(file), new int[1]);
+                }
+                journal.deleteAcknowledgedSegments();
+            } finally {
+                journal.lock.unlock();
+            }
+            return journal;
+        } catch (IOException e) {
+            throw new JournalException("Failed to open outbox journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Returns a fresh numeric local id, unique for this journal across restarts.
+     */
+    public long nextLocalId() {
+        return localIds.incrementAndGet();
+    }
+
+    /**
+     * Journals a request about to be posted and waits until the record is durable.
+     *
+     * @return the entry's sequence number, to pass to {@link #recordAck}
+     */
+    public long recordPending(Endpoint endpoint, List<String> localIds, byte[] body, int offset, int length) {
+        long sequence = sequences.incrementAndGet();
+        List<String> ids = localIds == null ? Collections.<String>emptyList() : new ArrayList<>(localIds);
+        byte[][] encodedIds = new byte[ids.size()][];
+        byte[] path = endpoint.getPath().getBytes(StandardCharsets.UTF_8);
+        int payloadSize = 1 + path.length + 4 + 4 + length;
+        for (int i = 0; i < encodedIds.length; i++) {
+            String id = ids.get(i);
+            encodedIds[i] = id == null ? null : id.getBytes(StandardCharsets.UTF_8);
+            if (encodedIds[i] != null && encodedIds[i].length >= ABSENT_ID) {
+                throw new IllegalArgumentException("local id of " + encodedIds[i].length + " bytes is too long to journal");
+            }
+            payloadSize += 2 + (encodedIds[i] == null ? 0 : encodedIds[i].length);
+        }
+        ByteBuffer record = startRecord(PENDING, sequence, payloadSize);
+        record.put((byte) path.length);
+        record.put(path);
+        record.putInt(encodedIds.length);
+        for (byte[] id : encodedIds) {
+            if (id == null) {
+                record.putShort((short) ABSENT_ID);
+                continue;
+            }
+            record.putShort((short) id.length);
+            record.put(id);
+        }
+        record.putInt(length);
+        record.put(body, offset, length);
+        byte[] copy = new byte[length];
+        System.arraycopy(body, offset, copy, 0, length);
+
+        lock.lock();
+        try {
+            long end = append(record);
+            PendingEntry entry = new PendingEntry(sequence, endpoint, Collections.unmodifiableList(ids), copy, segment);
+            pending.put(sequence, entry);
+            outstandingBySegment.computeIfAbsent(segment, s -> new int[1])[0]++;
+            boolean interrupted = false;
+            while (durable < end && !closed) {
+                try {
+                    flushed.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of entry {@code sequence}: the message ids the API returned, or none if
+     * the API rejected the request. Does not wait for the disk; a lost ack only means the entry is
+     * checked again on the next replay.
+     */
+    public void recordAck(long sequence, long[] messageIds) {
+        PendingEntry entry = pending.remove(sequence);
+        if (entry == null) {
+            return;
+        }
+        ByteBuffer record = startRecord(ACK, sequence, 4 + 8 * messageIds.length);
+        record.putInt(messageIds.length);
+        for (long id : messageIds) {
+            record.putLong(id);
+        }
+        lock.lock();
+        try {
+            append(record);
+            int[] outstanding = outstandingBySegment.get(entry.segment);
+            if (outstanding != null) {
+                outstanding[0]--;
+            }
+            deleteAcknowledgedSegments();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries journaled but not acknowledged, in sequence order.
+     */
+    public List<PendingEntry> pendingEntries() {
+        List<PendingEntry> entries = new ArrayList<>(pending.values());
+        entries.sort(Comparator.comparingLong(PendingEntry::getSequence));
+        return entries;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private static ByteBuffer startRecord(byte type, long sequence, int payloadSize) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadSize + CRC_SIZE);
+        record.putInt(1 + 8 + payloadSize);
+        record.put(type);
+        record.putLong(sequence);
+        return record;
+    }
+
+    /**
+     * Seals {@code record} with its checksum and copies it into the active segment. Caller holds the lock.
+     */
+    private long append(ByteBuffer record) {
+        if (closed) {
+            throw new IllegalStateException("OutboxJournal is closed");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.position() - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        if (record.remaining() > segmentSize - 4) {
+            throw new IllegalArgumentException("journal record of " + record.remaining() + " bytes exceeds the segment size");
+        }
+        if (buffer.remaining() < record.remaining() + 4) {
+            rollSegment();
+        }
+        buffer.put(record);
+        written = segment * (long) segmentSize + buffer.position();
+        dirty.signal();
+        return written;
+    }
+
+    private void rollSegment() {
+        try {
+            buffer.force();
+            durable = written;
+            flushed.signalAll();
+            channel.close();
+            openSegment(segment + 1);
+        } catch (IOException e) {
+            throw new JournalException("Failed to start a new journal segment", e);
+        }
+    }
+
+    private void openSegment(long id) throws IOException {
+        Path file = directory.resolve(segmentName(id));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment = id;
+        written = id * (long) segmentSize;
+        outstandingBySegment.putIfAbsent(id, new int[1]);
+    }
+
+    /**
+     * Deletes the oldest segments while none of their entries is pending. Acks live in the same or
+     * later segments than their entries, so deleting from the front never loses a needed ack.
+     */
+    private void deleteAcknowledgedSegments() {
+        while (!outstandingBySegment.isEmpty()) {
+            Map.Entry<Long, int[]> oldest = outstandingBySegment.firstEntry();
+            if (oldest.getKey() >= segment || oldest.getValue()[0] > 0) {
+                return;
+            }
+            outstandingBySegment.pollFirstEntry();
+            try {
+                Files.deleteIfExists(directory.resolve(segmentName(oldest.getKey())));
+            } catch (IOException ignore) {
+                // left behind; it only holds acknowledged entries
+            }
+        }
+    }
+
+    private void flushLoop() {
+        lock.lock();
+        try {
+            while (true) {
+                while (written == durable && !closed) {
+                    dirty.awaitUninterruptibly();
+                }
+                if (written == durable) {
+                    return;
+                }
+                if (flushIntervalNanos > 0 && !closed) {
+                    // let concurrent appends join this flush
+                    dirty.awaitNanos(flushIntervalNanos);
+                }
+                long target = written;
+                MappedByteBuffer toForce = buffer;
+                lock.unlock();
+                try {
+                    toForce.force();
+                } finally {
+                    lock.lock();
+                }
+                if (target > durable) {
+                    durable = target;
+                }
+                flushed.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes outstanding records and closes the active segment. Pending entries stay in the journal.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dirty.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        lock.lock();
+        try {
+            buffer.force();
+            durable = written;
+            flushed.signalAll();
+            channel.close();
+        } catch (IOException e) {
+            throw new JournalException("Failed to close outbox journal", e);
+        } finally {
+            lock.unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static String segmentName(long id) {
+        return String.format("%s%016d%s", PREFIX, id, SUFFIX);
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        segments.sort(Comparator.comparingLong(OutboxJournal::segmentId));
+        return segments;
+    }
+
+    /**
+     * Rebuilds the set of pending entries by scanning segments in order.
+     */
+    private static final class Recovery {
+
+        final Map<Long, PendingEntry> pending = new TreeMap<>();
+        long maxSequence;
+        long maxLocalId;
+
+        void scan(long segmentId, Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                CRC32 crc = new CRC32();
+                while (data.remaining() >= HEADER_SIZE + CRC_SIZE) {
+                    int start = data.position();
+                    int length = data.getInt();
+                    if (length < 9 || length > data.remaining() - CRC_SIZE) {
+                        return;
+                    }
+                    crc.reset();
+                    ByteBuffer body = data.duplicate();
+                    body.limit(start + 4 + length);
+                    crc.update(body);
+                    data.position(start + 4 + length);
+                    if ((int) crc.getValue() != data.getInt()) {
+                        return;
+                    }
+                    data.position(start + 4);
+                    byte type = data.get();
+                    long sequence = data.getLong();
+                    maxSequence = Math.max(maxSequence, sequence);
+                    if (type == PENDING) {
+                        readPending(file, segmentId, sequence, data);
+                    } else {
+                        pending.remove(sequence);
+                    }
+                    data.position(start + 4 + length + CRC_SIZE);
+                }
+            }
+        }
+
+        private void readPending(Path file, long segmentId, long sequence, ByteBuffer data) {
+            byte[] path = new byte[data.get() & 0xFF];
+            data.get(path);
+            Endpoint endpoint = Endpoint.fromPath(new String(path, StandardCharsets.UTF_8));
+            if (endpoint == null) {
+                throw new JournalException("Unknown endpoint " + new String(path, StandardCharsets.UTF_8)
+                        + " in entry " + sequence + " of " + file);
+            }
+            int count = data.getInt();
+            List<String> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = data.getShort() & 0xFFFF;
+                if (length == ABSENT_ID) {
+                    ids.add(null);
+                    continue;
+                }
+                byte[] id = new byte[length];
+                data.get(id);
+                String localId = new String(id, StandardCharsets.UTF_8);
+                ids.add(localId);
+                try {
+                    maxLocalId = Math.max(maxLocalId, Long.parseLong(localId));
+                } catch (NumberFormatException ignore) {
+                    // caller supplied, not from nextLocalId()
+                }
+            }
+            byte[] body = new byte[data.getInt()];
+            data.get(body);
+            pending.put(sequence, new PendingEntry(sequence, endpoint, Collections.unmodifiableList(ids), body, segmentId));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.kavenegar.sdk.journal;
+
+import com.kavenegar.sdk.enums.Endpoint;
+
+import java.util.List;
+
+/**
+ * A journaled request whose outcome has not been recorded yet.
+ */
+public class PendingEntry {
+
+    private final long sequence;
+    private final Endpoint endpoint;
+    private final List<String> localIds;
+    private final byte[] body;
+    final long segment;
+
+    PendingEntry(long sequence, Endpoint endpoint, List<String> localIds, byte[] body, long segment) {
+        this.sequence = sequence;
+        this.endpoint = endpoint;
+        this.localIds = localIds;
+        this.body = body;
+        this.segment = segment;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Local ids sent with the request, used to ask the API whether it was accepted.
+     */
+    public List<String> getLocalIds() {
+        return localIds;
+    }
+
+    /**
+     * The encoded form body exactly as it was posted.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingEntry{" +
+                "sequence=" + sequence +
+                ", endpoint=" + endpoint +
+                ", localIds=" + localIds +
+                '}';
+    }
+}
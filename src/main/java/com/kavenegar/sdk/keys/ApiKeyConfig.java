@@ -0,0 +1,61 @@
+package com.kavenegar.sdk.keys;
+
+import com.kavenegar.sdk.ratelimit.RateLimit;
+
+/**
+ * One account of a {@link com.kavenegar.sdk.KavenegarMultiKeyApi}.
+ */
+public class ApiKeyConfig {
+
+    private String apiKey;
+    private int weight = 1;
+    private RateLimit quota;
+
+    public ApiKeyConfig() {
+    }
+
+    public ApiKeyConfig(String apiKey, int weight) {
+        this.apiKey = apiKey;
+        this.weight = weight;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Share of the traffic this key gets relative to the others, e.g. {@code 3} for three times
+     * as much as a key of weight {@code 1}.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Requests per second this key may carry; {@code null} for no limit. Requests go to other keys
+     * while this one is used up.
+     */
+    public RateLimit getQuota() {
+        return quota;
+    }
+
+    public void setQuota(RateLimit quota) {
+        this.quota = quota;
+    }
+
+    @Override
+    public String toString() {
+        return "ApiKeyConfig{" +
+                "weight=" + weight +
+                ", quota=" + quota +
+                '}';
+    }
+}
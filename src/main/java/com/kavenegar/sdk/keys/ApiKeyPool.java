@@ -0,0 +1,320 @@
+package com.kavenegar.sdk.keys;
+
+import com.kavenegar.sdk.enums.MetaData;
+import com.kavenegar.sdk.excepctions.ApiException;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.NoAvailableApiKeyException;
+import com.kavenegar.sdk.excepctions.PartialSendException;
+import com.kavenegar.sdk.excepctions.RateLimitExceededException;
+import com.kavenegar.sdk.models.SendResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Picks an API key for each request and keeps per-key counters.
+ * <p>
+ * A request takes a key with {@link #acquire()} and gives it back with {@link #onSuccess} or
+ * {@link #onFailure}. Keys whose quota is used up are passed over; if all of them are, the request
+ * waits for the first key in turn. A key the API rejects as invalid, expired, disabled or out of
+ * credit is taken out of rotation until {@link #enable(String)} or a credit update puts it back.
+ * Selection takes no lock: round-robin follows a precomputed schedule with an atomic cursor, and
+ * least-outstanding scans the keys' counters.
+ */
+public class ApiKeyPool {
+
+    private final ApiKeyState[] keys;
+    private final KeySelection selection;
+    private final long maxQuotaWaitNanos;
+    /**
+     * Key indexes in smooth weighted round-robin order, one entry per unit of weight.
+     */
+    private final int[] schedule;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    public ApiKeyPool(KeyPoolConfig config) {
+        List<ApiKeyConfig> configs = config.getKeys();
+        if (configs.isEmpty()) {
+            throw new IllegalArgumentException("at least one api key is required");
+        }
+        Set<String> seen = new HashSet<>();
+        this.keys = new ApiKeyState[configs.size()];
+        for (int i = 0; i < keys.length; i++) {
+            ApiKeyConfig key = configs.get(i);
+            if (key.getApiKey() == null || key.getWeight() < 1 || !seen.add(key.getApiKey())) {
+                throw new IllegalArgumentException("invalid or duplicate api key at index " + i + ": " + key);
+            }
+            keys[i] = new ApiKeyState(key, i);
+        }
+        this.selection = config.getSelection();
+        this.maxQuotaWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxQuotaWaitMillis());
+        this.schedule = schedule(keys);
+    }
+
+    /**
+     * Spreads each key's turns evenly: with weights 5, 1, 1 the order is a a b a c a a rather than
+     * a a a a a b c.
+     */
+    private static int[] schedule(ApiKeyState[] keys) {
+        int divisor = keys[0].getWeight();
+        for (ApiKeyState key : keys) {
+            divisor = gcd(divisor, key.getWeight());
+        }
+        int total = 0;
+        for (ApiKeyState key : keys) {
+            total += key.getWeight() / divisor;
+        }
+        int[] order = new int[total];
+        int[] current = new int[keys.length];
+        for (int turn = 0; turn < total; turn++) {
+            int best = 0;
+            for (int i = 0; i < keys.length; i++) {
+                current[i] += keys[i].getWeight() / divisor;
+                if (current[i] > current[best]) {
+                    best = i;
+                }
+            }
+            current[best] -= total;
+            order[turn] = best;
+        }
+        return order;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Takes a key for one request, waiting if every active key's quota is used up.
+     *
+     * @throws NoAvailableApiKeyException if no key is in rotation
+     * @throws RateLimitExceededException if the quota wait would exceed the configured maximum
+     * @throws BaseException if interrupted while waiting; the key's quota is given back
+     */
+    public ApiKeyState acquire() throws BaseException {
+        boolean[] exhausted = new boolean[keys.length];
+        for (int tries = 0; tries < keys.length; tries++) {
+            ApiKeyState key = next(exhausted);
+            if (key == null) {
+                break;
+            }
+            if (key.quota == null || key.quota.tryAcquire(1)) {
+                key.outstanding.incrementAndGet();
+                return key;
+            }
+            exhausted[key.index] = true;
+        }
+        ApiKeyState key = next(null);
+        if (key == null) {
+            throw new NoAvailableApiKeyException("No API key left in rotation: " + Arrays.toString(keys));
+        }
+        long wait = key.quota == null ? 0 : key.quota.reserve(1, maxQuotaWaitNanos);
+        if (wait < 0) {
+            throw new RateLimitExceededException("Every API key has used up its quota");
+        }
+        // counted while it waits, so least-outstanding selection steers other callers elsewhere
+        key.outstanding.incrementAndGet();
+        try {
+            park(wait);
+        } catch (BaseException e) {
+            key.outstanding.decrementAndGet();
+            key.quota.release(1);
+            throw e;
+        }
+        return key;
+    }
+
+    private ApiKeyState next(boolean[] skip) {
+        return selection == KeySelection.LeastOutstanding ? leastOutstanding(skip) : roundRobin(skip);
+    }
+
+    private ApiKeyState roundRobin(boolean[] skip) {
+        int start = cursor.getAndIncrement();
+        for (int i = 0; i < schedule.length; i++) {
+            ApiKeyState key = keys[schedule[Math.floorMod(start + i, schedule.length)]];
+            if (key.isActive() && (skip == null || !skip[key.index])) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lowest {@code outstanding / weight}; the scan starts at a rotating key so ties are spread out.
+     */
+    private ApiKeyState leastOutstanding(boolean[] skip) {
+        int start = cursor.getAndIncrement();
+        ApiKeyState best = null;
+        int bestOutstanding = 0;
+        for (int i = 0; i < keys.length; i++) {
+            ApiKeyState key = keys[Math.floorMod(start + i, keys.length)];
+            if (!key.isActive() || (skip != null && skip[key.index])) {
+                continue;
+            }
+            int outstanding = key.outstanding.get();
+            if (best == null || (long) outstanding * best.getWeight() < (long) bestOutstanding * key.getWeight()) {
+                best = key;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    private void park(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new BaseException("Interrupted while waiting for an API key quota");
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * The request on {@code key} succeeded.
+     *
+     * @param cost credit the request used, in rials, or 0 if unknown
+     */
+    public void onSuccess(ApiKeyState key, long cost) {
+        key.outstanding.decrementAndGet();
+        key.requests.increment();
+        if (cost > 0) {
+            key.useCredit(cost);
+        }
+    }
+
+    /**
+     * The request on {@code key} failed. A {@link PartialSendException} takes the key out of
+     * rotation if any of its chunks failed for the key, and the credit of the chunks that were sent
+     * is counted.
+     *
+     * @return true if the failure took the key out of rotation and nothing was sent, so the request
+     * may go to another key; false for a partial send, whose failed chunks are for the caller to
+     * retry
+     */
+    public boolean onFailure(ApiKeyState key, RuntimeException failure) {
+        key.outstanding.decrementAndGet();
+        key.errors.increment();
+        if (failure instanceof PartialSendException) {
+            PartialSendException partial = (PartialSendException) failure;
+            long cost = 0;
+            for (SendResult result : partial.getResults()) {
+                cost += result.getCost() == null ? 0 : result.getCost();
+            }
+            if (cost > 0) {
+                key.useCredit(cost);
+            }
+            for (PartialSendException.ChunkFailure chunk : partial.getFailures()) {
+                MetaData code = keyFailure(chunk.getCause());
+                if (code != null) {
+                    disable(key, code);
+                    break;
+                }
+            }
+            return false;
+        }
+        if (!(failure instanceof ApiException)) {
+            return false;
+        }
+        MetaData code = ((ApiException) failure).getCode();
+        key.lastError = code;
+        if (isKeyFailure(code)) {
+            disable(key, code);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The code of {@code failure} if it rejects the API key itself, else {@code null}.
+     */
+    public static MetaData keyFailure(Throwable failure) {
+        if (failure instanceof ApiException && isKeyFailure(((ApiException) failure).getCode())) {
+            return ((ApiException) failure).getCode();
+        }
+        return null;
+    }
+
+    /**
+     * Takes {@code key} out of rotation.
+     */
+    public void disable(ApiKeyState key, MetaData reason) {
+        key.lastError = reason;
+        key.disabledReason = reason;
+    }
+
+    /**
+     * Whether {@code code} rejects the API key itself rather than the request.
+     */
+    public static boolean isKeyFailure(MetaData code) {
+        return code == MetaData.INVALID_API_KEY || code == MetaData.EXPIRED_API_KEY
+                || code == MetaData.ACCOUNT_DISABLED || code == MetaData.NOT_ENOUGH_CREDIT;
+    }
+
+    /**
+     * Records the credit {@code account/info} reported for {@code key}. A key that was taken out of
+     * rotation for lack of credit is put back if the credit is positive again.
+     */
+    public void updateCredit(ApiKeyState key, long remainCredit) {
+        key.remainCredit.set(remainCredit);
+        if (key.disabledReason == MetaData.NOT_ENOUGH_CREDIT && remainCredit > 0) {
+            key.disabledReason = null;
+        }
+    }
+
+    /**
+     * Puts a key back into rotation, e.g. after its account was renewed.
+     *
+     * @throws IllegalArgumentException if the key is not in this pool
+     */
+    public void enable(String apiKey) {
+        get(apiKey).disabledReason = null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is not in this pool
+     */
+    public ApiKeyState get(String apiKey) {
+        for (ApiKeyState key : keys) {
+            if (key.getApiKey().equals(apiKey)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("unknown api key");
+    }
+
+    public List<ApiKeyState> getKeys() {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(keys)));
+    }
+
+    /**
+     * Number of keys in rotation.
+     */
+    public int getActiveCount() {
+        int active = 0;
+        for (ApiKeyState key : keys) {
+            if (key.isActive()) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public String toString() {
+        return "ApiKeyPool{" +
+                "selection=" + selection +
+                ", keys=" + Arrays.toString(keys) +
+                '}';
+    }
+}
@@ -0,0 +1,113 @@
+package com.kavenegar.sdk.keys;
+
+import com.kavenegar.sdk.enums.MetaData;
+import com.kavenegar.sdk.ratelimit.TokenBucket;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one key in an {@link ApiKeyPool}.
+ */
+public final class ApiKeyState {
+
+    private static final long UNKNOWN_CREDIT = Long.MIN_VALUE;
+
+    private final String apiKey;
+    private final int weight;
+    final int index;
+    final TokenBucket quota;
+
+    final AtomicInteger outstanding = new AtomicInteger();
+    final LongAdder requests = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final AtomicLong remainCredit = new AtomicLong(UNKNOWN_CREDIT);
+    volatile MetaData lastError;
+    volatile MetaData disabledReason;
+
+    ApiKeyState(ApiKeyConfig config, int index) {
+        this.apiKey = config.getApiKey();
+        this.weight = config.getWeight();
+        this.index = index;
+        this.quota = config.getQuota() == null ? null : new TokenBucket(config.getQuota());
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Whether the key is in rotation.
+     */
+    public boolean isActive() {
+        return disabledReason == null;
+    }
+
+    /**
+     * The API answer that took the key out of rotation, or {@code null} while it is active.
+     */
+    public MetaData getDisabledReason() {
+        return disabledReason;
+    }
+
+    /**
+     * Requests currently running on this key.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Requests that completed without an error.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Code of the last API error on this key, or {@code null} if there was none or it was not an API error.
+     */
+    public MetaData getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Credit in rials as last reported by {@code account/info}, less the cost of messages sent since;
+     * {@code null} until the credit has been fetched.
+     */
+    public Long getRemainCredit() {
+        long credit = remainCredit.get();
+        return credit == UNKNOWN_CREDIT ? null : credit;
+    }
+
+    void useCredit(long cost) {
+        long credit;
+        do {
+            credit = remainCredit.get();
+        } while (credit != UNKNOWN_CREDIT && !remainCredit.compareAndSet(credit, credit - cost));
+    }
+
+    @Override
+    public String toString() {
+        String masked = apiKey.length() <= 8 ? "****" : apiKey.substring(0, 4) + "****" + apiKey.substring(apiKey.length() - 4);
+        return "ApiKeyState{" +
+                "apiKey=" + masked +
+                ", weight=" + weight +
+                ", active=" + isActive() +
+                (disabledReason == null ? "" : ", disabledReason=" + disabledReason) +
+                ", outstanding=" + outstanding.get() +
+                ", requests=" + requests.sum() +
+                ", errors=" + errors.sum() +
+                ", remainCredit=" + getRemainCredit() +
+                '}';
+    }
+}
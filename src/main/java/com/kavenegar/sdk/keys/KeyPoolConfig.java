@@ -0,0 +1,55 @@
+package com.kavenegar.sdk.keys;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for a {@link com.kavenegar.sdk.KavenegarMultiKeyApi}.
+ */
+public class KeyPoolConfig {
+
+    private final List<ApiKeyConfig> keys = new ArrayList<>();
+    private KeySelection selection = KeySelection.WeightedRoundRobin;
+    private long maxQuotaWaitMillis = Long.MAX_VALUE;
+
+    public List<ApiKeyConfig> getKeys() {
+        return keys;
+    }
+
+    public void addKey(ApiKeyConfig key) {
+        keys.add(key);
+    }
+
+    public void addKey(String apiKey, int weight) {
+        keys.add(new ApiKeyConfig(apiKey, weight));
+    }
+
+    public KeySelection getSelection() {
+        return selection;
+    }
+
+    public void setSelection(KeySelection selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * Longest a request waits when every key has used up its quota; after that it fails with
+     * {@link com.kavenegar.sdk.excepctions.RateLimitExceededException}.
+     */
+    public long getMaxQuotaWaitMillis() {
+        return maxQuotaWaitMillis;
+    }
+
+    public void setMaxQuotaWaitMillis(long maxQuotaWaitMillis) {
+        this.maxQuotaWaitMillis = maxQuotaWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyPoolConfig{" +
+                "keys=" + keys +
+                ", selection=" + selection +
+                ", maxQuotaWaitMillis=" + maxQuotaWaitMillis +
+                '}';
+    }
+}
@@ -0,0 +1,16 @@
+package com.kavenegar.sdk.keys;
+
+/**
+ * How a {@link com.kavenegar.sdk.KavenegarMultiKeyApi} picks the API key for a request.
+ */
+public enum KeySelection {
+
+    /**
+     * Keys take turns in proportion to their weights, interleaved rather than in runs.
+     */
+    WeightedRoundRobin,
+    /**
+     * The key with the fewest requests in flight relative to its weight.
+     */
+    LeastOutstanding
+}
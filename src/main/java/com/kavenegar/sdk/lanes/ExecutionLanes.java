@@ -0,0 +1,319 @@
+package com.kavenegar.sdk.lanes;
+
+import com.kavenegar.sdk.concurrent.LatencyHistogram;
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.ConcurrencyLimitExceededException;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.excepctions.QueueFullException;
+import com.kavenegar.sdk.transport.ApacheHttpTransport;
+import com.kavenegar.sdk.transport.Transport;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Separate queues and concurrency limits for urgent, standard and bulk requests, so that an OTP
+ * never waits behind a campaign.
+ * <p>
+ * Each {@link Lane} admits up to its own number of requests at once, and all lanes together up to
+ * the client-wide limit. A request that finds no free slot waits in its lane's FIFO queue; when a
+ * slot frees up, {@link LaneScheduling} decides which lane's oldest request takes it. A lane may
+ * also have its own connection pool, so bulk requests cannot hold every pooled connection.
+ * <p>
+ * Per lane, the time requests spent queued and their latency from entering the lane to the
+ * response are kept in {@link LatencyHistogram}s.
+ */
+public class ExecutionLanes implements AutoCloseable {
+
+    /**
+     * Virtual time a lane of weight 1 advances by per request under {@link LaneScheduling#WeightedFair}.
+     */
+    private static final long STRIDE = 1L << 20;
+
+    private final LanesConfig config;
+    private final boolean weighted;
+    private final int maxConcurrency;
+    private final LaneState[] states;
+    private final Map<Endpoint, Lane> endpointLanes = new EnumMap<>(Endpoint.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int inFlight;
+    /**
+     * Pass of the lane last granted a slot; a lane that starts queueing or is granted a slot resumes
+     * from here if it is behind, so it gets no credit for the time it was idle and the clock never
+     * moves backwards.
+     */
+    private long virtualTime;
+
+    public ExecutionLanes(LanesConfig config) {
+        if (config.getMaxConcurrency() < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + config.getMaxConcurrency());
+        }
+        this.config = config;
+        this.weighted = config.getScheduling() == LaneScheduling.WeightedFair;
+        this.maxConcurrency = config.getMaxConcurrency();
+        Lane[] lanes = Lane.values();
+        // checked up front, so that no lane's connection pool is left open by a later lane's error
+        for (Lane lane : lanes) {
+            LaneConfig laneConfig = config.getLane(lane);
+            if (laneConfig.getMaxConcurrency() < 1 || laneConfig.getWeight() < 1) {
+                throw new IllegalArgumentException("maxConcurrency and weight of the " + lane + " lane must be positive");
+            }
+        }
+        this.states = new LaneState[lanes.length];
+        for (Lane lane : lanes) {
+            states[lane.ordinal()] = new LaneState(lane, config.getLane(lane));
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpointLanes.put(endpoint, config.getLane(endpoint));
+        }
+    }
+
+    public LanesConfig getConfig() {
+        return config;
+    }
+
+    public Lane laneOf(Endpoint endpoint) {
+        return endpointLanes.get(endpoint);
+    }
+
+    /**
+     * The lane's own transport, or {@code shared} if it has none.
+     */
+    public Transport transport(Lane lane, Transport shared) {
+        Transport transport = states[lane.ordinal()].transport;
+        return transport == null ? shared : transport;
+    }
+
+    /**
+     * Takes a slot in {@code lane}, waiting in its queue if there is none.
+     *
+     * @return the time the request entered the lane, to pass to {@link #release(Lane, long)}
+     * @throws QueueFullException                 if the lane's queue is full
+     * @throws ConcurrencyLimitExceededException if no slot came up within the lane's maximum wait
+     */
+    public long acquire(Lane lane) {
+        long entered = System.nanoTime();
+        LaneState state = states[lane.ordinal()];
+        lock.lock();
+        try {
+            if (state.waiters.isEmpty() && state.inFlight < state.maxConcurrency && inFlight < maxConcurrency) {
+                grant(state);
+                state.queueWait.recordNanos(0);
+                return entered;
+            }
+            if (state.waiters.size() >= state.queueCapacity) {
+                state.rejected++;
+                throw new QueueFullException("Queue of the " + lane + " lane is full", state.queueCapacity);
+            }
+            if (state.waiters.isEmpty()) {
+                state.pass = Math.max(state.pass, virtualTime);
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            state.waiters.addLast(waiter);
+            long remaining = state.maxWaitNanos;
+            while (!waiter.granted) {
+                if (remaining <= 0) {
+                    state.waiters.remove(waiter);
+                    state.rejected++;
+                    throw new ConcurrencyLimitExceededException("No slot in the " + lane + " lane came up in time", state.maxConcurrency);
+                }
+                try {
+                    remaining = waiter.signal.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        free(state);
+                    } else {
+                        state.waiters.remove(waiter);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new BaseException("Interrupted while waiting for a lane slot");
+                }
+            }
+            state.queueWait.recordNanos(System.nanoTime() - entered);
+            return entered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the slot taken by {@link #acquire(Lane)} and records the request's latency.
+     */
+    public void release(Lane lane, long entered) {
+        LaneState state = states[lane.ordinal()];
+        state.latency.recordNanos(System.nanoTime() - entered);
+        lock.lock();
+        try {
+            free(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grant(LaneState state) {
+        state.inFlight++;
+        inFlight++;
+        if (weighted) {
+            // a lane idle since its last grant may take the free path with a stale pass
+            state.pass = Math.max(state.pass, virtualTime);
+            virtualTime = state.pass;
+            state.pass += state.stride;
+        }
+    }
+
+    private void free(LaneState state) {
+        state.inFlight--;
+        inFlight--;
+        dispatch();
+    }
+
+    /**
+     * Hands free slots to queued requests until the slots or the eligible requests run out.
+     */
+    private void dispatch() {
+        while (inFlight < maxConcurrency) {
+            LaneState next = null;
+            for (LaneState state : states) {
+                if (state.waiters.isEmpty() || state.inFlight >= state.maxConcurrency) {
+                    continue;
+                }
+                if (next == null || weighted && state.pass < next.pass) {
+                    next = state;
+                }
+                if (!weighted) {
+                    break;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            grant(next);
+            waiter.granted = true;
+            waiter.signal.signal();
+        }
+    }
+
+    /**
+     * Time requests of {@code lane} spent queued for a slot.
+     */
+    public LatencyHistogram getQueueWait(Lane lane) {
+        return states[lane.ordinal()].queueWait;
+    }
+
+    /**
+     * Time from a request entering {@code lane} to its response, queueing included.
+     */
+    public LatencyHistogram getLatency(Lane lane) {
+        return states[lane.ordinal()].latency;
+    }
+
+    public int getInFlight(Lane lane) {
+        lock.lock();
+        try {
+            return states[lane.ordinal()].inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth(Lane lane) {
+        lock.lock();
+        try {
+            return states[lane.ordinal()].waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Requests of {@code lane} turned away because its queue was full or their wait ran out.
+     */
+    public long getRejectedCount(Lane lane) {
+        lock.lock();
+        try {
+            return states[lane.ordinal()].rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the lanes' own connection pools.
+     */
+    @Override
+    public void close() {
+        IOException failure = null;
+        for (LaneState state : states) {
+            if (state.transport == null) {
+                continue;
+            }
+            try {
+                state.transport.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new HttpException("Failed to close lane transport", 0, failure);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("ExecutionLanes{");
+        for (LaneState state : states) {
+            if (state.lane.ordinal() > 0) {
+                text.append(", ");
+            }
+            text.append(state.lane)
+                    .append("={inFlight=").append(getInFlight(state.lane))
+                    .append(", queued=").append(getQueueDepth(state.lane))
+                    .append(", p50=").append(TimeUnit.NANOSECONDS.toMillis(state.latency.percentileNanos(0.5))).append("ms")
+                    .append(", p99=").append(TimeUnit.NANOSECONDS.toMillis(state.latency.percentileNanos(0.99))).append("ms")
+                    .append('}');
+        }
+        return text.append('}').toString();
+    }
+
+    private static final class Waiter {
+
+        final Condition signal;
+        boolean granted;
+
+        Waiter(Condition signal) {
+            this.signal = signal;
+        }
+    }
+
+    private static final class LaneState {
+
+        final Lane lane;
+        final int maxConcurrency;
+        final int queueCapacity;
+        final long maxWaitNanos;
+        final long stride;
+        final Transport transport;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LatencyHistogram latency = new LatencyHistogram();
+        int inFlight;
+        long pass;
+        long rejected;
+
+        LaneState(Lane lane, LaneConfig config) {
+            this.lane = lane;
+            this.maxConcurrency = config.getMaxConcurrency();
+            this.queueCapacity = config.getQueueCapacity();
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+            this.stride = STRIDE / config.getWeight();
+            this.transport = config.getPoolConfig() == null ? null : new ApacheHttpTransport(config.getPoolConfig());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kavenegar.sdk.lanes;
+
+/**
+ * Execution lanes of {@link ExecutionLanes}, from most to least urgent.
+ */
+public enum Lane {
+
+    /**
+     * Requests a user is waiting on, by default {@code verify/lookup} OTPs.
+     */
+    Priority,
+    /**
+     * Single sends, status queries and account calls.
+     */
+    Standard,
+    /**
+     * Campaign traffic: {@code sms/sendarray}, {@code sms/sendpostalcode} and {@code call/maketts}.
+     */
+    Bulk
+}
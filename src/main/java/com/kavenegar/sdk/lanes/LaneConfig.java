@@ -0,0 +1,93 @@
+package com.kavenegar.sdk.lanes;
+
+import com.kavenegar.sdk.transport.ConnectionPoolConfig;
+
+/**
+ * Limits of one {@link Lane}.
+ */
+public class LaneConfig {
+
+    private int maxConcurrency;
+    private int queueCapacity = 10000;
+    private long maxWaitMillis = 30000L;
+    private int weight;
+    private ConnectionPoolConfig poolConfig;
+
+    public LaneConfig() {
+        this(16, 1);
+    }
+
+    public LaneConfig(int maxConcurrency, int weight) {
+        this.maxConcurrency = maxConcurrency;
+        this.weight = weight;
+    }
+
+    /**
+     * Requests of this lane in flight at once.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Requests that may wait for a slot; one more fails with
+     * {@link com.kavenegar.sdk.excepctions.QueueFullException}.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Longest a request waits for a slot before failing with
+     * {@link com.kavenegar.sdk.excepctions.ConcurrencyLimitExceededException}.
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Share of the free slots under {@link LaneScheduling#WeightedFair}.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Settings of a connection pool used by this lane alone, or {@code null} to share the client's
+     * transport.
+     */
+    public ConnectionPoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    public void setPoolConfig(ConnectionPoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
+    }
+
+    @Override
+    public String toString() {
+        return "LaneConfig{" +
+                "maxConcurrency=" + maxConcurrency +
+                ", queueCapacity=" + queueCapacity +
+                ", maxWaitMillis=" + maxWaitMillis +
+                ", weight=" + weight +
+                ", poolConfig=" + poolConfig +
+                '}';
+    }
+}
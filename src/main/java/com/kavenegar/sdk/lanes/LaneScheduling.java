@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.lanes;
+
+/**
+ * How {@link ExecutionLanes} picks the lane whose queued request gets the next free slot.
+ */
+public enum LaneScheduling {
+
+    /**
+     * The most urgent lane with a queued request and room under its own limit always goes first;
+     * {@link Lane#Bulk} only runs on slots the other lanes leave free.
+     */
+    StrictPriority,
+    /**
+     * Slots are shared among backlogged lanes in proportion to their
+     * {@link LaneConfig#getWeight() weights}, so no lane starves.
+     */
+    WeightedFair
+}
@@ -0,0 +1,93 @@
+package com.kavenegar.sdk.lanes;
+
+import com.kavenegar.sdk.enums.Endpoint;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings for {@link ExecutionLanes}: the limits of each lane, the client-wide limit they share,
+ * and which lane each endpoint's requests run in.
+ * <p>
+ * By default {@code verify/lookup} runs in {@link Lane#Priority}; {@code sms/sendarray},
+ * {@code sms/sendpostalcode} and {@code call/maketts} in {@link Lane#Bulk}; everything else in
+ * {@link Lane#Standard}. The default lane limits, 16, 24 and 24, add up to exactly
+ * {@link #getMaxConcurrency()} of 64, so the standard and bulk lanes together leave 16 slots that
+ * only OTPs can take. Raising a lane's limit above that share lets it compete for the others' slots.
+ */
+public class LanesConfig {
+
+    private LaneScheduling scheduling = LaneScheduling.StrictPriority;
+    private int maxConcurrency = 64;
+    private final Map<Lane, LaneConfig> lanes = new EnumMap<>(Lane.class);
+    private final Map<Endpoint, Lane> endpointLanes = new EnumMap<>(Endpoint.class);
+
+    public LanesConfig() {
+        lanes.put(Lane.Priority, new LaneConfig(16, 8));
+        lanes.put(Lane.Standard, new LaneConfig(24, 4));
+        lanes.put(Lane.Bulk, new LaneConfig(24, 1));
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpointLanes.put(endpoint, Lane.Standard);
+        }
+        endpointLanes.put(Endpoint.VerifyLookup, Lane.Priority);
+        endpointLanes.put(Endpoint.SmsSendArray, Lane.Bulk);
+        endpointLanes.put(Endpoint.SmsSendPostalCode, Lane.Bulk);
+        endpointLanes.put(Endpoint.CallMakeTts, Lane.Bulk);
+    }
+
+    public LaneScheduling getScheduling() {
+        return scheduling;
+    }
+
+    public void setScheduling(LaneScheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    /**
+     * Requests of all lanes in flight at once.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Limits of {@code lane}; change them in place or replace them with {@link #setLane(Lane, LaneConfig)}.
+     */
+    public LaneConfig getLane(Lane lane) {
+        return lanes.get(lane);
+    }
+
+    public void setLane(Lane lane, LaneConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config is required");
+        }
+        lanes.put(lane, config);
+    }
+
+    public Lane getLane(Endpoint endpoint) {
+        return endpointLanes.get(endpoint);
+    }
+
+    /**
+     * Runs the requests of {@code endpoint} in {@code lane}.
+     */
+    public void setLane(Endpoint endpoint, Lane lane) {
+        if (lane == null) {
+            throw new IllegalArgumentException("lane is required");
+        }
+        endpointLanes.put(endpoint, lane);
+    }
+
+    @Override
+    public String toString() {
+        return "LanesConfig{" +
+                "scheduling=" + scheduling +
+                ", maxConcurrency=" + maxConcurrency +
+                ", lanes=" + lanes +
+                '}';
+    }
+}
@@ -16,6 +16,15 @@ public class AccountConfigResult {
     private String resendFailed;
     private int minCreditAlarm;
 
+    public AccountConfigResult(String apiLogs, String dailyReport, String debugMode, String defaultSender, int minCreditAlarm, String resendFailed) {
+        this.apiLogs = apiLogs;
+        this.dailyReport = dailyReport;
+        this.debugMode = debugMode;
+        this.defaultSender = defaultSender;
+        this.minCreditAlarm = minCreditAlarm;
+        this.resendFailed = resendFailed;
+    }
+
     /**
      * Constructs an AccountConfigResult instance using a JsonObject.
      * @param json the JSON object containing configuration data
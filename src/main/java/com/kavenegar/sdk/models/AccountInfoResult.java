@@ -16,6 +16,12 @@ public class AccountInfoResult {
     private final Long expireDate;
     private final String type;
 
+    public AccountInfoResult(Long remainCredit, Long expireDate, String type) {
+        this.remainCredit = remainCredit;
+        this.expireDate = expireDate;
+        this.type = type;
+    }
+
     public AccountInfoResult(JsonObject json) {
         this.remainCredit = json.has("remaincredit") && !json.get("remaincredit").isJsonNull()
                 ? json.get("remaincredit").getAsLong() : 0L;
@@ -15,6 +15,12 @@ public class CountInboxResult {
     private final Long endDate;
     private final Long sumCount;
 
+    public CountInboxResult(Long startDate, Long endDate, Long sumCount) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.sumCount = sumCount;
+    }
+
     public CountInboxResult(JsonObject json) {
         this.startDate = json.has("startdate") && !json.get("startdate").isJsonNull()
                 ? json.get("startdate").getAsLong() : 0L;
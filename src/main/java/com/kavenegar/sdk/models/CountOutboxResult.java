@@ -10,8 +10,8 @@ import java.util.Date;
 import java.util.Objects;
 
 /**
- * Represents the result of an inbox message count operation, storing the total count
- * of received messages within a specified time range.
+ * Represents the result of an outbox message count operation, storing the total count
+ * of sent messages within a specified time range.
  * Provides utility methods for date formatting, message rate calculation,
  * and structured reporting.
  *
@@ -20,13 +20,19 @@ import java.util.Objects;
  *
  * The code was orginally written by Mohssen and later developed further by Reza.
  */
-public class CountInboxResult {
+public class CountOutboxResult {
 
     private final long startDate;
     private final long endDate;
     private final long sumCount;
 
-    public CountInboxResult(JsonObject json) {
+    public CountOutboxResult(long startDate, long endDate, long sumCount) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.sumCount = sumCount;
+    }
+
+    public CountOutboxResult(JsonObject json) {
         this.startDate = extractLong(json, "startdate");
         this.endDate = extractLong(json, "enddate");
         this.sumCount = extractLong(json, "sumcount");
@@ -88,7 +94,7 @@ public class CountInboxResult {
     @Override
     public String toString() {
         return String.format(
-            "CountInboxResult{startDate=%d, endDate=%d, sumCount=%d}",
+            "CountOutboxResult{startDate=%d, endDate=%d, sumCount=%d}",
             startDate, endDate, sumCount
         );
     }
@@ -96,8 +102,8 @@ public class CountInboxResult {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (!(o instanceof CountInboxResult)) return false;
-        CountInboxResult that = (CountInboxResult) o;
+        if (!(o instanceof CountOutboxResult)) return false;
+        CountOutboxResult that = (CountOutboxResult) o;
         return startDate == that.startDate && endDate == that.endDate && sumCount == that.sumCount;
     }
 
@@ -18,6 +18,11 @@ public class CountPostalCodeResult {
     private final String section;
     private final Long value;
 
+    public CountPostalCodeResult(String section, long value) {
+        this.section = section;
+        this.value = value;
+    }
+
     public CountPostalCodeResult(JsonObject json) {
         this.section = json.has("section") && !json.get("section").isJsonNull()
                 ? json.get("section").getAsString() : "";
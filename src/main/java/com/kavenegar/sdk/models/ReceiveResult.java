@@ -23,6 +23,14 @@ public class ReceiveResult {
     private final String receptor;
     private final Long date;
 
+    public ReceiveResult(Long messageId, String message, String sender, String receptor, Long date) {
+        this.messageId = messageId;
+        this.message = message;
+        this.sender = sender;
+        this.receptor = receptor;
+        this.date = date;
+    }
+
     public ReceiveResult(JsonObject json) {
         this.messageId = json.has("messageid") && !json.get("messageid").isJsonNull()
                 ? json.get("messageid").getAsLong() : null;
@@ -23,6 +23,17 @@ public class SendResult {
     private final Long date;
     private final Integer cost;
 
+    public SendResult(Long messageId, String message, Integer status, String statusText, String sender, String receptor, Long date, Integer cost) {
+        this.messageId = messageId;
+        this.message = message;
+        this.status = status;
+        this.statusText = statusText;
+        this.sender = sender;
+        this.receptor = receptor;
+        this.date = date;
+        this.cost = cost;
+    }
+
     public SendResult(JsonObject json) {
         this.cost = json.has("cost") && !json.get("cost").isJsonNull() ? json.get("cost").getAsInt() : 0;
         this.date = json.has("date") && !json.get("date").isJsonNull() ? json.get("date").getAsLong() : 0L;
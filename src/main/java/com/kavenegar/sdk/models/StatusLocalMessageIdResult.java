@@ -1,6 +1,7 @@
 package com.kavenegar.sdk.models;
 
 import com.google.gson.JsonObject;
+import com.kavenegar.sdk.enums.MessageStatus;
 import java.util.Objects;
 
 /**
@@ -13,6 +14,11 @@ public class StatusLocalMessageIdResult extends StatusResult {
 
     private final long localId;
 
+    public StatusLocalMessageIdResult(int messageId, MessageStatus status, String statusText, long localId) {
+        super(messageId, status, statusText);
+        this.localId = localId;
+    }
+
     public StatusLocalMessageIdResult(JsonObject json) {
         super(json);
         this.localId = json.has("localid") && !json.get("localid").isJsonNull()
@@ -34,7 +40,7 @@ public class StatusLocalMessageIdResult extends StatusResult {
      * Provides a human-readable summary of the result.
      */
     public String getSummary() {
-        return String.format("Local ID: %d | Status: %s (%d)",
+        return String.format("Local ID: %d | Status: %s (%s)",
                 localId, getStatusText(), getStatus());
     }
 
@@ -49,7 +55,7 @@ public class StatusLocalMessageIdResult extends StatusResult {
      * Checks if the status indicates failure.
      */
     public boolean isFailedStatus() {
-        return getStatus() != 1;
+        return getStatus() != MessageStatus.Queued;
     }
 
     @Override
@@ -24,6 +24,12 @@ public class StatusResult {
         // For possible use by subclasses or deserialization.
     }
 
+    public StatusResult(int messageId, MessageStatus status, String statusText) {
+        this.messageId = messageId;
+        this.status = status;
+        this.statusText = statusText;
+    }
+
     public StatusResult(JsonObject json) {
         this.messageId = json.has("messageid") && !json.get("messageid").isJsonNull()
                 ? json.get("messageid").getAsInt() : -1;
@@ -0,0 +1,96 @@
+package com.kavenegar.sdk.otp;
+
+/**
+ * Settings for the low-latency {@code verify/lookup} path of an {@link OtpSender}. All durations
+ * are in milliseconds.
+ */
+public class OtpConfig {
+
+    private int connections = 2;
+    private long warmIntervalMillis = 15000L;
+    private int connectTimeoutMillis = 2000;
+    private long deadlineMillis = 3000L;
+    private boolean hedge;
+    private long hedgeMarginMillis = 1000L;
+
+    /**
+     * Connections kept open to the API; at least 2 when hedging, so the duplicate does not wait
+     * for the connection of the first request.
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * How often idle connections are exercised with a cheap {@code account/info} request, so they
+     * are neither closed by the server's keep-alive timeout nor found broken by an OTP. Keep it
+     * below the server's idle timeout.
+     */
+    public long getWarmIntervalMillis() {
+        return warmIntervalMillis;
+    }
+
+    public void setWarmIntervalMillis(long warmIntervalMillis) {
+        this.warmIntervalMillis = warmIntervalMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * Longest a caller waits for an answer before failing with
+     * {@link com.kavenegar.sdk.excepctions.DeadlineExceededException}.
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Whether a request still unanswered {@link #getHedgeMarginMillis()} before its deadline is sent
+     * again on another connection, the first answer winning. The user may then get the same code
+     * twice.
+     */
+    public boolean isHedge() {
+        return hedge;
+    }
+
+    public void setHedge(boolean hedge) {
+        this.hedge = hedge;
+    }
+
+    /**
+     * Time left before the deadline at which the duplicate is sent.
+     */
+    public long getHedgeMarginMillis() {
+        return hedgeMarginMillis;
+    }
+
+    public void setHedgeMarginMillis(long hedgeMarginMillis) {
+        this.hedgeMarginMillis = hedgeMarginMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "OtpConfig{" +
+                "connections=" + connections +
+                ", warmIntervalMillis=" + warmIntervalMillis +
+                ", connectTimeoutMillis=" + connectTimeoutMillis +
+                ", deadlineMillis=" + deadlineMillis +
+                ", hedge=" + hedge +
+                ", hedgeMarginMillis=" + hedgeMarginMillis +
+                '}';
+    }
+}
@@ -0,0 +1,299 @@
+package com.kavenegar.sdk.otp;
+
+import com.kavenegar.sdk.concurrent.LatencyHistogram;
+import com.kavenegar.sdk.concurrent.VirtualThreads;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.DeadlineExceededException;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.transport.ApacheHttpTransport;
+import com.kavenegar.sdk.transport.ConnectionPoolConfig;
+import com.kavenegar.sdk.transport.Transport;
+import com.kavenegar.sdk.transport.TransportResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The low-latency {@code verify/lookup} path enabled by
+ * {@link com.kavenegar.sdk.KavenegarApi#setOtpMode(OtpConfig)}.
+ * <p>
+ * OTPs go through a connection pool of their own, sized to {@link OtpConfig#getConnections()}.
+ * A background thread keeps those connections open: whenever no OTP was sent for a
+ * {@link OtpConfig#getWarmIntervalMillis() warm interval}, it posts one {@code account/info}
+ * request per connection, at the same time so each takes its own connection. That pays DNS, TCP and
+ * TLS setup ahead of time, and a failed round marks the sender unhealthy until one succeeds.
+ * <p>
+ * Every call has a deadline; with {@link OtpConfig#isHedge()} a call still unanswered close to its
+ * deadline is sent again on another connection. Attempts run on their own threads, virtual ones on
+ * Java 21, so the caller can stop waiting at the deadline.
+ */
+public class OtpSender implements AutoCloseable {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final OtpConfig config;
+    private final URI pingUri;
+    private final long deadlineNanos;
+    private final long hedgeAfterNanos;
+    private final long warmIntervalNanos;
+    private final Transport transport;
+    private final ExecutorService attempts = VirtualThreads.newPerTaskExecutor();
+    private final ScheduledExecutorService warmer;
+    private final ConcurrentMap<String, OtpTemplate> templates = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder deadlineMisses = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder pingFailures = new LongAdder();
+    private volatile long lastUsed;
+    private volatile boolean healthy = true;
+
+    /**
+     * @param pingUri URI of {@code account/info}, posted to keep the connections open
+     */
+    public OtpSender(OtpConfig config, URI pingUri) {
+        if (config.getConnections() < 1 || config.getDeadlineMillis() < 1 || config.getWarmIntervalMillis() < 1
+                || config.isHedge() && (config.getConnections() < 2
+                || config.getHedgeMarginMillis() < 1 || config.getHedgeMarginMillis() >= config.getDeadlineMillis())) {
+            throw new IllegalArgumentException("invalid otp config: " + config);
+        }
+        this.config = config;
+        this.pingUri = pingUri;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(config.getDeadlineMillis());
+        this.hedgeAfterNanos = config.isHedge()
+                ? TimeUnit.MILLISECONDS.toNanos(config.getDeadlineMillis() - config.getHedgeMarginMillis()) : -1;
+        this.warmIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getWarmIntervalMillis());
+        this.transport = new ApacheHttpTransport(poolConfig(config));
+        this.lastUsed = System.nanoTime() - warmIntervalNanos;
+        this.warmer = Executors.newSingleThreadScheduledExecutor(VirtualThreads.daemonThreads("kavenegar-otp-warmer"));
+        warmer.scheduleWithFixedDelay(this::warmIfIdle, 0, config.getWarmIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static ConnectionPoolConfig poolConfig(OtpConfig config) {
+        ConnectionPoolConfig pool = new ConnectionPoolConfig();
+        pool.setMaxTotal(config.getConnections());
+        pool.setMaxPerRoute(config.getConnections());
+        pool.setMaxIdleMillis(Math.max(pool.getMaxIdleMillis(), 4 * config.getWarmIntervalMillis()));
+        pool.setConnectTimeoutMillis(config.getConnectTimeoutMillis());
+        int deadline = (int) Math.min(Integer.MAX_VALUE, config.getDeadlineMillis());
+        pool.setSocketTimeoutMillis(deadline);
+        pool.setConnectionRequestTimeoutMillis(deadline);
+        return pool;
+    }
+
+    public OtpConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * The transport OTP attempts are posted through.
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * The compiled form of template {@code name}, cached.
+     */
+    public OtpTemplate template(String name) {
+        OtpTemplate template = templates.get(name);
+        return template != null ? template : templates.computeIfAbsent(name, OtpTemplate::of);
+    }
+
+    /**
+     * Runs {@code attempt}, and a hedged duplicate if enabled, and waits for the first answer until
+     * the deadline. {@code attempt} must be safe to run twice at once.
+     *
+     * @throws DeadlineExceededException if no attempt answered in time
+     */
+    public <T> T call(Supplier<T> attempt) throws BaseException {
+        long start = System.nanoTime();
+        lastUsed = start;
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(attempt, attempts);
+        try {
+            CompletableFuture<T> first = primary;
+            if (hedgeAfterNanos >= 0) {
+                try {
+                    return primary.get(hedgeAfterNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // close to the deadline: hedge below
+                }
+                hedges.increment();
+                first = firstOf(primary, CompletableFuture.supplyAsync(attempt, attempts));
+            }
+            return first.get(start + deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            deadlineMisses.increment();
+            throw new DeadlineExceededException("verify/lookup did not answer within " + config.getDeadlineMillis() + "ms",
+                    config.getDeadlineMillis());
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BaseException("Interrupted while waiting for verify/lookup");
+        } finally {
+            latency.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Completes with the first of the two results, or with the last failure if both fail.
+     */
+    private <T> CompletableFuture<T> firstOf(CompletableFuture<T> primary, CompletableFuture<T> hedge) {
+        final CompletableFuture<T> first = new CompletableFuture<>();
+        final AtomicInteger failed = new AtomicInteger();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                first.complete(result);
+            } else if (failed.incrementAndGet() == 2) {
+                first.completeExceptionally(unwrap(error));
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                if (first.complete(result)) {
+                    hedgeWins.increment();
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                first.completeExceptionally(unwrap(error));
+            }
+        });
+        return first;
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof RuntimeException) {
+            return (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        BaseException wrapped = new BaseException(String.valueOf(error));
+        wrapped.initCause(error);
+        return wrapped;
+    }
+
+    private void warmIfIdle() {
+        if (System.nanoTime() - lastUsed >= warmIntervalNanos) {
+            warm();
+        }
+    }
+
+    /**
+     * Opens, or checks, every connection now and waits until they have answered; call it at
+     * startup so the first OTP does not pay for connection setup.
+     *
+     * @return true if at least one connection answered
+     */
+    public boolean warm() {
+        CompletableFuture<?>[] pings = new CompletableFuture<?>[config.getConnections()];
+        final AtomicInteger answered = new AtomicInteger();
+        for (int i = 0; i < pings.length; i++) {
+            pings[i] = CompletableFuture.runAsync(() -> {
+                if (ping()) {
+                    answered.incrementAndGet();
+                }
+            }, attempts);
+        }
+        try {
+            CompletableFuture.allOf(pings).get(deadlineNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // pings still running count as failed for this round
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        healthy = answered.get() > 0;
+        return healthy;
+    }
+
+    private boolean ping() {
+        try (TransportResponse response = transport.post(pingUri, EMPTY, 0, 0)) {
+            if (response.getStatusCode() == 200) {
+                return true;
+            }
+        } catch (IOException | RuntimeException e) {
+            // counted below
+        }
+        pingFailures.increment();
+        return false;
+    }
+
+    /**
+     * False when none of the connections answered the last warm-up round.
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Latency of OTP calls as seen by the caller, hedges and deadline misses included.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getDeadlineMissCount() {
+        return deadlineMisses.sum();
+    }
+
+    /**
+     * Calls that were sent a second time.
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * Hedged calls where the second request answered first.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    public long getPingFailureCount() {
+        return pingFailures.sum();
+    }
+
+    /**
+     * Stops the warm-up thread and closes the OTP connections.
+     */
+    @Override
+    public void close() {
+        warmer.shutdownNow();
+        attempts.shutdown();
+        try {
+            transport.close();
+        } catch (IOException e) {
+            throw new HttpException("Failed to close otp transport", 0, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OtpSender{" +
+                "healthy=" + healthy +
+                ", count=" + latency.getCount() +
+                ", p50=" + TimeUnit.NANOSECONDS.toMillis(latency.percentileNanos(0.5)) + "ms" +
+                ", p99=" + TimeUnit.NANOSECONDS.toMillis(latency.percentileNanos(0.99)) + "ms" +
+                ", deadlineMisses=" + deadlineMisses.sum() +
+                ", hedges=" + hedges.sum() +
+                '}';
+    }
+}
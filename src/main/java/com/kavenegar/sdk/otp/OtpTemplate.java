@@ -0,0 +1,82 @@
+package com.kavenegar.sdk.otp;
+
+import com.kavenegar.sdk.codec.FormWriter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@code verify/lookup} template with the static parts of its request body encoded once: the
+ * parameter names and the encoded {@code template} parameter. Rendering a request then only
+ * encodes the receptor and tokens.
+ * <p>
+ * The body is byte for byte the one {@code verifyLookup(receptor, token, token2, token3, template)}
+ * writes. Instances are immutable and may be shared.
+ */
+public final class OtpTemplate {
+
+    private static final byte[] RECEPTOR = ascii("receptor=");
+    private static final byte[] TOKEN = ascii("&token=");
+    private static final byte[] TOKEN2 = ascii("&token2=");
+    private static final byte[] TOKEN3 = ascii("&token3=");
+
+    private final String name;
+    /**
+     * {@code &template=<name>}, form-encoded.
+     */
+    private final byte[] suffix;
+
+    private OtpTemplate(String name, byte[] suffix) {
+        this.name = name;
+        this.suffix = suffix;
+    }
+
+    public static OtpTemplate of(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("template name is required");
+        }
+        FormWriter form = FormWriter.acquire();
+        try {
+            form.param("template", name);
+            byte[] suffix = new byte[1 + form.length()];
+            suffix[0] = '&';
+            System.arraycopy(form.buffer(), 0, suffix, 1, form.length());
+            return new OtpTemplate(name, suffix);
+        } finally {
+            form.release();
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Writes the whole request body into the empty {@code form}.
+     *
+     * @param token2 second token, or {@code null} to leave it out
+     * @param token3 third token, or {@code null} to leave it out
+     */
+    public FormWriter writeTo(FormWriter form, String receptor, String token, String token2, String token3) {
+        if (receptor == null || token == null) {
+            throw new IllegalArgumentException("receptor and token are required");
+        }
+        form.append(RECEPTOR, 0, RECEPTOR.length).append(receptor);
+        form.append(TOKEN, 0, TOKEN.length).append(token);
+        if (token2 != null) {
+            form.append(TOKEN2, 0, TOKEN2.length).append(token2);
+        }
+        if (token3 != null) {
+            form.append(TOKEN3, 0, TOKEN3.length).append(token3);
+        }
+        return form.append(suffix, 0, suffix.length);
+    }
+
+    @Override
+    public String toString() {
+        return "OtpTemplate{" + name + '}';
+    }
+}
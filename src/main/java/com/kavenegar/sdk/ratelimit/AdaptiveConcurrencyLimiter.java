@@ -0,0 +1,274 @@
+package com.kavenegar.sdk.ratelimit;
+
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of requests in flight at a limit that follows the API's observed capacity.
+ * <p>
+ * Every request takes a slot with {@link #acquire()} and reports how it went with
+ * {@link #onSuccess}, {@link #onOverload} or {@link #onIgnore}. Successful round trips feed a
+ * moving average of the recent round-trip time, which is compared with a baseline: the lowest
+ * recent RTT seen, slowly drifting up. While the recent RTT stays within
+ * {@link AdaptiveLimitConfig#getRttTolerance()} of the baseline the limit grows; when it climbs,
+ * requests are queueing somewhere and the limit shrinks. A {@code SERVER_IS_BUSY} answer cuts the
+ * limit by the backoff ratio. The limit moves at most once per round trip.
+ * <p>
+ * Taking and returning a slot is a CAS on the in-flight counter; only callers that find the
+ * limit reached wait, and the estimator is updated under a short lock once per response.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double RECENT_RTT_WEIGHT = 0.2;
+    private static final double BASELINE_DRIFT = 1.002;
+
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final long maxWaitNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private volatile int limit;
+
+    // guarded by lock
+    private double estimatedLimit;
+    private double recentRttNanos;
+    private double baselineRttNanos;
+    private long lastAdjustNanos = System.nanoTime();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overloads = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(AdaptiveLimitConfig config) {
+        if (config.getMinLimit() < 1 || config.getMaxLimit() < config.getMinLimit()
+                || config.getBackoffRatio() <= 0 || config.getBackoffRatio() >= 1
+                || config.getSmoothing() <= 0 || config.getSmoothing() > 1 || config.getRttTolerance() < 1) {
+            throw new IllegalArgumentException("invalid adaptive limit config: " + config);
+        }
+        this.algorithm = config.getAlgorithm();
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.backoffRatio = config.getBackoffRatio();
+        this.rttTolerance = config.getRttTolerance();
+        this.smoothing = config.getSmoothing();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, config.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Takes a slot, waiting while the limit is reached.
+     *
+     * @return the start time to pass back to {@link #onSuccess}, {@link #onOverload} or {@link #onIgnore}
+     * @throws ConcurrencyLimitExceededException if no slot frees up within the configured maximum wait
+     */
+    public long acquire() throws BaseException {
+        if (tryTakeSlot()) {
+            return System.nanoTime();
+        }
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            while (!tryTakeSlot()) {
+                if (remaining <= 0) {
+                    rejected.increment();
+                    throw new ConcurrencyLimitExceededException("Concurrency limit of " + limit + " reached", limit);
+                }
+                try {
+                    remaining = slotFreed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BaseException("Interrupted while waiting for a request slot");
+                }
+            }
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    private boolean tryTakeSlot() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The request completed normally; its round-trip time is used as a latency sample.
+     */
+    public void onSuccess(long startNanos) {
+        long rtt = System.nanoTime() - startNanos;
+        int concurrent = inFlight.getAndDecrement();
+        samples.increment();
+        lock.lock();
+        try {
+            sample(startNanos, rtt, concurrent);
+        } finally {
+            lock.unlock();
+        }
+        wakeWaiters();
+    }
+
+    /**
+     * The API answered {@code SERVER_IS_BUSY}; the limit is cut back.
+     */
+    public void onOverload(long startNanos) {
+        inFlight.decrementAndGet();
+        overloads.increment();
+        lock.lock();
+        try {
+            decrease(startNanos);
+        } finally {
+            lock.unlock();
+        }
+        wakeWaiters();
+    }
+
+    /**
+     * The request failed for a reason that says nothing about load, e.g. a validation error.
+     */
+    public void onIgnore(long startNanos) {
+        inFlight.decrementAndGet();
+        wakeWaiters();
+    }
+
+    private void wakeWaiters() {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                slotFreed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Cuts the limit after a {@code SERVER_IS_BUSY} answer, at most once per round trip.
+     */
+    private void decrease(long startNanos) {
+        if (startNanos - lastAdjustNanos < 0) {
+            return;
+        }
+        lastAdjustNanos = System.nanoTime();
+        setEstimate(estimatedLimit * backoffRatio);
+    }
+
+    private void sample(long startNanos, long rtt, int concurrent) {
+        recentRttNanos = recentRttNanos == 0 ? rtt : recentRttNanos + (rtt - recentRttNanos) * RECENT_RTT_WEIGHT;
+        // Adjust once per round trip: requests that started before the last adjustment were
+        // sent under the old limit and say nothing about the new one.
+        if (startNanos - lastAdjustNanos < 0) {
+            return;
+        }
+        lastAdjustNanos = System.nanoTime();
+        // the baseline is the lowest recent RTT seen, allowed to creep up so it follows lasting shifts
+        baselineRttNanos = baselineRttNanos == 0 ? recentRttNanos
+                : Math.min(baselineRttNanos * BASELINE_DRIFT, recentRttNanos);
+        boolean saturated = concurrent * 2 >= estimatedLimit;
+        if (algorithm == LimitAlgorithm.Aimd) {
+            if (recentRttNanos > baselineRttNanos * rttTolerance) {
+                setEstimate(estimatedLimit * backoffRatio);
+            } else if (saturated) {
+                setEstimate(estimatedLimit + 1);
+            }
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * baselineRttNanos / recentRttNanos));
+            double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            if (target > estimatedLimit && !saturated) {
+                // the callers are not using the current limit; growing it would prove nothing
+                return;
+            }
+            setEstimate(estimatedLimit * (1 - smoothing) + target * smoothing);
+        }
+    }
+
+    private void setEstimate(double estimate) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimate));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Recent round-trip time, a fast-moving average, in milliseconds.
+     */
+    public double getRecentRttMillis() {
+        lock.lock();
+        try {
+            return recentRttNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unloaded round-trip time the recent one is compared with, in milliseconds.
+     */
+    public double getBaselineRttMillis() {
+        lock.lock();
+        try {
+            return baselineRttNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Requests that gave up waiting for a slot.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * {@code SERVER_IS_BUSY} answers seen.
+     */
+    public long getOverloadCount() {
+        return overloads.sum();
+    }
+
+    public long getSampleCount() {
+        return samples.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyLimiter{" +
+                "algorithm=" + algorithm +
+                ", limit=" + limit +
+                ", inFlight=" + inFlight.get() +
+                ", recentRttMillis=" + getRecentRttMillis() +
+                ", baselineRttMillis=" + getBaselineRttMillis() +
+                ", rejected=" + rejected.sum() +
+                ", overloads=" + overloads.sum() +
+                '}';
+    }
+}
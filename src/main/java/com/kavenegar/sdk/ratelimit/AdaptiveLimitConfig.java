@@ -0,0 +1,109 @@
+package com.kavenegar.sdk.ratelimit;
+
+/**
+ * Settings for an {@link AdaptiveConcurrencyLimiter}.
+ */
+public class AdaptiveLimitConfig {
+
+    private LimitAlgorithm algorithm = LimitAlgorithm.Gradient;
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private double backoffRatio = 0.9;
+    private double rttTolerance = 1.5;
+    private double smoothing = 0.2;
+    private long maxWaitMillis = Long.MAX_VALUE;
+
+    public LimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(LimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Factor the limit is multiplied by when the API answers {@code SERVER_IS_BUSY}, and, for
+     * {@link LimitAlgorithm#Aimd}, when latency exceeds the tolerance.
+     */
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * How far the recent round-trip time may rise above the baseline before it counts as
+     * queueing, e.g. {@code 1.5} for 50%.
+     */
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Weight of each new gradient estimate, between 0 and 1; lower values react more slowly.
+     */
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Longest a caller waits for a free slot before failing with
+     * {@link com.kavenegar.sdk.excepctions.ConcurrencyLimitExceededException}.
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLimitConfig{" +
+                "algorithm=" + algorithm +
+                ", initialLimit=" + initialLimit +
+                ", minLimit=" + minLimit +
+                ", maxLimit=" + maxLimit +
+                ", backoffRatio=" + backoffRatio +
+                ", rttTolerance=" + rttTolerance +
+                ", smoothing=" + smoothing +
+                ", maxWaitMillis=" + maxWaitMillis +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package com.kavenegar.sdk.ratelimit;
+
+/**
+ * How an {@link AdaptiveConcurrencyLimiter} moves its limit.
+ */
+public enum LimitAlgorithm {
+
+    /**
+     * Additive increase, multiplicative decrease: one more slot per round trip
+     * while latency stays within tolerance, a cut by the backoff ratio when it does not or the
+     * server reports it is busy.
+     */
+    Aimd,
+    /**
+     * Scales the limit by the ratio of baseline to recent round-trip time, plus a
+     * small headroom, so it tracks the point where latency starts to rise.
+     */
+    Gradient
+}
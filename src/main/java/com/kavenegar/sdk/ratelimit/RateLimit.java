@@ -0,0 +1,39 @@
+package com.kavenegar.sdk.ratelimit;
+
+/**
+ * A sustained request rate with an allowance for short bursts.
+ */
+public final class RateLimit {
+
+    private final double permitsPerSecond;
+    private final int burst;
+
+    /**
+     * @param permitsPerSecond sustained rate
+     * @param burst            requests allowed back to back after an idle period
+     */
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("invalid rate limit: " + permitsPerSecond + "/s, burst " + burst);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    public static RateLimit perSecond(double permitsPerSecond) {
+        return new RateLimit(permitsPerSecond, Math.max(1, (int) permitsPerSecond));
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    @Override
+    public String toString() {
+        return permitsPerSecond + "/s (burst " + burst + ")";
+    }
+}
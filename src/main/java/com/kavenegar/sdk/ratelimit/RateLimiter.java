@@ -0,0 +1,153 @@
+package com.kavenegar.sdk.ratelimit;
+
+import com.kavenegar.sdk.enums.EndpointFamily;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.RateLimitExceededException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client-side request budgets per API key, per sender line and per endpoint family.
+ * <p>
+ * Each budget is a {@link TokenBucket}, so taking a permit is one CAS per dimension and involves
+ * no lock. A request reserves a permit from every bucket that applies to it and then parks once
+ * for the longest of the waits; nothing spins. One limiter can be shared by several clients so
+ * that their combined traffic stays under the API's limits.
+ */
+public class RateLimiter {
+
+    private final RateLimit apiKeyLimit;
+    private final RateLimit senderLimit;
+    private final TokenBucket[] familyBuckets;
+    private final long maxWaitNanos;
+    private final ConcurrentMap<String, TokenBucket> apiKeyBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> senderBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder delayNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimiter(RateLimiterConfig config) {
+        this.apiKeyLimit = config.getApiKeyLimit();
+        this.senderLimit = config.getSenderLimit();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+        EndpointFamily[] families = EndpointFamily.values();
+        this.familyBuckets = new TokenBucket[families.length];
+        for (EndpointFamily family : families) {
+            RateLimit limit = config.getFamilyLimit(family);
+            familyBuckets[family.ordinal()] = limit == null ? null : new TokenBucket(limit);
+        }
+    }
+
+    /**
+     * Waits until one request for {@code apiKey} on {@code family}, sent from {@code senders}, fits
+     * every budget. If any budget turns the request down, or the wait is interrupted, the permits
+     * already reserved from the other budgets are given back.
+     *
+     * @param senders sender lines used by the request, or {@code null} if it has none
+     * @throws RateLimitExceededException if the wait would exceed the configured maximum
+     * @throws BaseException              if the thread is interrupted while waiting
+     */
+    public void acquire(String apiKey, EndpointFamily family, Iterable<String> senders) throws BaseException {
+        List<TokenBucket> reserved = new ArrayList<>(4);
+        long wait = 0L;
+        try {
+            wait = reserve(familyBuckets[family.ordinal()], "endpoint family " + family, reserved);
+            if (apiKeyLimit != null && apiKey != null) {
+                wait = Math.max(wait, reserve(bucket(apiKeyBuckets, apiKeyLimit, apiKey), "api key", reserved));
+            }
+            if (senderLimit != null && senders != null) {
+                for (String sender : distinct(senders)) {
+                    if (sender != null) {
+                        wait = Math.max(wait, reserve(bucket(senderBuckets, senderLimit, sender), "sender " + sender, reserved));
+                    }
+                }
+            }
+            if (wait > 0) {
+                delayed.increment();
+                delayNanos.add(wait);
+                park(wait);
+            }
+        } catch (BaseException e) {
+            for (TokenBucket bucket : reserved) {
+                bucket.release(1);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A sendArray request often repeats one sender; it takes one permit per distinct line.
+     */
+    private static Iterable<String> distinct(Iterable<String> senders) {
+        if (senders instanceof Collection && ((Collection<String>) senders).size() <= 1) {
+            return senders;
+        }
+        Set<String> unique = new LinkedHashSet<>();
+        for (String sender : senders) {
+            unique.add(sender);
+        }
+        return unique;
+    }
+
+    /**
+     * Reserves one permit from {@code bucket} and adds it to {@code reserved}.
+     */
+    private long reserve(TokenBucket bucket, String what, List<TokenBucket> reserved) {
+        if (bucket == null) {
+            return 0L;
+        }
+        long wait = bucket.reserve(1, maxWaitNanos);
+        if (wait < 0) {
+            rejected.increment();
+            throw new RateLimitExceededException("Rate limit exceeded for " + what);
+        }
+        reserved.add(bucket);
+        return wait;
+    }
+
+    private static TokenBucket bucket(ConcurrentMap<String, TokenBucket> buckets, RateLimit limit, String key) {
+        TokenBucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new TokenBucket(limit));
+    }
+
+    private static void park(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(RateLimiter.class, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new BaseException("Interrupted while waiting for a rate limit permit");
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Requests that had to wait for a permit.
+     */
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    /**
+     * Total time requests spent waiting for permits, in milliseconds.
+     */
+    public long getTotalDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(delayNanos.sum());
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
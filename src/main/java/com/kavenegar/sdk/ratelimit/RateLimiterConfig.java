@@ -0,0 +1,76 @@
+package com.kavenegar.sdk.ratelimit;
+
+import com.kavenegar.sdk.enums.EndpointFamily;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Budgets for a {@link RateLimiter}. A {@code null} limit means that dimension is not limited.
+ */
+public class RateLimiterConfig {
+
+    private RateLimit apiKeyLimit;
+    private RateLimit senderLimit;
+    private final Map<EndpointFamily, RateLimit> familyLimits = new EnumMap<>(EndpointFamily.class);
+    private long maxWaitMillis = Long.MAX_VALUE;
+
+    /**
+     * Requests per second allowed for each API key.
+     */
+    public RateLimit getApiKeyLimit() {
+        return apiKeyLimit;
+    }
+
+    public void setApiKeyLimit(RateLimit apiKeyLimit) {
+        this.apiKeyLimit = apiKeyLimit;
+    }
+
+    /**
+     * Requests per second allowed for each sender line number.
+     */
+    public RateLimit getSenderLimit() {
+        return senderLimit;
+    }
+
+    public void setSenderLimit(RateLimit senderLimit) {
+        this.senderLimit = senderLimit;
+    }
+
+    public RateLimit getFamilyLimit(EndpointFamily family) {
+        return familyLimits.get(family);
+    }
+
+    /**
+     * Requests per second allowed for one endpoint family, e.g. all {@code sms/*} calls.
+     */
+    public void setFamilyLimit(EndpointFamily family, RateLimit limit) {
+        if (limit == null) {
+            familyLimits.remove(family);
+        } else {
+            familyLimits.put(family, limit);
+        }
+    }
+
+    /**
+     * Longest a caller may be held back; a request that would wait longer fails with
+     * {@link com.kavenegar.sdk.excepctions.RateLimitExceededException} instead.
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiterConfig{" +
+                "apiKeyLimit=" + apiKeyLimit +
+                ", senderLimit=" + senderLimit +
+                ", familyLimits=" + familyLimits +
+                ", maxWaitMillis=" + maxWaitMillis +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.kavenegar.sdk.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm.
+ * <p>
+ * Instead of a token count refilled by a clock, the bucket keeps one {@link AtomicLong}: the
+ * theoretical time at which the next permit becomes free. Taking permits is a single CAS that
+ * pushes that time forward, and the caller learns exactly how long it must wait, so it can park
+ * once rather than poll. Up to {@code burst} permits are available at once after a quiet period.
+ */
+public final class TokenBucket {
+
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    private final AtomicLong nextFree;
+
+    public TokenBucket(RateLimit limit) {
+        this.nanosPerPermit = Math.max(1L, (long) (1_000_000_000L / limit.getPermitsPerSecond()));
+        this.burstNanos = nanosPerPermit * limit.getBurst();
+        this.nextFree = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserves {@code permits} and returns how long the caller must wait before using them.
+     *
+     * @param maxWaitNanos give up, reserving nothing, if the wait would be longer than this
+     * @return nanoseconds to wait, {@code 0} if the permits are available now, or {@code -1} if
+     * the wait would exceed {@code maxWaitNanos}
+     */
+    public long reserve(int permits, long maxWaitNanos) {
+        long cost = nanosPerPermit * permits;
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextFree.get();
+            long start = current - now > 0 ? current : now;
+            long next = start + cost;
+            long wait = Math.max(0L, next - now - burstNanos);
+            if (wait > maxWaitNanos) {
+                return -1L;
+            }
+            if (nextFree.compareAndSet(current, next)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Gives back {@code permits} taken by {@link #reserve(int, long)} but not used, moving the next
+     * free time back by their cost.
+     */
+    public void release(int permits) {
+        nextFree.addAndGet(-nanosPerPermit * permits);
+    }
+
+    /**
+     * Takes {@code permits} only if they are available right now.
+     */
+    public boolean tryAcquire(int permits) {
+        return reserve(permits, 0L) == 0L;
+    }
+}
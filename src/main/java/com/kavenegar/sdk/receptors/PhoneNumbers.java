@@ -0,0 +1,124 @@
+package com.kavenegar.sdk.receptors;
+
+/**
+ * Parses Iranian mobile numbers into a {@code long} without allocating.
+ * <p>
+ * {@code 09121234567}, {@code 9121234567}, {@code 989121234567}, {@code +989121234567} and
+ * {@code 00989121234567} all parse to the ten-digit national number {@code 9121234567}. Spaces,
+ * dashes and parentheses between digits are ignored, and Persian and Arabic-Indic digits are read
+ * like ASCII ones. Anything else is {@link #INVALID}, so it can be dropped before the API answers
+ * {@code INVALID_RECIPIENT}.
+ */
+public final class PhoneNumbers {
+
+    public static final long INVALID = -1;
+
+    private static final long MIN_MOBILE = 9_000_000_000L;
+    private static final long MAX_MOBILE = 9_999_999_999L;
+    private static final long COUNTRY_PREFIX = 98 * 10_000_000_000L;
+    private static final int MAX_DIGITS = 14;
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * The national number of {@code text}, or {@link #INVALID} if it is not an Iranian mobile number.
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int n = text.length();
+        int i = 0;
+        while (i < n && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        boolean plus = i < n && text.charAt(i) == '+';
+        if (plus) {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        int leadingZeros = 0;
+        for (; i < n; i++) {
+            char c = text.charAt(i);
+            int digit = digit(c);
+            if (digit < 0) {
+                if (c == ' ' || c == '-' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                    continue;
+                }
+                return INVALID;
+            }
+            if (++digits > MAX_DIGITS) {
+                return INVALID;
+            }
+            if (value == 0 && digit == 0) {
+                leadingZeros++;
+            }
+            value = value * 10 + digit;
+        }
+        if (plus) {
+            return digits == 12 && leadingZeros == 0 ? national(value) : INVALID;
+        }
+        switch (digits) {
+            case 10:
+                return leadingZeros == 0 ? mobile(value) : INVALID;
+            case 11:
+                return leadingZeros == 1 ? mobile(value) : INVALID;
+            case 12:
+                return leadingZeros == 0 ? national(value) : INVALID;
+            case 14:
+                return leadingZeros == 2 ? national(value) : INVALID;
+            default:
+                return INVALID;
+        }
+    }
+
+    private static long national(long international) {
+        return international >= COUNTRY_PREFIX ? mobile(international - COUNTRY_PREFIX) : INVALID;
+    }
+
+    private static long mobile(long national) {
+        return national >= MIN_MOBILE && national <= MAX_MOBILE ? national : INVALID;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        // Persian and Arabic-Indic digits
+        if (c >= '\u06F0' && c <= '\u06F9') {
+            return c - '\u06F0';
+        }
+        if (c >= '\u0660' && c <= '\u0669') {
+            return c - '\u0660';
+        }
+        return -1;
+    }
+
+    public static boolean isValid(CharSequence text) {
+        return parse(text) != INVALID;
+    }
+
+    /**
+     * Whether {@code number} is a national mobile number as returned by {@link #parse}.
+     */
+    public static boolean isValid(long number) {
+        return number >= MIN_MOBILE && number <= MAX_MOBILE;
+    }
+
+    /**
+     * {@code number} in the {@code 09121234567} form the API is usually given.
+     */
+    public static String format(long number) {
+        return "0" + number;
+    }
+
+    /**
+     * The normalized form of {@code text}, or {@code null} if it is not a valid mobile number.
+     */
+    public static String normalize(CharSequence text) {
+        long number = parse(text);
+        return number == INVALID ? null : format(number);
+    }
+}
@@ -0,0 +1,205 @@
+package com.kavenegar.sdk.receptors;
+
+import com.kavenegar.sdk.codec.FormValue;
+import com.kavenegar.sdk.codec.FormWriter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Receptors held as a {@code long[]} of national mobile numbers, see {@link PhoneNumbers}: eight
+ * bytes per receptor instead of a {@code String} each.
+ * <p>
+ * A batch is an immutable {@code List<String>}, so it can be passed wherever the client takes
+ * receptors, such as {@code send}, {@code sendArray} and {@code CallMakeTTS}. Request bodies are
+ * written from the numbers directly; {@link #get(int)} formats a {@code String} only when called,
+ * and {@link #subList(int, int)} is a view over the same array, so chunking copies nothing.
+ * Build one with {@link #builder()}, which drops invalid and duplicate numbers.
+ */
+public final class ReceptorBatch extends AbstractList<String> implements RandomAccess, FormValue {
+
+    private final long[] numbers;
+    private final int offset;
+    private final int size;
+
+    private ReceptorBatch(long[] numbers, int offset, int size) {
+        this.numbers = numbers;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Parses {@code receptors}, dropping invalid and duplicate numbers.
+     */
+    public static ReceptorBatch of(Iterable<? extends CharSequence> receptors) {
+        Builder builder = new Builder();
+        for (CharSequence receptor : receptors) {
+            builder.add(receptor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * National mobile number of receptor {@code index}.
+     */
+    public long number(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return numbers[offset + index];
+    }
+
+    @Override
+    public String get(int index) {
+        return PhoneNumbers.format(number(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ReceptorBatch subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("from " + fromIndex + ", to " + toIndex + ", size " + size);
+        }
+        return new ReceptorBatch(numbers, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Writes the receptors joined by commas, as the {@code receptor} parameter of {@code send}.
+     */
+    @Override
+    public void writeFormValue(FormWriter out) {
+        for (int i = offset, end = offset + size; i < end; i++) {
+            if (i > offset) {
+                out.append(",");
+            }
+            out.append("0").append(numbers[i]);
+        }
+    }
+
+    /**
+     * Writes the receptors as a JSON array of strings, as the {@code receptor} parameter of
+     * {@code sendarray}.
+     */
+    @Override
+    public void writeJsonArray(FormWriter out) {
+        out.append("[");
+        for (int i = offset, end = offset + size; i < end; i++) {
+            if (i > offset) {
+                out.append(",");
+            }
+            out.append("\"0").append(numbers[i]).append("\"");
+        }
+        out.append("]");
+    }
+
+    /**
+     * Collects receptors for a {@link ReceptorBatch}. Numbers that do not parse are kept aside in
+     * {@link #getRejected()}; repeats of a number already added are counted and skipped. Use the
+     * result of {@code add} to keep per-receptor data, such as {@code sendArray} messages, aligned
+     * with the batch.
+     */
+    public static final class Builder {
+
+        private long[] numbers = new long[64];
+        private int size;
+        /**
+         * Open-addressing set of the numbers added so far; 0 marks an empty slot.
+         */
+        private long[] seen = new long[128];
+        private final List<String> rejected = new ArrayList<>();
+        private int duplicates;
+
+        private Builder() {
+        }
+
+        /**
+         * @return true if the number was added; false if it is invalid or a duplicate
+         */
+        public boolean add(CharSequence receptor) {
+            long number = PhoneNumbers.parse(receptor);
+            if (number == PhoneNumbers.INVALID) {
+                rejected.add(String.valueOf(receptor));
+                return false;
+            }
+            return addNumber(number);
+        }
+
+        /**
+         * Adds a national mobile number as returned by {@link PhoneNumbers#parse}.
+         *
+         * @return true if the number was added; false if it is invalid or a duplicate
+         */
+        public boolean add(long number) {
+            if (!PhoneNumbers.isValid(number)) {
+                rejected.add(Long.toString(number));
+                return false;
+            }
+            return addNumber(number);
+        }
+
+        private boolean addNumber(long number) {
+            if (!insert(number)) {
+                duplicates++;
+                return false;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+            return true;
+        }
+
+        private boolean insert(long number) {
+            if (size * 2 >= seen.length) {
+                long[] old = seen;
+                seen = new long[old.length * 2];
+                for (long value : old) {
+                    if (value != 0) {
+                        insert(value);
+                    }
+                }
+            }
+            int mask = seen.length - 1;
+            int slot = (int) ((number * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+            while (seen[slot] != 0) {
+                if (seen[slot] == number) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            seen[slot] = number;
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Inputs that were not valid mobile numbers, in the order they were added.
+         */
+        public List<String> getRejected() {
+            return Collections.unmodifiableList(rejected);
+        }
+
+        public int getDuplicateCount() {
+            return duplicates;
+        }
+
+        public ReceptorBatch build() {
+            return new ReceptorBatch(Arrays.copyOf(numbers, size), 0, size);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.retry;
+
+/**
+ * How a {@link RetryEngine} treats a failed request.
+ */
+public enum FailureClass {
+
+    /**
+     * The request may succeed if sent again: the API was busy or briefly failing, or the
+     * connection broke.
+     */
+    Transient,
+    /**
+     * Sending the request again gives the same answer, e.g. an invalid API key, too little credit
+     * or a malformed parameter.
+     */
+    Permanent
+}
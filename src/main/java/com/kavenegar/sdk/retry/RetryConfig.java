@@ -0,0 +1,128 @@
+package com.kavenegar.sdk.retry;
+
+/**
+ * Settings for a {@link RetryEngine}.
+ * <p>
+ * The wait before retry {@code n} is drawn from
+ * {@code min(maxBackoff, initialBackoff * multiplier^(n-1))}, reduced by a random fraction of up to
+ * {@link #getJitter()} so that clients failing together do not retry together.
+ */
+public class RetryConfig {
+
+    private int maxAttempts = 3;
+    private long initialBackoffMillis = 100L;
+    private long maxBackoffMillis = 2000L;
+    private double backoffMultiplier = 2.0;
+    private double jitter = 1.0;
+    private boolean hedgeReads;
+    private double hedgePercentile = 0.95;
+    private long minHedgeDelayMillis = 10L;
+    private int hedgeWindow = 200;
+
+    /**
+     * Total number of tries, the first one included; {@code 1} turns retries off.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    /**
+     * Fraction of each backoff that is randomized: {@code 0} waits the full backoff, {@code 1}
+     * waits anywhere between zero and the full backoff.
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * Whether read-only requests such as {@code status}, {@code select} and {@code accountInfo} are
+     * sent a second time when the first has not answered within the hedge delay; the first answer
+     * wins.
+     */
+    public boolean isHedgeReads() {
+        return hedgeReads;
+    }
+
+    public void setHedgeReads(boolean hedgeReads) {
+        this.hedgeReads = hedgeReads;
+    }
+
+    /**
+     * Latency percentile of the endpoint used as hedge delay, e.g. {@code 0.95}, so that about
+     * one read in twenty is hedged.
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return minHedgeDelayMillis;
+    }
+
+    public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+    }
+
+    /**
+     * Number of responses the hedge delay of an endpoint is computed over; reads are not hedged
+     * until the first window is complete.
+     */
+    public int getHedgeWindow() {
+        return hedgeWindow;
+    }
+
+    public void setHedgeWindow(int hedgeWindow) {
+        this.hedgeWindow = hedgeWindow;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryConfig{" +
+                "maxAttempts=" + maxAttempts +
+                ", initialBackoffMillis=" + initialBackoffMillis +
+                ", maxBackoffMillis=" + maxBackoffMillis +
+                ", backoffMultiplier=" + backoffMultiplier +
+                ", jitter=" + jitter +
+                ", hedgeReads=" + hedgeReads +
+                ", hedgePercentile=" + hedgePercentile +
+                ", minHedgeDelayMillis=" + minHedgeDelayMillis +
+                ", hedgeWindow=" + hedgeWindow +
+                '}';
+    }
+}
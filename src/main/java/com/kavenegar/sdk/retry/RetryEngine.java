@@ -0,0 +1,289 @@
+package com.kavenegar.sdk.retry;
+
+import com.kavenegar.sdk.concurrent.LatencyHistogram;
+import com.kavenegar.sdk.concurrent.ParallelExecutor;
+import com.kavenegar.sdk.concurrent.VirtualThreads;
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.enums.MetaData;
+import com.kavenegar.sdk.excepctions.ApiException;
+import com.kavenegar.sdk.excepctions.BaseException;
+import com.kavenegar.sdk.excepctions.HttpException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed requests and, optionally, hedges slow reads.
+ * <p>
+ * Failures are sorted by {@link #classify}: transient ones are retried after a capped, jittered
+ * exponential backoff, permanent ones are thrown at once. Only requests the caller marks as safe to
+ * repeat are retried at all: read-only endpoints, and sends whose every message carries a local id
+ * the API de-duplicates on.
+ * <p>
+ * With {@link RetryConfig#isHedgeReads()} a read that has not answered within the
+ * {@link RetryConfig#getHedgePercentile() p95} latency of its endpoint is sent a second time, and
+ * whichever answer comes first is used. Hedged attempts run on their own threads, virtual ones on
+ * Java 21.
+ */
+public class RetryEngine implements AutoCloseable {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double backoffMultiplier;
+    private final double jitter;
+    private final boolean hedgeReads;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final int hedgeWindow;
+
+    private final LatencyHistogram[] latencies;
+    /**
+     * Per endpoint ordinal; -1 until the first latency window is complete.
+     */
+    private final AtomicLongArray hedgeDelayNanos;
+    private final ExecutorService hedgeExecutor;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public RetryEngine(RetryConfig config) {
+        if (config.getMaxAttempts() < 1 || config.getInitialBackoffMillis() < 0
+                || config.getMaxBackoffMillis() < config.getInitialBackoffMillis()
+                || config.getBackoffMultiplier() < 1 || config.getJitter() < 0 || config.getJitter() > 1
+                || config.getHedgePercentile() <= 0 || config.getHedgePercentile() >= 1
+                || config.getHedgeWindow() < 1) {
+            throw new IllegalArgumentException("invalid retry config: " + config);
+        }
+        this.maxAttempts = config.getMaxAttempts();
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(config.getInitialBackoffMillis());
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxBackoffMillis());
+        this.backoffMultiplier = config.getBackoffMultiplier();
+        this.jitter = config.getJitter();
+        this.hedgeReads = config.isHedgeReads();
+        this.hedgePercentile = config.getHedgePercentile();
+        this.minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.getMinHedgeDelayMillis());
+        this.hedgeWindow = config.getHedgeWindow();
+        Endpoint[] all = Endpoint.values();
+        this.latencies = new LatencyHistogram[all.length];
+        this.hedgeDelayNanos = new AtomicLongArray(all.length);
+        for (Endpoint endpoint : all) {
+            latencies[endpoint.ordinal()] = new LatencyHistogram();
+            hedgeDelayNanos.set(endpoint.ordinal(), -1);
+        }
+        this.hedgeExecutor = hedgeReads ? VirtualThreads.newPerTaskExecutor() : null;
+    }
+
+    /**
+     * Sorts a failure into transient or permanent.
+     * <ul>
+     *   <li>API codes {@code 105} (server busy) and {@code 107} (request failed) are transient;
+     *       every other API code, such as {@code 101} invalid key, {@code 104} no credit or
+     *       {@code 110}&ndash;{@code 116} bad parameters, is permanent.</li>
+     *   <li>HTTP {@code 408}, {@code 429} and {@code 5xx} answers are transient, other statuses permanent.</li>
+     *   <li>Transport failures ({@link HttpException} code 0) are transient, connect timeouts and reset
+     *       connections included, unless the host is unknown, TLS failed or the thread was interrupted.</li>
+     *   <li>Anything else, such as a client-side rate or concurrency limit or an open circuit breaker, is permanent.</li>
+     * </ul>
+     */
+    public static FailureClass classify(BaseException failure) {
+        if (failure instanceof ApiException) {
+            MetaData code = ((ApiException) failure).getCode();
+            return code == MetaData.SERVER_IS_BUSY || code == MetaData.REQUEST_FAILED
+                    ? FailureClass.Transient : FailureClass.Permanent;
+        }
+        if (failure instanceof HttpException) {
+            int code = ((HttpException) failure).getCode();
+            if (code == 0) {
+                return classify(failure.getCause());
+            }
+            return code == 408 || code == 429 || code >= 500 ? FailureClass.Transient : FailureClass.Permanent;
+        }
+        return FailureClass.Permanent;
+    }
+
+    private static FailureClass classify(Throwable cause) {
+        if (!(cause instanceof IOException) || cause instanceof UnknownHostException || cause instanceof SSLException
+                || cause.getClass() == InterruptedIOException.class) {
+            return FailureClass.Permanent;
+        }
+        return FailureClass.Transient;
+    }
+
+    /**
+     * Runs {@code attempt} until it succeeds, fails permanently or runs out of attempts.
+     *
+     * @param retrySafe whether sending the request twice is harmless; if not, it is tried only once
+     * @throws BaseException the last failure
+     */
+    public <T> T execute(Endpoint endpoint, boolean retrySafe, Supplier<T> attempt) throws BaseException {
+        boolean hedged = hedges(endpoint);
+        for (int tries = 1; ; tries++) {
+            try {
+                return hedged ? hedged(endpoint, attempt) : timed(endpoint, attempt);
+            } catch (BaseException e) {
+                if (!retrySafe || tries >= maxAttempts || classify(e) != FailureClass.Transient
+                        || !backOff(tries)) {
+                    throw e;
+                }
+                retries.increment();
+            }
+        }
+    }
+
+    /**
+     * Whether reads from {@code endpoint} are hedged; their attempts must then not share mutable
+     * state, such as a pooled request body.
+     */
+    public boolean hedges(Endpoint endpoint) {
+        return hedgeReads && endpoint.isIdempotent();
+    }
+
+    /**
+     * Sleeps before retry number {@code retry}; returns false if interrupted.
+     */
+    private boolean backOff(int retry) {
+        long nanos = backoffNanos(retry);
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    long backoffNanos(int retry) {
+        double exponential = initialBackoffNanos * Math.pow(backoffMultiplier, retry - 1);
+        double capped = Math.min(maxBackoffNanos, exponential);
+        return (long) (capped * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private <T> T timed(Endpoint endpoint, Supplier<T> attempt) {
+        long start = System.nanoTime();
+        T result = attempt.get();
+        record(endpoint, System.nanoTime() - start);
+        return result;
+    }
+
+    private void record(Endpoint endpoint, long nanos) {
+        LatencyHistogram histogram = latencies[endpoint.ordinal()];
+        histogram.recordNanos(nanos);
+        if (histogram.getCount() >= hedgeWindow) {
+            synchronized (histogram) {
+                if (histogram.getCount() >= hedgeWindow) {
+                    long delay = Math.max(minHedgeDelayNanos, histogram.percentileNanos(hedgePercentile));
+                    hedgeDelayNanos.set(endpoint.ordinal(), delay);
+                    histogram.reset();
+                }
+            }
+        }
+    }
+
+    private <T> T hedged(final Endpoint endpoint, final Supplier<T> attempt) {
+        long delay = hedgeDelayNanos.get(endpoint.ordinal());
+        if (delay < 0) {
+            return timed(endpoint, attempt);
+        }
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> timed(endpoint, attempt), hedgeExecutor);
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // slower than usual: hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BaseException("Interrupted while waiting for " + endpoint.getPath());
+        }
+        hedges.increment();
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> timed(endpoint, attempt), hedgeExecutor);
+        final CompletableFuture<T> first = new CompletableFuture<>();
+        final AtomicInteger failed = new AtomicInteger();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                first.complete(result);
+            } else if (failed.incrementAndGet() == 2) {
+                first.completeExceptionally(unwrap(error));
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                if (first.complete(result)) {
+                    hedgeWins.increment();
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                first.completeExceptionally(unwrap(error));
+            }
+        });
+        return ParallelExecutor.await(first);
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof RuntimeException) {
+            return (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        BaseException wrapped = new BaseException(String.valueOf(error));
+        wrapped.initCause(error);
+        return wrapped;
+    }
+
+    /**
+     * Current hedge delay of {@code endpoint} in milliseconds, or -1 while it is still being measured.
+     */
+    public double getHedgeDelayMillis(Endpoint endpoint) {
+        long nanos = hedgeDelayNanos.get(endpoint.ordinal());
+        return nanos < 0 ? -1 : nanos / 1_000_000.0;
+    }
+
+    /**
+     * Attempts made after a transient failure.
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Reads that were sent a second time.
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * Hedged reads where the second request answered first.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * Stops the hedging threads; hedges still running are left to finish.
+     */
+    @Override
+    public void close() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.kavenegar.sdk.schedule;
+
+import com.kavenegar.sdk.excepctions.JournalException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the sends a {@link SendScheduler} holds, replayed when it starts.
+ * <p>
+ * Scheduling appends an {@code ADD} record, and cancelling or releasing appends a {@code REMOVE}
+ * record. Records are buffered and written and forced once per tick. Opening compacts the log down
+ * to the live entries, and the scheduler compacts it again once removed entries outweigh live ones.
+ * <p>
+ * Each record is {@code [int length][byte type][payload][int crc32]}; reading stops at a short
+ * record or a checksum mismatch, which is how a torn final write is detected. Not thread-safe; the
+ * scheduler calls it under its lock.
+ */
+final class ScheduleStore {
+
+    private static final String FILE_NAME = "schedule.log";
+    private static final String COMPACT_NAME = "schedule.log.compact";
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    /**
+     * Highest handle sequence handed out so far, written first in a compacted log.
+     */
+    private static final byte SEQUENCE = 3;
+
+    private static final int HEADER_SIZE = 4 + 1;
+    private static final int CRC_SIZE = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Path compactFile;
+    private FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private boolean dirty;
+    private long records;
+
+    private ScheduleStore(Path directory) {
+        this.file = directory.resolve(FILE_NAME);
+        this.compactFile = directory.resolve(COMPACT_NAME);
+    }
+
+    /**
+     * One scheduled send read back from the log.
+     */
+    static final class Entry {
+
+        final long handle;
+        final long dueMillis;
+        final byte type;
+        final String sender;
+        final long receptor;
+        final String message;
+        final String localId;
+
+        Entry(long handle, long dueMillis, byte type, String sender, long receptor, String message, String localId) {
+            this.handle = handle;
+            this.dueMillis = dueMillis;
+            this.type = type;
+            this.sender = sender;
+            this.receptor = receptor;
+            this.message = message;
+            this.localId = localId;
+        }
+    }
+
+    /**
+     * Reads the log in {@code directory} into {@code live}, keyed by handle, and the highest handle
+     * sequence it has seen into {@code maxSequence[0]}. The caller then writes the live entries
+     * back with {@link #beginCompaction(long)}.
+     */
+    static ScheduleStore open(Path directory, Map<Long, Entry> live, long[] maxSequence) {
+        ScheduleStore store = new ScheduleStore(directory);
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(store.compactFile);
+            if (Files.exists(store.file)) {
+                store.read(live, maxSequence);
+            }
+            store.channel = FileChannel.open(store.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return store;
+        } catch (IOException e) {
+            throw new JournalException("Failed to open send schedule in " + directory, e);
+        }
+    }
+
+    private void read(Map<Long, Entry> live, long[] maxSequence) throws IOException {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = input.map(FileChannel.MapMode.READ_ONLY, 0, input.size());
+            while (data.remaining() >= HEADER_SIZE + CRC_SIZE) {
+                int start = data.position();
+                int length = data.getInt();
+                if (length < 1 + 8 || length > data.remaining() - CRC_SIZE) {
+                    break;
+                }
+                crc.reset();
+                ByteBuffer body = data.duplicate();
+                body.limit(start + 4 + length);
+                crc.update(body);
+                data.position(start + 4 + length);
+                if ((int) crc.getValue() != data.getInt()) {
+                    break;
+                }
+                int end = data.position();
+                data.position(start + 4);
+                byte type = data.get();
+                long handle = data.getLong();
+                maxSequence[0] = Math.max(maxSequence[0], handle >>> 32);
+                if (type == ADD) {
+                    long due = data.getLong();
+                    byte messageType = data.get();
+                    long receptor = data.getLong();
+                    String sender = readString(data);
+                    String message = readString(data);
+                    String localId = readString(data);
+                    entries.put(handle, new Entry(handle, due, messageType, sender, receptor, message, localId));
+                } else if (type == REMOVE) {
+                    entries.remove(handle);
+                }
+                data.position(end);
+            }
+        }
+        live.putAll(entries);
+    }
+
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void add(long handle, long dueMillis, byte type, String sender, long receptor, String message, String localId) {
+        byte[] senderBytes = sender.getBytes(StandardCharsets.UTF_8);
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        byte[] localIdBytes = localId == null ? null : localId.getBytes(StandardCharsets.UTF_8);
+        int payload = 8 + 8 + 1 + 8 + 4 + senderBytes.length + 4 + messageBytes.length + 4 + (localIdBytes == null ? 0 : localIdBytes.length);
+        ByteBuffer record = begin(ADD, handle, payload);
+        record.putLong(dueMillis);
+        record.put(type);
+        record.putLong(receptor);
+        putBytes(record, senderBytes);
+        putBytes(record, messageBytes);
+        putBytes(record, localIdBytes);
+        seal(record);
+    }
+
+    private static void putBytes(ByteBuffer record, byte[] bytes) {
+        if (bytes == null) {
+            record.putInt(-1);
+            return;
+        }
+        record.putInt(bytes.length);
+        record.put(bytes);
+    }
+
+    void remove(long handle) {
+        seal(begin(REMOVE, handle, 8));
+    }
+
+    private void sequence(long sequence) {
+        seal(begin(SEQUENCE, sequence << 32, 8));
+    }
+
+    private static ByteBuffer begin(byte type, long handle, int payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload + CRC_SIZE);
+        record.putInt(1 + payload);
+        record.put(type);
+        record.putLong(handle);
+        return record;
+    }
+
+    /**
+     * Seals {@code record} with its checksum and buffers it.
+     */
+    private void seal(ByteBuffer record) {
+        crc.reset();
+        crc.update(record.array(), 4, record.position() - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        if (record.remaining() > out.remaining()) {
+            write();
+        }
+        if (record.remaining() > out.remaining()) {
+            writeFully(record);
+        } else {
+            out.put(record);
+        }
+        records++;
+        dirty = true;
+    }
+
+    /**
+     * Writes buffered records to the file.
+     */
+    private void write() {
+        out.flip();
+        writeFully(out);
+        out.clear();
+    }
+
+    private void writeFully(ByteBuffer data) {
+        try {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException e) {
+            throw new JournalException("Failed to write send schedule " + file, e);
+        }
+    }
+
+    /**
+     * Writes and forces everything recorded since the last flush.
+     */
+    void flush() {
+        if (!dirty) {
+            return;
+        }
+        write();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new JournalException("Failed to flush send schedule " + file, e);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Records written since the log was last compacted.
+     */
+    long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Starts a compacted copy of the log: the caller then {@link #add}s every live entry and calls
+     * {@link #endCompaction()}, which replaces the log with the copy.
+     */
+    void beginCompaction(long maxSequence) {
+        flush();
+        try {
+            channel.close();
+            channel = FileChannel.open(compactFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new JournalException("Failed to compact send schedule " + file, e);
+        }
+        records = 0;
+        sequence(maxSequence);
+    }
+
+    void endCompaction() {
+        dirty = true;
+        flush();
+        try {
+            channel.close();
+            Files.move(compactFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new JournalException("Failed to compact send schedule " + file, e);
+        }
+    }
+
+    void close() {
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new JournalException("Failed to close send schedule " + file, e);
+            }
+        }
+    }
+}
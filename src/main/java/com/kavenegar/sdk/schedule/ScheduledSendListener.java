@@ -0,0 +1,21 @@
+package com.kavenegar.sdk.schedule;
+
+import com.kavenegar.sdk.models.SendResult;
+
+/**
+ * Told the outcome of each send a {@link SendScheduler} released, by the handle
+ * {@link SendScheduler#schedule} returned. Called on the dispatcher's worker threads.
+ */
+public interface ScheduledSendListener {
+
+    void onSent(long handle, SendResult result);
+
+    void onFailed(long handle, Throwable error);
+
+    /**
+     * A tick failed, e.g. because the store could not be written; the sends it did not hand over
+     * are offered again on the next tick. Called on the scheduler's ticker thread.
+     */
+    default void onTickFailed(Throwable error) {
+    }
+}
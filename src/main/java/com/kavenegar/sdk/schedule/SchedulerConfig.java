@@ -0,0 +1,57 @@
+package com.kavenegar.sdk.schedule;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for a {@link SendScheduler}.
+ */
+public class SchedulerConfig {
+
+    private long tickMillis = 100L;
+    private int maxBatchSize = 100;
+    private Path storeDirectory;
+
+    /**
+     * Resolution of the timing wheel: a send is released on the first tick at or after its time.
+     */
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Most sends released together as one {@code sendArray} job. Keep it at or below the client's
+     * receptor chunk size so a job is one request.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Directory of the file that keeps scheduled sends across restarts, or {@code null} to keep
+     * them in memory only.
+     */
+    public Path getStoreDirectory() {
+        return storeDirectory;
+    }
+
+    public void setStoreDirectory(Path storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerConfig{" +
+                "tickMillis=" + tickMillis +
+                ", maxBatchSize=" + maxBatchSize +
+                ", storeDirectory=" + storeDirectory +
+                '}';
+    }
+}
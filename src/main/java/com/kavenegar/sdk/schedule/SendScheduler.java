@@ -0,0 +1,630 @@
+package com.kavenegar.sdk.schedule;
+
+import com.kavenegar.sdk.batch.SendArrayBatch;
+import com.kavenegar.sdk.concurrent.VirtualThreads;
+import com.kavenegar.sdk.dispatch.SendDispatcher;
+import com.kavenegar.sdk.dispatch.SendJob;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.excepctions.QueueFullException;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.receptors.PhoneNumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds future-dated sends on the client and hands them to a {@link SendDispatcher} when due,
+ * instead of posting each one with a {@code date} and tracking it on the server.
+ * <p>
+ * Sends are kept in a hierarchical timing wheel: four levels of 256 slots, the first one tick
+ * each and every level 256 times coarser than the one below, so scheduling and cancelling are
+ * O(1) and a tick only touches the sends that fall due or move down a level. A send is held in
+ * parallel primitive arrays, about fifty bytes plus its message, with the receptor as a
+ * {@link PhoneNumbers national number} and senders interned; the message string is kept as given,
+ * so a campaign passing one instance for all its receptors stores it once.
+ * <p>
+ * Every tick, due sends are released as {@code sendArray} jobs of up to
+ * {@link SchedulerConfig#getMaxBatchSize()} rows. If the dispatcher's queue is full they stay due
+ * and are offered again on the next tick. {@link #cancel(long)} drops a send that has not been
+ * released yet without any API call. With a {@link SchedulerConfig#getStoreDirectory() store}
+ * configured, scheduled sends survive a restart, with the same handles, and those that fell due
+ * while the client was down are released on the first tick; a send is removed from the store once
+ * the dispatcher has taken it, so the outbox journal, if any, covers it from there.
+ */
+public class SendScheduler implements AutoCloseable {
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /**
+     * Sends beyond the top level, re-inserted whenever the top level wraps around.
+     */
+    private static final int OVERFLOW = LEVELS * SLOTS;
+    /**
+     * Sends that are due and waiting to be released.
+     */
+    private static final int READY = OVERFLOW + 1;
+    private static final int NONE = -1;
+
+    private static final byte FREE = 0;
+    private static final byte SCHEDULED = 1;
+    private static final byte RELEASING = 2;
+
+    private final SendDispatcher dispatcher;
+    private final long tickMillis;
+    private final long origin;
+    private final int maxBatchSize;
+    private final ScheduleStore store;
+    private volatile ScheduledSendListener listener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int[] heads = new int[READY + 1];
+    private long currentTick;
+
+    // one entry per index; free indexes are chained through next
+    private long[] dueMillis = new long[0];
+    private long[] receptors = new long[0];
+    private int[] senderIds = new int[0];
+    private String[] messages = new String[0];
+    private String[] localIds = new String[0];
+    private byte[] types = new byte[0];
+    private byte[] states = new byte[0];
+    private int[] sequences = new int[0];
+    private int[] buckets = new int[0];
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+    private int capacity;
+    private int freeHead = NONE;
+    private int highWater;
+    private long sequence;
+
+    private final List<String> senders = new ArrayList<>();
+    private final Map<String, Integer> senderIndex = new HashMap<>();
+
+    private int scheduled;
+    private long releasedCount;
+    private long cancelledCount;
+
+    private volatile boolean closed;
+    private final Thread ticker;
+    private volatile Throwable tickerFailure;
+    private final LongAdder tickFailures = new LongAdder();
+
+    public SendScheduler(SendDispatcher dispatcher, SchedulerConfig config) {
+        if (config.getTickMillis() < 1 || config.getMaxBatchSize() < 1) {
+            throw new IllegalArgumentException("invalid scheduler config: " + config);
+        }
+        this.dispatcher = dispatcher;
+        this.tickMillis = config.getTickMillis();
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.origin = System.currentTimeMillis();
+        Arrays.fill(heads, NONE);
+        grow(1024);
+
+        if (config.getStoreDirectory() == null) {
+            this.store = null;
+        } else {
+            Map<Long, ScheduleStore.Entry> live = new LinkedHashMap<>();
+            long[] maxSequence = new long[1];
+            this.store = ScheduleStore.open(config.getStoreDirectory(), live, maxSequence);
+            restore(live.values(), maxSequence[0]);
+        }
+        this.ticker = VirtualThreads.daemonThreads("kavenegar-scheduler").newThread(this::tickLoop);
+        this.ticker.start();
+    }
+
+    public void setListener(ScheduledSendListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Schedules one message to go out at {@code dueMillis}, a {@link System#currentTimeMillis()}
+     * time; a time already past is sent on the next tick.
+     *
+     * @param localId optional local id, or {@code null}
+     * @return handle for {@link #cancel(long)} and the {@link ScheduledSendListener}
+     * @throws IllegalArgumentException if the receptor is not a valid mobile number
+     * @throws IllegalStateException    if the scheduler is closed or its ticker thread died
+     */
+    public long schedule(long dueMillis, String sender, String receptor, String message, MessageType type, String localId) {
+        long number = PhoneNumbers.parse(receptor);
+        if (number == PhoneNumbers.INVALID) {
+            throw new IllegalArgumentException("invalid receptor: " + receptor);
+        }
+        if (sender == null || message == null || type == null) {
+            throw new IllegalArgumentException("sender, message and type are required");
+        }
+        lock.lock();
+        try {
+            ensureOpen();
+            int index = allocate();
+            long handle = ((++sequence & 0xFFFFFFFFL) << 32) | index;
+            set(index, handle, dueMillis, internSender(sender), number, message, (byte) type.getValue(), localId);
+            if (store != null) {
+                store.add(handle, dueMillis, types[index], sender, number, message, localId);
+            }
+            return handle;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long schedule(long dueMillis, String sender, String receptor, String message) {
+        return schedule(dueMillis, sender, receptor, message, MessageType.MobileMemory, null);
+    }
+
+    /**
+     * Drops a send that has not been handed to the dispatcher yet.
+     *
+     * @return false if the handle is unknown or the send was already released
+     */
+    public boolean cancel(long handle) {
+        int index = (int) handle;
+        lock.lock();
+        try {
+            if (index < 0 || index >= highWater || states[index] != SCHEDULED || sequences[index] != (int) (handle >>> 32)) {
+                return false;
+            }
+            unlink(index);
+            free(index);
+            cancelledCount++;
+            if (store != null) {
+                store.remove(handle);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void restore(Iterable<ScheduleStore.Entry> entries, long maxSequence) {
+        sequence = maxSequence;
+        int maxIndex = -1;
+        for (ScheduleStore.Entry entry : entries) {
+            maxIndex = Math.max(maxIndex, (int) entry.handle);
+        }
+        while (capacity <= maxIndex) {
+            grow(capacity * 2);
+        }
+        highWater = maxIndex + 1;
+        for (ScheduleStore.Entry entry : entries) {
+            int index = (int) entry.handle;
+            set(index, entry.handle, entry.dueMillis, internSender(entry.sender), entry.receptor, entry.message, entry.type, entry.localId);
+        }
+        // chain the gaps, lowest index first
+        for (int i = highWater - 1; i >= 0; i--) {
+            if (states[i] == FREE) {
+                next[i] = freeHead;
+                freeHead = i;
+            }
+        }
+        compact();
+    }
+
+    private void set(int index, long handle, long due, int senderId, long receptor, String message, byte type, String localId) {
+        dueMillis[index] = due;
+        receptors[index] = receptor;
+        senderIds[index] = senderId;
+        messages[index] = message;
+        localIds[index] = localId;
+        types[index] = type;
+        states[index] = SCHEDULED;
+        sequences[index] = (int) (handle >>> 32);
+        insert(index, tickOf(due));
+        scheduled++;
+    }
+
+    private int internSender(String sender) {
+        Integer id = senderIndex.get(sender);
+        if (id == null) {
+            id = senders.size();
+            senders.add(sender);
+            senderIndex.put(sender, id);
+        }
+        return id;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int index = freeHead;
+            freeHead = next[index];
+            return index;
+        }
+        if (highWater == capacity) {
+            grow(capacity * 2);
+        }
+        return highWater++;
+    }
+
+    private void free(int index) {
+        states[index] = FREE;
+        messages[index] = null;
+        localIds[index] = null;
+        next[index] = freeHead;
+        freeHead = index;
+        scheduled--;
+    }
+
+    private void grow(int size) {
+        dueMillis = Arrays.copyOf(dueMillis, size);
+        receptors = Arrays.copyOf(receptors, size);
+        senderIds = Arrays.copyOf(senderIds, size);
+        messages = Arrays.copyOf(messages, size);
+        localIds = Arrays.copyOf(localIds, size);
+        types = Arrays.copyOf(types, size);
+        states = Arrays.copyOf(states, size);
+        sequences = Arrays.copyOf(sequences, size);
+        buckets = Arrays.copyOf(buckets, size);
+        next = Arrays.copyOf(next, size);
+        prev = Arrays.copyOf(prev, size);
+        capacity = size;
+    }
+
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis - origin, tickMillis);
+    }
+
+    /**
+     * Puts {@code index} in the lowest level whose current rotation contains its tick.
+     */
+    private void insert(int index, long dueTick) {
+        if (dueTick <= currentTick) {
+            link(index, READY);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if ((dueTick >>> shift) == (currentTick >>> shift)) {
+                link(index, level * SLOTS + (int) ((dueTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                return;
+            }
+        }
+        link(index, OVERFLOW);
+    }
+
+    private void link(int index, int bucket) {
+        int head = heads[bucket];
+        next[index] = head;
+        prev[index] = NONE;
+        if (head != NONE) {
+            prev[head] = index;
+        }
+        heads[bucket] = index;
+        buckets[index] = bucket;
+    }
+
+    private void unlink(int index) {
+        int before = prev[index];
+        int after = next[index];
+        if (before == NONE) {
+            heads[buckets[index]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+    }
+
+    /**
+     * Moves the wheel one tick forward: coarser slots whose span starts now are spread over the
+     * levels below, then the current first-level slot becomes due.
+     */
+    private void advance() {
+        long tick = ++currentTick;
+        if ((tick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+            cascade(OVERFLOW);
+        }
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                cascade(level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK));
+            }
+        }
+        cascade((int) (tick & SLOT_MASK));
+    }
+
+    private void cascade(int bucket) {
+        int index = heads[bucket];
+        heads[bucket] = NONE;
+        while (index != NONE) {
+            int following = next[index];
+            insert(index, tickOf(dueMillis[index]));
+            index = following;
+        }
+    }
+
+    /**
+     * Ticks until closed. A tick that fails, e.g. because the store cannot be written, is reported
+     * to the listener and the next tick tries again; if the thread dies anyway, {@link #schedule}
+     * stops taking sends.
+     */
+    private void tickLoop() {
+        try {
+            while (!closed) {
+                try {
+                    tick();
+                } catch (RuntimeException e) {
+                    tickFailures.increment();
+                    ScheduledSendListener current = listener;
+                    if (current != null) {
+                        try {
+                            current.onTickFailed(e);
+                        } catch (RuntimeException ignored) {
+                            // the listener must not stop the ticker
+                        }
+                    }
+                }
+                long wake = origin + (currentTick + 1) * tickMillis;
+                long sleep = wake - System.currentTimeMillis();
+                if (sleep > 0) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(sleep));
+                }
+            }
+        } catch (Throwable e) {
+            tickerFailure = e;
+            throw e;
+        }
+    }
+
+    private void tick() {
+        long target = tickOf(System.currentTimeMillis());
+        List<Release> releases;
+        lock.lock();
+        try {
+            while (currentTick < target) {
+                advance();
+            }
+            releases = takeReady();
+        } finally {
+            lock.unlock();
+        }
+        RuntimeException failure = null;
+        for (Release release : releases) {
+            try {
+                hand(release);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        lock.lock();
+        try {
+            if (store != null) {
+                if (store.getRecordCount() > 65536 && store.getRecordCount() > 4L * scheduled) {
+                    compact();
+                }
+                store.flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Takes every due send, in batches, marking them as being released. Caller holds the lock.
+     */
+    private List<Release> takeReady() {
+        List<Release> releases = new ArrayList<>();
+        Release release = null;
+        int index = heads[READY];
+        heads[READY] = NONE;
+        while (index != NONE) {
+            int following = next[index];
+            if (release == null || release.size == maxBatchSize) {
+                release = new Release(maxBatchSize);
+                releases.add(release);
+            }
+            states[index] = RELEASING;
+            release.add(index, ((long) sequences[index] << 32) | index);
+            release.batch.add(senders.get(senderIds[index]), PhoneNumbers.format(receptors[index]), messages[index],
+                    MessageType.valueOf(types[index]), localIds[index]);
+            index = following;
+        }
+        return releases;
+    }
+
+    /**
+     * Hands {@code release} to the dispatcher, or puts it back among the due sends if the dispatcher
+     * does not take it.
+     */
+    private void hand(Release release) {
+        CompletableFuture<List<SendResult>> result;
+        try {
+            result = dispatcher.submit(SendJob.sendArray(release.batch));
+        } catch (QueueFullException | IllegalStateException e) {
+            retry(release);
+            return;
+        } catch (RuntimeException e) {
+            retry(release);
+            throw e;
+        }
+        if (result.isCompletedExceptionally() && rejected(result)) {
+            retry(release);
+            return;
+        }
+        result.whenComplete((results, error) -> notify(release, results, error));
+        lock.lock();
+        try {
+            for (int i = 0; i < release.size; i++) {
+                free(release.indexes[i]);
+            }
+            releasedCount += release.size;
+            if (store != null) {
+                for (int i = 0; i < release.size; i++) {
+                    store.remove(release.handles[i]);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean rejected(CompletableFuture<?> result) {
+        try {
+            result.join();
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof QueueFullException;
+        }
+    }
+
+    /**
+     * Puts a batch the dispatcher did not take back among the due sends.
+     */
+    private void retry(Release release) {
+        release.batch.close();
+        lock.lock();
+        try {
+            for (int i = 0; i < release.size; i++) {
+                int index = release.indexes[i];
+                states[index] = SCHEDULED;
+                link(index, READY);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void notify(Release release, List<SendResult> results, Throwable error) {
+        ScheduledSendListener current = listener;
+        if (current == null) {
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        for (int i = 0; i < release.size; i++) {
+            if (cause == null && results != null && i < results.size()) {
+                current.onSent(release.handles[i], results.get(i));
+            } else {
+                current.onFailed(release.handles[i], cause != null ? cause : new HttpException("Missing entry in sendarray response", 200));
+            }
+        }
+    }
+
+    /**
+     * Rewrites the store with only the sends still held. Caller holds the lock.
+     */
+    private void compact() {
+        if (store == null) {
+            return;
+        }
+        store.beginCompaction(sequence);
+        for (int index = 0; index < highWater; index++) {
+            if (states[index] != FREE) {
+                store.add(((long) sequences[index] << 32) | index, dueMillis[index], types[index],
+                        senders.get(senderIds[index]), receptors[index], messages[index], localIds[index]);
+            }
+        }
+        store.endCompaction();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("SendScheduler is closed");
+        }
+        if (tickerFailure != null) {
+            throw new IllegalStateException("SendScheduler's ticker stopped", tickerFailure);
+        }
+    }
+
+    /**
+     * Sends scheduled and not yet handed to the dispatcher.
+     */
+    public int getScheduledCount() {
+        lock.lock();
+        try {
+            return scheduled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReleasedCount() {
+        lock.lock();
+        try {
+            return releasedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCancelledCount() {
+        lock.lock();
+        try {
+            return cancelledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ticks that failed, each reported to {@link ScheduledSendListener#onTickFailed(Throwable)}.
+     */
+    public long getTickFailureCount() {
+        return tickFailures.sum();
+    }
+
+    /**
+     * Stops the wheel. Sends not yet released stay in the store, if there is one, for the next
+     * start; without a store they are dropped. The dispatcher is not closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(ticker);
+        boolean interrupted = false;
+        while (ticker.isAlive()) {
+            try {
+                ticker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        lock.lock();
+        try {
+            if (store != null) {
+                store.close();
+            }
+        } finally {
+            lock.unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Due sends handed to the dispatcher as one job.
+     */
+    private static final class Release {
+
+        final SendArrayBatch batch = new SendArrayBatch();
+        final int[] indexes;
+        final long[] handles;
+        int size;
+
+        Release(int capacity) {
+            indexes = new int[capacity];
+            handles = new long[capacity];
+        }
+
+        void add(int index, long handle) {
+            indexes[size] = index;
+            handles[size] = handle;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.kavenegar.sdk.sms;
+
+/**
+ * Character encoding an SMS is sent in.
+ */
+public enum SmsEncoding {
+
+    /**
+     * The GSM 03.38 7-bit alphabet: 160 characters in one part, 153 per part when concatenated.
+     * Characters of the extension table, such as <code>{</code>, &euro; or {@code [}, take two.
+     */
+    Gsm7,
+    /**
+     * UTF-16, used as soon as one character is outside the GSM alphabet, e.g. any Persian letter:
+     * 70 characters in one part, 67 per part when concatenated.
+     */
+    Ucs2
+}
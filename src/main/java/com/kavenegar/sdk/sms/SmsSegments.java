@@ -0,0 +1,173 @@
+package com.kavenegar.sdk.sms;
+
+/**
+ * Works out how a message will be sent before it is: its encoding, length in encoding units and
+ * number of concatenated parts, so oversized messages ({@code MESSAGE_TOO_LARGE}) can be rejected
+ * or split and costs budgeted without a round trip.
+ * <p>
+ * {@link #analyze(CharSequence)} walks the text once, or twice if it turns out not to fit the GSM
+ * alphabet, and packs the result into a {@code long} read with {@link #encoding(long)},
+ * {@link #units(long)} and {@link #parts(long)}; nothing is allocated. Parts are counted the way
+ * handsets split them: a two-septet GSM escape or a UTF-16 surrogate pair is never cut in half, so
+ * a part may hold one unit less than the maximum.
+ */
+public final class SmsSegments {
+
+    public static final int GSM7_SINGLE_PART = 160;
+    public static final int GSM7_MULTI_PART = 153;
+    public static final int UCS2_SINGLE_PART = 70;
+    public static final int UCS2_MULTI_PART = 67;
+
+    private static final long UCS2_FLAG = 1L << 63;
+    private static final int PARTS_SHIFT = 32;
+
+    /**
+     * Septets per char below U+0100: 1 in the basic GSM table, 2 in the extension table, 0 if not
+     * in the alphabet. The Greek capitals and the euro sign are handled in {@link #gsmWidth(char)}.
+     */
+    private static final byte[] LATIN1_WIDTH = new byte[256];
+
+    static {
+        String basic = "@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5\u00C6\u00E6\u00DF\u00C9 !\"#\u00A4%&'()*+,-./0123456789:;<=>?"
+                + "\u00A1ABCDEFGHIJKLMNOPQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7\u00BFabcdefghijklmnopqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0_";
+        for (int i = 0; i < basic.length(); i++) {
+            LATIN1_WIDTH[basic.charAt(i)] = 1;
+        }
+        String extension = "\f^{}\\[~]|";
+        for (int i = 0; i < extension.length(); i++) {
+            LATIN1_WIDTH[extension.charAt(i)] = 2;
+        }
+    }
+
+    private SmsSegments() {
+    }
+
+    /**
+     * Septets {@code c} takes in GSM-7, or 0 if it needs UCS-2.
+     */
+    static int gsmWidth(char c) {
+        if (c < 256) {
+            return LATIN1_WIDTH[c];
+        }
+        switch (c) {
+            case '\u0394': // Delta
+            case '\u03A6': // Phi
+            case '\u0393': // Gamma
+            case '\u039B': // Lambda
+            case '\u03A9': // Omega
+            case '\u03A0': // Pi
+            case '\u03A8': // Psi
+            case '\u03A3': // Sigma
+            case '\u0398': // Theta
+            case '\u039E': // Xi
+                return 1;
+            case '\u20AC': // euro sign
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Analyzes {@code message}; read the result with {@link #encoding(long)}, {@link #units(long)}
+     * and {@link #parts(long)}. An empty message is one GSM-7 part of zero units.
+     */
+    public static long analyze(CharSequence message) {
+        int n = message.length();
+        int septets = 0;
+        // parts and fill of the last part if the message is split into 153-septet parts
+        int parts = 1;
+        int fill = 0;
+        for (int i = 0; i < n; i++) {
+            int width = gsmWidth(message.charAt(i));
+            if (width == 0) {
+                return analyzeUcs2(message);
+            }
+            septets += width;
+            if (fill + width > GSM7_MULTI_PART) {
+                parts++;
+                fill = width;
+            } else {
+                fill += width;
+            }
+        }
+        if (septets <= GSM7_SINGLE_PART) {
+            parts = 1;
+        }
+        return pack(false, septets, parts);
+    }
+
+    private static long analyzeUcs2(CharSequence message) {
+        int n = message.length();
+        int parts = 1;
+        int fill = 0;
+        for (int i = 0; i < n; i++) {
+            int width = Character.isHighSurrogate(message.charAt(i)) && i + 1 < n
+                    && Character.isLowSurrogate(message.charAt(i + 1)) ? 2 : 1;
+            if (fill + width > UCS2_MULTI_PART) {
+                parts++;
+                fill = width;
+            } else {
+                fill += width;
+            }
+            i += width - 1;
+        }
+        if (n <= UCS2_SINGLE_PART) {
+            parts = 1;
+        }
+        return pack(true, n, parts);
+    }
+
+    private static long pack(boolean ucs2, int units, int parts) {
+        return (ucs2 ? UCS2_FLAG : 0) | ((long) parts << PARTS_SHIFT) | units;
+    }
+
+    public static SmsEncoding encoding(long analysis) {
+        return analysis < 0 ? SmsEncoding.Ucs2 : SmsEncoding.Gsm7;
+    }
+
+    /**
+     * Length in septets for GSM-7, escapes counted twice, or in UTF-16 code units for UCS-2.
+     */
+    public static int units(long analysis) {
+        return (int) analysis;
+    }
+
+    public static int parts(long analysis) {
+        return (int) ((analysis & ~UCS2_FLAG) >>> PARTS_SHIFT);
+    }
+
+    /**
+     * Units still free in the last part before another part is needed; an escape or surrogate pair
+     * pushed to the next part can make it one less.
+     */
+    public static int remaining(long analysis) {
+        boolean ucs2 = analysis < 0;
+        int parts = parts(analysis);
+        int units = units(analysis);
+        if (parts == 1) {
+            return (ucs2 ? UCS2_SINGLE_PART : GSM7_SINGLE_PART) - units;
+        }
+        return parts * (ucs2 ? UCS2_MULTI_PART : GSM7_MULTI_PART) - units;
+    }
+
+    public static SmsEncoding encoding(CharSequence message) {
+        for (int i = 0, n = message.length(); i < n; i++) {
+            if (gsmWidth(message.charAt(i)) == 0) {
+                return SmsEncoding.Ucs2;
+            }
+        }
+        return SmsEncoding.Gsm7;
+    }
+
+    public static int parts(CharSequence message) {
+        return parts(analyze(message));
+    }
+
+    /**
+     * Estimated cost of sending {@code message} to one receptor, in rials.
+     */
+    public static long cost(CharSequence message, SmsTariff tariff) {
+        return tariff.cost(analyze(message));
+    }
+}
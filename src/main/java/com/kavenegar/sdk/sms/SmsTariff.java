@@ -0,0 +1,47 @@
+package com.kavenegar.sdk.sms;
+
+/**
+ * Price of one message part, which differs between Latin (GSM-7) and Persian or other Unicode
+ * (UCS-2) text.
+ */
+public final class SmsTariff {
+
+    private final long gsm7PartPrice;
+    private final long ucs2PartPrice;
+
+    /**
+     * @param gsm7PartPrice price of one GSM-7 part in rials
+     * @param ucs2PartPrice price of one UCS-2 part in rials
+     */
+    public SmsTariff(long gsm7PartPrice, long ucs2PartPrice) {
+        if (gsm7PartPrice < 0 || ucs2PartPrice < 0) {
+            throw new IllegalArgumentException("part prices must not be negative");
+        }
+        this.gsm7PartPrice = gsm7PartPrice;
+        this.ucs2PartPrice = ucs2PartPrice;
+    }
+
+    public long getGsm7PartPrice() {
+        return gsm7PartPrice;
+    }
+
+    public long getUcs2PartPrice() {
+        return ucs2PartPrice;
+    }
+
+    /**
+     * Cost of a message from its {@link SmsSegments#analyze(CharSequence) analysis}, for one receptor.
+     */
+    public long cost(long analysis) {
+        long price = SmsSegments.encoding(analysis) == SmsEncoding.Ucs2 ? ucs2PartPrice : gsm7PartPrice;
+        return SmsSegments.parts(analysis) * price;
+    }
+
+    @Override
+    public String toString() {
+        return "SmsTariff{" +
+                "gsm7PartPrice=" + gsm7PartPrice +
+                ", ucs2PartPrice=" + ucs2PartPrice +
+                '}';
+    }
+}
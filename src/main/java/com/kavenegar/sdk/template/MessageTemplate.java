@@ -0,0 +1,190 @@
+package com.kavenegar.sdk.template;
+
+import com.kavenegar.sdk.codec.FormWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message with {@code {name}} placeholders, compiled once and rendered per recipient.
+ * <p>
+ * Compiling splits the text into literal segments and placeholders. Each literal is stored already
+ * JSON-escaped and form-encoded, as it appears in the {@code message} array of a
+ * {@code sendarray} request, so rendering a recipient's message into a {@link FormWriter} copies
+ * the literal bytes and encodes only the recipient's values; no {@code String} is built for the
+ * message. Write {@code {{} and {@code }}} for literal braces.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class MessageTemplate {
+
+    private final String source;
+    /**
+     * Encoded literals around the placeholders; {@code literals.length == slots.length + 1}.
+     */
+    private final byte[][] literals;
+    /**
+     * Placeholder index of each gap between two literals.
+     */
+    private final int[] slots;
+    private final String[] names;
+
+    private MessageTemplate(String source, byte[][] literals, int[] slots, String[] names) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        this.names = names;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a brace is not closed or a placeholder has no name
+     */
+    public static MessageTemplate compile(String source) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int n = source.length();
+        for (int i = 0; i < n; i++) {
+            char c = source.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < n && source.charAt(i + 1) == c) {
+                literal.append(c);
+                i++;
+            } else if (c == '{') {
+                int end = source.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("unclosed placeholder at " + i + ": " + source);
+                }
+                String name = source.substring(i + 1, end).trim();
+                if (name.isEmpty() || name.indexOf('{') >= 0) {
+                    throw new IllegalArgumentException("invalid placeholder at " + i + ": " + source);
+                }
+                int index = names.indexOf(name);
+                if (index < 0) {
+                    index = names.size();
+                    names.add(name);
+                }
+                texts.add(literal.toString());
+                literal.setLength(0);
+                slots.add(index);
+                i = end;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("unmatched '}' at " + i + ": " + source);
+            } else {
+                literal.append(c);
+            }
+        }
+        texts.add(literal.toString());
+
+        byte[][] encoded = new byte[texts.size()][];
+        FormWriter writer = FormWriter.acquire();
+        try {
+            for (int i = 0; i < encoded.length; i++) {
+                int start = writer.length();
+                writer.appendJsonChars(texts.get(i));
+                encoded[i] = Arrays.copyOfRange(writer.buffer(), start, writer.length());
+            }
+        } finally {
+            writer.release();
+        }
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new MessageTemplate(source, encoded, slotArray, names.toArray(new String[0]));
+    }
+
+    /**
+     * Distinct placeholder names, in order of first appearance; a name's position is its index.
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Index of placeholder {@code name}, as passed to {@link RecipientBinder#value}, or -1.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Writes the recipient's message into {@code out} as one quoted, JSON-escaped and form-encoded
+     * string, e.g. an element of the {@code message} array of {@code sendarray}.
+     */
+    public <T> void render(FormWriter out, T recipient, RecipientBinder<? super T> binder) {
+        out.append("\"");
+        out.append(literals[0], 0, literals[0].length);
+        for (int i = 0; i < slots.length; i++) {
+            CharSequence value = binder.value(recipient, slots[i]);
+            if (value != null) {
+                out.appendJsonChars(value);
+            }
+            byte[] literal = literals[i + 1];
+            out.append(literal, 0, literal.length);
+        }
+        out.append("\"");
+    }
+
+    /**
+     * Renders one recipient's message as a plain string, e.g. for a preview or
+     * {@link com.kavenegar.sdk.sms.SmsSegments}.
+     */
+    public <T> String render(T recipient, RecipientBinder<? super T> binder) {
+        return render(index -> binder.value(recipient, index));
+    }
+
+    /**
+     * Renders the template with values looked up by name; missing values render as empty strings.
+     */
+    public String render(Map<String, ?> values) {
+        return render(index -> {
+            Object value = values.get(names[index]);
+            return value == null ? null : value.toString();
+        });
+    }
+
+    private String render(ValueLookup lookup) {
+        StringBuilder builder = new StringBuilder(source.length() + 16);
+        // re-walk the source rather than decode the stored literals
+        int slot = 0;
+        int n = source.length();
+        for (int i = 0; i < n; i++) {
+            char c = source.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < n && source.charAt(i + 1) == c) {
+                builder.append(c);
+                i++;
+            } else if (c == '{') {
+                CharSequence value = lookup.value(slots[slot++]);
+                if (value != null) {
+                    builder.append(value);
+                }
+                i = source.indexOf('}', i);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private interface ValueLookup {
+        CharSequence value(int index);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
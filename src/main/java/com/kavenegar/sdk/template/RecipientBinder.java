@@ -0,0 +1,25 @@
+package com.kavenegar.sdk.template;
+
+/**
+ * Reads what a {@link MessageTemplate} campaign needs from one recipient record, whatever its type:
+ * a row, a map, an entity.
+ *
+ * @param <T> recipient record
+ */
+public interface RecipientBinder<T> {
+
+    String receptor(T recipient);
+
+    /**
+     * Value of placeholder {@code index} of the template, see {@link MessageTemplate#indexOf(String)};
+     * {@code null} renders as an empty string.
+     */
+    CharSequence value(T recipient, int index);
+
+    /**
+     * Local id of the recipient's message, or {@code null} for none.
+     */
+    default String localId(T recipient) {
+        return null;
+    }
+}
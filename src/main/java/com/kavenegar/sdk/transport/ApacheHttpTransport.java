@@ -0,0 +1,53 @@
+package com.kavenegar.sdk.transport;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * {@link Transport} backed by a pooled Apache {@link CloseableHttpClient} (HTTP/1.1 with keep-alive).
+ */
+public class ApacheHttpTransport implements Transport {
+
+    private static final ContentType FORM_UTF8 = ContentType.create("application/x-www-form-urlencoded", Consts.UTF_8);
+
+    private final CloseableHttpClient client;
+
+    public ApacheHttpTransport() {
+        this(new ConnectionPoolConfig());
+    }
+
+    public ApacheHttpTransport(ConnectionPoolConfig config) {
+        this(HttpClientFactory.create(config));
+    }
+
+    /**
+     * Wraps an existing client. The transport takes ownership and closes it in {@link #close()}.
+     */
+    public ApacheHttpTransport(CloseableHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException {
+        HttpPost post = new HttpPost(uri);
+        post.setEntity(new ByteArrayEntity(body, offset, length, FORM_UTF8));
+        CloseableHttpResponse response = client.execute(post);
+        HttpEntity entity = response.getEntity();
+        InputStream content = entity == null ? null : entity.getContent();
+        return new TransportResponse(response.getStatusLine().getStatusCode(), content, response);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
@@ -0,0 +1,17 @@
+package com.kavenegar.sdk.transport;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link Transport} that can also issue requests without blocking the calling thread.
+ */
+public interface AsyncTransport extends Transport {
+
+    /**
+     * Posts the form-encoded body to {@code uri} on non-blocking I/O.
+     * The returned future completes once the whole response body has been received,
+     * or completes exceptionally with an {@link java.io.IOException} on failure.
+     */
+    CompletableFuture<TransportResponse> postAsync(URI uri, byte[] body, int offset, int length);
+}
@@ -0,0 +1,117 @@
+package com.kavenegar.sdk.transport;
+
+/**
+ * Tuning knobs for the pooled HTTP client shared by a {@code KavenegarApi} instance.
+ * <p>
+ * Every request goes to the same host, so {@link #getMaxPerRoute()} is usually the
+ * effective limit on concurrent connections. All durations are in milliseconds.
+ */
+public class ConnectionPoolConfig {
+
+    private int maxTotal = 100;
+    private int maxPerRoute = 50;
+    private long keepAliveMillis = 30000L;
+    private long maxIdleMillis = 60000L;
+    private long timeToLiveMillis = -1L;
+    private int validateAfterInactivityMillis = 2000;
+    private int connectTimeoutMillis = 10000;
+    private int socketTimeoutMillis = 30000;
+    private int connectionRequestTimeoutMillis = 10000;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    /**
+     * Keep-alive used when the server response carries no {@code Keep-Alive} header.
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    /**
+     * Pooled connections idle for longer than this are closed by a background evictor.
+     */
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    public void setMaxIdleMillis(long maxIdleMillis) {
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * Hard upper bound on a connection's lifetime, or a negative value for no limit.
+     */
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public void setTimeToLiveMillis(long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    public void setSocketTimeoutMillis(int socketTimeoutMillis) {
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    /**
+     * How long a caller waits to lease a connection from an exhausted pool.
+     */
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolConfig{" +
+                "maxTotal=" + maxTotal +
+                ", maxPerRoute=" + maxPerRoute +
+                ", keepAliveMillis=" + keepAliveMillis +
+                ", maxIdleMillis=" + maxIdleMillis +
+                ", timeToLiveMillis=" + timeToLiveMillis +
+                ", connectTimeoutMillis=" + connectTimeoutMillis +
+                ", socketTimeoutMillis=" + socketTimeoutMillis +
+                '}';
+    }
+}
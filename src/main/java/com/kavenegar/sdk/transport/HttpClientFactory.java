@@ -0,0 +1,69 @@
+package com.kavenegar.sdk.transport;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the long-lived, thread-safe Apache HTTP client used for all API calls.
+ */
+public final class HttpClientFactory {
+
+    private HttpClientFactory() {
+    }
+
+    public static CloseableHttpClient create(ConnectionPoolConfig config) {
+        PoolingHttpClientConnectionManager manager =
+                new PoolingHttpClientConnectionManager(config.getTimeToLiveMillis(), TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(config.getMaxTotal());
+        manager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        manager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setSocketTimeout(config.getSocketTimeoutMillis())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(config.getKeepAliveMillis()))
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getMaxIdleMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Honours the server's {@code Keep-Alive: timeout=n} header and falls back to the configured value.
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(final long defaultMillis) {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (it.hasNext()) {
+                    HeaderElement element = it.nextElement();
+                    if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                        try {
+                            return Long.parseLong(element.getValue()) * 1000L;
+                        } catch (NumberFormatException ignore) {
+                            // fall through to the configured default
+                        }
+                    }
+                }
+                return defaultMillis;
+            }
+        };
+    }
+}
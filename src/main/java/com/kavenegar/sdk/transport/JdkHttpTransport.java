@@ -0,0 +1,81 @@
+package com.kavenegar.sdk.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link Transport} built on {@link java.net.http.HttpClient}.
+ * <p>
+ * The client prefers HTTP/2, so concurrent requests are multiplexed as streams over
+ * a small number of connections instead of holding one socket each. It falls back to
+ * HTTP/1.1 when the server does not negotiate HTTP/2. {@link #postAsync} runs on the
+ * client's non-blocking selector, so no thread is held while a request is in flight.
+ */
+public class JdkHttpTransport implements AsyncTransport {
+
+    static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+
+    public JdkHttpTransport() {
+        this(new ConnectionPoolConfig());
+    }
+
+    /**
+     * Uses the connect and socket timeouts of {@code config}; pool sizes do not apply to HTTP/2.
+     */
+    public JdkHttpTransport(ConnectionPoolConfig config) {
+        this(HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                        .build(),
+                Duration.ofMillis(config.getSocketTimeoutMillis()));
+    }
+
+    public JdkHttpTransport(HttpClient client, Duration requestTimeout) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException {
+        HttpRequest request = newRequest(uri, body, offset, length);
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            return new TransportResponse(response.statusCode(), response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + uri.getPath());
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> postAsync(URI uri, byte[] body, int offset, int length) {
+        return client.sendAsync(newRequest(uri, body, offset, length), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> new TransportResponse(response.statusCode(), new ByteArrayInputStream(response.body())));
+    }
+
+    private HttpRequest newRequest(URI uri, byte[] body, int offset, int length) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Content-Type", CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body, offset, length))
+                .build();
+    }
+
+    /**
+     * The JDK client releases its connections when it becomes unreachable; nothing to do here.
+     */
+    @Override
+    public void close() {
+    }
+}
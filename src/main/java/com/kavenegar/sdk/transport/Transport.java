@@ -0,0 +1,24 @@
+package com.kavenegar.sdk.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * The I/O layer behind {@code KavenegarApi}.
+ * <p>
+ * A transport posts an {@code application/x-www-form-urlencoded} body to an API
+ * endpoint and hands back the raw response. Implementations must be thread-safe;
+ * a single instance is shared by every call made through one API client.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Posts {@code length} bytes of {@code body}, starting at {@code offset}, to {@code uri}.
+     * The bytes are already form-encoded and must not be modified by the transport.
+     *
+     * @return the response, which the caller must close
+     * @throws IOException when the request could not be completed
+     */
+    TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.kavenegar.sdk.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A raw HTTP response returned by a {@link Transport}.
+ * Closing it releases the underlying connection back to the transport.
+ */
+public class TransportResponse implements Closeable {
+
+    private static final InputStream EMPTY = new ByteArrayInputStream(new byte[0]);
+
+    private final int statusCode;
+    private final InputStream body;
+    private final Closeable resource;
+
+    public TransportResponse(int statusCode, InputStream body) {
+        this(statusCode, body, null);
+    }
+
+    /**
+     * @param resource an extra resource, such as the native response object, closed after the body
+     */
+    public TransportResponse(int statusCode, InputStream body, Closeable resource) {
+        this.statusCode = statusCode;
+        this.body = body == null ? EMPTY : body;
+        this.resource = resource;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            body.close();
+        } finally {
+            if (resource != null) {
+                resource.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.kavenegar.sdk.campaign;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.journal.JournalConfig;
+import com.kavenegar.sdk.journal.OutboxJournal;
+import com.kavenegar.sdk.transport.Transport;
+import com.kavenegar.sdk.transport.TransportResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CampaignRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Rows without a {@code localid} share a chunk with rows that have one; with a journal set,
+     * they are sent and journaled with generated ids while the others keep their own.
+     */
+    @Test
+    public void givesRowsWithoutLocalIdsGeneratedOnesWhenJournaled() throws IOException {
+        Path input = folder.newFile("campaign.csv").toPath();
+        Files.write(input, ("receptor,message,localid\n"
+                + "09121234567,first,501\n"
+                + "09121234568,second,\n"
+                + "09121234569,third,503\n"
+                + "09121234570,fourth,\n").getBytes(StandardCharsets.UTF_8));
+        SendArrayStub transport = new SendArrayStub();
+        CampaignConfig config = new CampaignConfig();
+        config.setFormat(CampaignFormat.Csv);
+        config.setSender("10004346");
+        config.setType(MessageType.MobileMemory);
+        JournalConfig journalConfig = new JournalConfig();
+        journalConfig.setFlushIntervalMillis(0);
+        try (OutboxJournal journal = OutboxJournal.open(folder.newFolder("journal").toPath(), journalConfig)) {
+            KavenegarApi api = new KavenegarApi("TEST-KEY", transport);
+            api.setOutboxJournal(journal);
+            CampaignReport report = new CampaignRunner(api, config).run(input, folder.getRoot().toPath().resolve("results.csv"));
+            assertEquals(4, report.getSentCount());
+            assertTrue(journal.pendingEntries().isEmpty());
+        }
+        assertEquals(1, transport.localIds.size());
+        List<String> localIds = transport.localIds.get(0);
+        assertEquals(4, localIds.size());
+        assertEquals("501", localIds.get(0));
+        assertEquals("503", localIds.get(2));
+        for (int i : new int[]{1, 3}) {
+            assertNotEquals("null", localIds.get(i));
+            assertTrue(Long.parseLong(localIds.get(i)) > 503);
+        }
+        assertEquals(4, new HashSet<>(localIds).size());
+    }
+
+    /**
+     * Answers every {@code sendarray} request with one entry per receptor, recording its local ids.
+     */
+    private static final class SendArrayStub implements Transport {
+
+        private final List<List<String>> localIds = new ArrayList<>();
+
+        @Override
+        public synchronized TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException {
+            String form = URLDecoder.decode(new String(body, offset, length, StandardCharsets.UTF_8), "UTF-8");
+            localIds.add(array(form, "localids"));
+            List<String> receptors = array(form, "receptor");
+            StringBuilder answer = new StringBuilder("{\"return\":{\"status\":200,\"message\":\"ok\"},\"entries\":[");
+            for (int i = 0; i < receptors.size(); i++) {
+                answer.append(i == 0 ? "" : ",")
+                        .append("{\"messageid\":").append(1000 + i)
+                        .append(",\"status\":1,\"receptor\":\"").append(receptors.get(i)).append("\"}");
+            }
+            answer.append("]}");
+            return new TransportResponse(200, new ByteArrayInputStream(answer.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private static List<String> array(String form, String name) {
+            int start = form.indexOf(name + "=[") + name.length() + 2;
+            List<String> values = new ArrayList<>();
+            for (String value : form.substring(start, form.indexOf(']', start)).split(",")) {
+                values.add(value.trim().replace("\"", ""));
+            }
+            return values;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.kavenegar.sdk.journal;
+
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.excepctions.JournalException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboxJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static JournalConfig config(int segmentSize) {
+        JournalConfig config = new JournalConfig();
+        config.setSegmentSize(segmentSize);
+        config.setFlushIntervalMillis(0);
+        return config;
+    }
+
+    private static byte[] body(int size, int seed) {
+        byte[] body = new byte[size];
+        Arrays.fill(body, (byte) ('a' + seed % 26));
+        return body;
+    }
+
+    @Test
+    public void recoversPendingEntriesAndDropsAcknowledgedOnes() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        long first;
+        long second;
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            first = journal.recordPending(Endpoint.SmsSend, Collections.singletonList("11"), body(40, 1), 0, 40);
+            second = journal.recordPending(Endpoint.SmsSendArray, Arrays.asList("12", "13"), body(60, 2), 0, 60);
+            journal.recordAck(first, new long[]{8792343L});
+        }
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            List<PendingEntry> pending = journal.pendingEntries();
+            assertEquals(1, pending.size());
+            assertEquals(second, pending.get(0).getSequence());
+            assertEquals(Endpoint.SmsSendArray, pending.get(0).getEndpoint());
+            assertEquals(Arrays.asList("12", "13"), pending.get(0).getLocalIds());
+            assertArrayEquals(body(60, 2), pending.get(0).getBody());
+            assertTrue(journal.nextLocalId() > 13);
+        }
+    }
+
+    @Test
+    public void ignoresATornLastRecord() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            for (int i = 0; i < 3; i++) {
+                journal.recordPending(Endpoint.SmsSend, Collections.singletonList(String.valueOf(i)), body(100, i), 0, 100);
+            }
+        }
+        Path segment = onlySegment(directory);
+        List<Integer> offsets = recordOffsets(segment);
+        assertEquals(4, offsets.size());
+        // the last record lost its checksum
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), offsets.get(3) - 4);
+        }
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            assertEquals(2, journal.getPendingCount());
+            assertEquals(Arrays.asList("0"), journal.pendingEntries().get(0).getLocalIds());
+            assertEquals(Arrays.asList("1"), journal.pendingEntries().get(1).getLocalIds());
+        }
+    }
+
+    @Test
+    public void ignoresARecordCutShortByTheEndOfTheFile() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            for (int i = 0; i < 3; i++) {
+                journal.recordPending(Endpoint.SmsSend, Collections.singletonList(String.valueOf(i)), body(100, i), 0, 100);
+            }
+        }
+        Path segment = onlySegment(directory);
+        List<Integer> offsets = recordOffsets(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(offsets.get(2) + 20);
+        }
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            assertEquals(2, journal.getPendingCount());
+            long next = journal.recordPending(Endpoint.SmsSend, null, body(10, 3), 0, 10);
+            assertTrue(next > journal.pendingEntries().get(1).getSequence());
+        }
+    }
+
+    @Test
+    public void deletesSegmentsOnceEveryEntryInThemIsAcknowledged() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            List<Long> sequences = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                sequences.add(journal.recordPending(Endpoint.SmsSend, null, body(1000, i), 0, 1000));
+            }
+            List<String> written = segments(directory);
+            assertTrue("expected several segments, got " + written, written.size() >= 3);
+
+            // the oldest entry keeps its segment, and every later one, on disk
+            for (int i = 1; i < sequences.size(); i++) {
+                journal.recordAck(sequences.get(i), new long[]{i});
+            }
+            assertEquals(written.get(0), segments(directory).get(0));
+
+            journal.recordAck(sequences.get(0), new long[]{0});
+            assertEquals(1, segments(directory).size());
+            assertEquals(0, journal.getPendingCount());
+        }
+        try (OutboxJournal journal = OutboxJournal.open(directory, config(4096))) {
+            assertEquals(0, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void rejectsAnEntryForAnUnknownEndpoint() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        byte[] path = "sms/unknown".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(4 + 1 + 8 + 1 + path.length + 4 + 4 + 4);
+        record.putInt(1 + 8 + 1 + path.length + 4 + 4);
+        record.put((byte) 1);
+        record.putLong(1L);
+        record.put((byte) path.length);
+        record.put(path);
+        record.putInt(0);
+        record.putInt(0);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.position() - 4);
+        record.putInt((int) crc.getValue());
+        Files.write(directory.resolve("outbox-0000000000000001.journal"), record.array());
+        try {
+            OutboxJournal.open(directory, config(4096)).close();
+            fail("expected a JournalException");
+        } catch (JournalException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("sms/unknown"));
+        }
+    }
+
+    private static List<String> segments(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "outbox-*.journal")) {
+            for (Path file : files) {
+                names.add(file.getFileName().toString());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static Path onlySegment(Path directory) throws IOException {
+        List<String> names = segments(directory);
+        assertEquals(1, names.size());
+        return directory.resolve(names.get(0));
+    }
+
+    /**
+     * Start of every record in {@code segment}, and the end of the last one.
+     */
+    private static List<Integer> recordOffsets(Path segment) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<Integer> offsets = new ArrayList<>();
+        while (data.remaining() >= 4) {
+            offsets.add(data.position());
+            int length = data.getInt();
+            if (length == 0) {
+                break;
+            }
+            data.position(data.position() + length + 4);
+        }
+        return offsets;
+    }
+}
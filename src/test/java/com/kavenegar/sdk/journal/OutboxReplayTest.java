@@ -0,0 +1,152 @@
+package com.kavenegar.sdk.journal;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.enums.Endpoint;
+import com.kavenegar.sdk.excepctions.HttpException;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.transport.Transport;
+import com.kavenegar.sdk.transport.TransportResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboxReplayTest {
+
+    private static final List<String> RECEPTORS = Arrays.asList("09121234567", "09121234568", "09121234569");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static JournalConfig config() {
+        JournalConfig config = new JournalConfig();
+        config.setFlushIntervalMillis(0);
+        return config;
+    }
+
+    @Test
+    public void recoversMissingLocalIdsAsAbsent() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (OutboxJournal journal = OutboxJournal.open(directory, config())) {
+            journal.recordPending(Endpoint.SmsSendArray, Arrays.asList("7", null, ""), new byte[8], 0, 8);
+        }
+        try (OutboxJournal journal = OutboxJournal.open(directory, config())) {
+            List<String> localIds = journal.pendingEntries().get(0).getLocalIds();
+            assertEquals("7", localIds.get(0));
+            assertNull(localIds.get(1));
+            assertEquals("", localIds.get(2));
+        }
+    }
+
+    /**
+     * A {@code sendArray} call without local ids, cut off by a broken connection, is journaled
+     * with generated ids; replay then finds the messages by those ids instead of posting again.
+     */
+    @Test
+    public void replaysASendArrayWithoutLocalIdsByGeneratedIds() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<String> senders = Collections.nCopies(RECEPTORS.size(), "10004346");
+        List<String> messages = Arrays.asList("one", "two", "three");
+        ScriptedTransport broken = new ScriptedTransport(true);
+        try (OutboxJournal journal = OutboxJournal.open(directory, config())) {
+            KavenegarApi api = new KavenegarApi("TEST-KEY", broken);
+            api.setOutboxJournal(journal);
+            try {
+                api.sendArray(senders, RECEPTORS, messages);
+                fail("the transport is broken");
+            } catch (HttpException expected) {
+            }
+        }
+        List<String> posted = broken.localIds;
+        assertEquals(RECEPTORS.size(), posted.size());
+        ScriptedTransport working = new ScriptedTransport(false);
+        try (OutboxJournal journal = OutboxJournal.open(directory, config())) {
+            List<PendingEntry> pending = journal.pendingEntries();
+            assertEquals(1, pending.size());
+            assertEquals(posted, pending.get(0).getLocalIds());
+            for (String localId : posted) {
+                assertNotNull(localId);
+                assertTrue(Long.parseLong(localId) > 0);
+            }
+            KavenegarApi api = new KavenegarApi("TEST-KEY", working);
+            api.setOutboxJournal(journal);
+            List<SendResult> resent = api.replayOutbox();
+            assertTrue(resent.isEmpty());
+            assertEquals(0, working.sends);
+            assertEquals(posted, working.queried);
+            assertTrue(journal.pendingEntries().isEmpty());
+        }
+    }
+
+    /**
+     * Fails every post if {@code broken}; otherwise answers {@code statuslocalmessageid} as if
+     * every message had been delivered. Records the local ids each request carried.
+     */
+    private static final class ScriptedTransport implements Transport {
+
+        private final boolean broken;
+        private List<String> localIds = Collections.emptyList();
+        private List<String> queried = Collections.emptyList();
+        private int sends;
+
+        ScriptedTransport(boolean broken) {
+            this.broken = broken;
+        }
+
+        @Override
+        public TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException {
+            String form = URLDecoder.decode(new String(body, offset, length, StandardCharsets.UTF_8), "UTF-8");
+            if (uri.getPath().endsWith("/sms/statuslocalmessageid.json")) {
+                queried = parameter(form, "localid");
+                StringBuilder answer = new StringBuilder("{\"return\":{\"status\":200,\"message\":\"ok\"},\"entries\":[");
+                for (int i = 0; i < queried.size(); i++) {
+                    answer.append(i == 0 ? "" : ",")
+                            .append("{\"messageid\":").append(1000 + i)
+                            .append(",\"localid\":").append(queried.get(i))
+                            .append(",\"status\":10,\"statustext\":\"delivered\"}");
+                }
+                answer.append("]}");
+                return new TransportResponse(200, new ByteArrayInputStream(answer.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+            sends++;
+            localIds = parameter(form, "localids");
+            if (broken) {
+                throw new IOException("connection reset");
+            }
+            throw new IOException("unexpected send");
+        }
+
+        private static List<String> parameter(String form, String name) {
+            for (String pair : form.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    List<String> values = new ArrayList<>();
+                    for (String value : pair.substring(name.length() + 1).replaceAll("[\\[\\]]", "").split(",")) {
+                        values.add(value.trim());
+                    }
+                    return values;
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
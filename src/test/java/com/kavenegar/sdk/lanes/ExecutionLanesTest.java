@@ -0,0 +1,103 @@
+package com.kavenegar.sdk.lanes;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutionLanesTest {
+
+    private final List<Lane> granted = Collections.synchronizedList(new ArrayList<Lane>());
+    private final List<Thread> threads = new ArrayList<>();
+    private ExecutionLanes lanes;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        lanes.close();
+    }
+
+    /**
+     * One slot for the whole client, so queued requests are granted strictly one after another
+     * and the grant order is the order {@link #granted} records.
+     */
+    private static ExecutionLanes weightedFair(int priorityWeight, int bulkWeight) {
+        LanesConfig config = new LanesConfig();
+        config.setScheduling(LaneScheduling.WeightedFair);
+        config.setMaxConcurrency(1);
+        config.setLane(Lane.Priority, new LaneConfig(1, priorityWeight));
+        config.setLane(Lane.Bulk, new LaneConfig(1, bulkWeight));
+        return new ExecutionLanes(config);
+    }
+
+    @Test
+    public void queuedLanesShareSlotsByWeight() throws InterruptedException {
+        lanes = weightedFair(3, 1);
+        long held = lanes.acquire(Lane.Standard);
+        queue(Lane.Priority, 12);
+        queue(Lane.Bulk, 12);
+        lanes.release(Lane.Standard, held);
+        awaitGranted(24);
+        List<Lane> first = granted.subList(0, 12);
+        assertEquals(9, Collections.frequency(first, Lane.Priority));
+        assertEquals(3, Collections.frequency(first, Lane.Bulk));
+    }
+
+    /**
+     * A lane that sat idle while another ran many requests, then takes a free slot directly,
+     * must not drag the virtual clock back and queue up a run of catch-up grants.
+     */
+    @Test
+    public void anIdleLaneGetsNoCreditForTheTimeItWasIdle() throws InterruptedException {
+        lanes = weightedFair(1, 1);
+        for (int i = 0; i < 100; i++) {
+            lanes.release(Lane.Bulk, lanes.acquire(Lane.Bulk));
+        }
+        long held = lanes.acquire(Lane.Priority);
+        queue(Lane.Priority, 6);
+        queue(Lane.Bulk, 6);
+        lanes.release(Lane.Priority, held);
+        awaitGranted(12);
+        for (int i = 0; i + 1 < granted.size(); i += 2) {
+            List<Lane> pair = granted.subList(i, i + 2);
+            assertTrue("grants " + granted + " do not alternate", pair.contains(Lane.Priority) && pair.contains(Lane.Bulk));
+        }
+    }
+
+    private void queue(final Lane lane, int count) throws InterruptedException {
+        int depth = lanes.getQueueDepth(lane);
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(() -> {
+                long entered = lanes.acquire(lane);
+                granted.add(lane);
+                lanes.release(lane, entered);
+            });
+            threads.add(thread);
+            thread.start();
+            awaitQueueDepth(lane, depth + i + 1);
+        }
+    }
+
+    private void awaitQueueDepth(Lane lane, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lanes.getQueueDepth(lane) < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(depth, lanes.getQueueDepth(lane));
+    }
+
+    private void awaitGranted(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (granted.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, granted.size());
+    }
+}
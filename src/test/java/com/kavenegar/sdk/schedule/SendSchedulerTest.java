@@ -0,0 +1,220 @@
+package com.kavenegar.sdk.schedule;
+
+import com.kavenegar.sdk.KavenegarApi;
+import com.kavenegar.sdk.dispatch.DispatcherConfig;
+import com.kavenegar.sdk.dispatch.SendDispatcher;
+import com.kavenegar.sdk.enums.MessageType;
+import com.kavenegar.sdk.models.SendResult;
+import com.kavenegar.sdk.transport.Transport;
+import com.kavenegar.sdk.transport.TransportResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SendSchedulerTest {
+
+    private static final String RECEPTOR = "09121234567";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private SendDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        dispatcher = new SendDispatcher(new KavenegarApi("TEST-KEY", new SendArrayStub()), new DispatcherConfig());
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    private static SchedulerConfig config(long tickMillis, Path storeDirectory) {
+        SchedulerConfig config = new SchedulerConfig();
+        config.setTickMillis(tickMillis);
+        config.setStoreDirectory(storeDirectory);
+        return config;
+    }
+
+    /**
+     * With one-millisecond ticks the first level spans 256ms, so these sends sit in the second
+     * level and cascade down, some across several rotations of the first.
+     */
+    @Test
+    public void releasesSendsThatCascadeAcrossLevelBoundaries() throws InterruptedException {
+        long[] delays = {5, 255, 256, 257, 300, 511, 512, 700, 900};
+        Map<Long, Long> dueByHandle = new LinkedHashMap<>();
+        Map<Long, Long> sentAt = new ConcurrentHashMap<>();
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(1, null))) {
+            scheduler.setListener(new Recorder(sentAt));
+            long now = System.currentTimeMillis();
+            for (long delay : delays) {
+                long due = now + delay;
+                dueByHandle.put(scheduler.schedule(due, "10004346", RECEPTOR, "due in " + delay), due);
+            }
+            awaitCount(sentAt, delays.length, 5000);
+            assertEquals(0, scheduler.getScheduledCount());
+            assertEquals(delays.length, scheduler.getReleasedCount());
+        }
+        for (Map.Entry<Long, Long> send : dueByHandle.entrySet()) {
+            long late = sentAt.get(send.getKey()) - send.getValue();
+            assertTrue("sent " + late + "ms before it was due", late >= 0);
+            assertTrue("sent " + late + "ms after it was due", late < 250);
+        }
+    }
+
+    @Test
+    public void cancelledSendsAreNeverSent() throws InterruptedException {
+        Map<Long, Long> sentAt = new ConcurrentHashMap<>();
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(5, null))) {
+            scheduler.setListener(new Recorder(sentAt));
+            long due = System.currentTimeMillis() + 100;
+            long cancelled = scheduler.schedule(due, "10004346", RECEPTOR, "cancelled");
+            long kept = scheduler.schedule(due, "10004346", RECEPTOR, "kept");
+            assertTrue(scheduler.cancel(cancelled));
+            assertFalse(scheduler.cancel(cancelled));
+            awaitCount(sentAt, 1, 5000);
+            Thread.sleep(100);
+            assertEquals(1, sentAt.size());
+            assertTrue(sentAt.containsKey(kept));
+            assertFalse(scheduler.cancel(kept));
+            assertEquals(1, scheduler.getCancelledCount());
+        }
+    }
+
+    @Test
+    public void restoresSendsWithTheirHandlesAfterARestart() throws InterruptedException {
+        Path store = folder.getRoot().toPath();
+        long later = System.currentTimeMillis() + 3_600_000L;
+        long first;
+        long second;
+        long third;
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(5, store))) {
+            first = scheduler.schedule(later, "10004346", RECEPTOR, "first", MessageType.MobileMemory, "41");
+            second = scheduler.schedule(later, "10004346", RECEPTOR, "second");
+            third = scheduler.schedule(later, "10004346", RECEPTOR, "third");
+            assertTrue(scheduler.cancel(second));
+            scheduler.schedule(System.currentTimeMillis() + 50, "10004346", RECEPTOR, "due while down");
+        }
+        Thread.sleep(100);
+        int before = requests.get();
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(5, store))) {
+            awaitReleased(scheduler, 1, 5000);
+            assertEquals(before + 1, requests.get());
+            assertEquals(2, scheduler.getScheduledCount());
+            assertFalse(scheduler.cancel(second));
+            assertTrue(scheduler.cancel(first));
+            long fresh = scheduler.schedule(later, "10004346", RECEPTOR, "fresh");
+            assertNotEquals(first, fresh);
+            assertNotEquals(third, fresh);
+        }
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(5, store))) {
+            assertEquals(2, scheduler.getScheduledCount());
+            assertFalse(scheduler.cancel(first));
+            assertTrue(scheduler.cancel(third));
+            assertEquals(1, scheduler.getScheduledCount());
+        }
+    }
+
+    @Test
+    public void ignoresATornLastStoreRecord() throws IOException {
+        Path store = folder.getRoot().toPath();
+        long later = System.currentTimeMillis() + 3_600_000L;
+        long handle;
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(5, store))) {
+            handle = scheduler.schedule(later, "10004346", RECEPTOR, "kept");
+        }
+        // a record whose length runs past the end of the file, as a crash mid-write leaves it
+        Files.write(store.resolve("schedule.log"), new byte[]{0, 0, 0, 64, 1, 0, 0, 0, 0, 0, 0, 0, 7, 1, 2},
+                StandardOpenOption.APPEND);
+        try (SendScheduler scheduler = new SendScheduler(dispatcher, config(5, store))) {
+            assertEquals(1, scheduler.getScheduledCount());
+            assertTrue(scheduler.cancel(handle));
+        }
+    }
+
+    private static void awaitCount(Map<?, ?> map, int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (map.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, map.size());
+    }
+
+    private static void awaitReleased(SendScheduler scheduler, long count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (scheduler.getReleasedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, scheduler.getReleasedCount());
+        // the release is handed to the dispatcher, which posts it shortly after
+        Thread.sleep(100);
+    }
+
+    private static final class Recorder implements ScheduledSendListener {
+
+        private final Map<Long, Long> sentAt;
+
+        Recorder(Map<Long, Long> sentAt) {
+            this.sentAt = sentAt;
+        }
+
+        @Override
+        public void onSent(long handle, SendResult result) {
+            sentAt.put(handle, System.currentTimeMillis());
+        }
+
+        @Override
+        public void onFailed(long handle, Throwable error) {
+            throw new AssertionError("send " + handle + " failed", error);
+        }
+    }
+
+    /**
+     * Answers every {@code sendarray} request with one entry per receptor.
+     */
+    private final class SendArrayStub implements Transport {
+
+        @Override
+        public TransportResponse post(URI uri, byte[] body, int offset, int length) throws IOException {
+            requests.incrementAndGet();
+            String form = URLDecoder.decode(new String(body, offset, length, StandardCharsets.UTF_8), "UTF-8");
+            int start = form.indexOf("receptor=[") + "receptor=[".length();
+            String[] receptors = form.substring(start, form.indexOf(']', start)).split(",");
+            StringBuilder answer = new StringBuilder("{\"return\":{\"status\":200,\"message\":\"ok\"},\"entries\":[");
+            for (int i = 0; i < receptors.length; i++) {
+                answer.append(i == 0 ? "" : ",")
+                        .append("{\"messageid\":").append(1000 + i)
+                        .append(",\"status\":1,\"receptor\":").append(receptors[i]).append('}');
+            }
+            answer.append("]}");
+            return new TransportResponse(200, new ByteArrayInputStream(answer.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}